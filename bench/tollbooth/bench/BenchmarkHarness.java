@@ -0,0 +1,202 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth.bench;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The BenchmarkHarness runs an operation in a loop on one or more threads, first to warm
+ * up the JIT and then for a measured period, and reports the throughput, the average
+ * time per operation and the number of bytes allocated per operation.
+ *
+ * Allocation is read from the HotSpot thread allocation counters, which is the same
+ * source the JMH gc profiler uses for its gc.alloc.rate.norm figure.
+ **/
+public final class BenchmarkHarness {
+
+	/**
+	 * One invocation of the code being measured
+	 */
+	public interface Operation{
+		/**
+		 * Run the operation once
+		 * @throws Exception
+		 */
+		void run() throws Exception;
+	}
+
+	/**
+	 * Creates the state and the operation for one benchmark thread
+	 */
+	public interface OperationFactory{
+		/**
+		 * @param threadIndex the index of the thread, starting at 0
+		 * @return the operation the thread runs
+		 * @throws Exception
+		 */
+		Operation create(int threadIndex) throws Exception;
+	}
+
+	/**
+	 * The measurements of one benchmark
+	 */
+	public static final class Result{
+		private final String name;
+		private final int threads;
+		private final long operations;
+		private final long elapsedNanos;
+		private final long allocatedBytes;
+
+		Result(String name, int threads, long operations, long elapsedNanos, long allocatedBytes){
+			this.name = name;
+			this.threads = threads;
+			this.operations = operations;
+			this.elapsedNanos = elapsedNanos;
+			this.allocatedBytes = allocatedBytes;
+		}
+
+		/**
+		 * @return the number of operations per second, summed over all threads
+		 */
+		public double getOperationsPerSecond(){
+			return operations * 1e9 / elapsedNanos;
+		}
+
+		/**
+		 * @return the average nanoseconds each thread spent per operation
+		 */
+		public double getNanosPerOperation(){
+			return operations == 0 ? 0 : (double) elapsedNanos * threads / operations;
+		}
+
+		/**
+		 * @return the average number of bytes allocated per operation, or -1 if the JVM
+		 *  cannot measure allocation
+		 */
+		public double getBytesPerOperation(){
+			if(allocatedBytes < 0){
+				return -1;
+			}
+			return operations == 0 ? 0 : (double) allocatedBytes / operations;
+		}
+
+		@Override
+		public String toString(){
+			return String.format("%-48s %3d %16.0f %12.1f %10.1f", name, threads,
+					getOperationsPerSecond(), getNanosPerOperation(), getBytesPerOperation());
+		}
+	}
+
+	/** The header that matches Result.toString() */
+	public static final String HEADER = String.format("%-48s %3s %16s %12s %10s",
+			"Benchmark", "Thr", "ops/s", "ns/op", "B/op");
+
+	private static final int CHECK_INTERVAL = 1024;
+
+	private final long warmupNanos;
+	private final long measureNanos;
+
+	/**
+	 * Creates a harness.
+	 * @param warmup how long each benchmark runs before it is measured
+	 * @param measure how long each benchmark is measured
+	 * @param unit the unit of both durations
+	 */
+	public BenchmarkHarness(long warmup, long measure, TimeUnit unit){
+		warmupNanos = unit.toNanos(warmup);
+		measureNanos = unit.toNanos(measure);
+	}
+
+	/**
+	 * Runs a benchmark.
+	 * @param name the name reported for the benchmark
+	 * @param threads the number of threads running the operation at the same time
+	 * @param factory creates the operation for each thread
+	 * @return the measurements
+	 * @throws Exception if an operation fails
+	 */
+	public Result run(String name, int threads, OperationFactory factory) throws Exception {
+		final CyclicBarrier start = new CyclicBarrier(threads + 1);
+		final CyclicBarrier stop = new CyclicBarrier(threads + 1);
+		final long[] operations = new long[threads];
+		final long[] allocated = new long[threads];
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		final Thread[] workers = new Thread[threads];
+		for(int t = 0; t < threads; t++){
+			final int index = t;
+			final Operation operation = factory.create(index);
+			workers[t] = new Thread(() -> {
+				try{
+					loop(operation, warmupNanos);
+					start.await();
+					final long before = allocatedBytes();
+					operations[index] = loop(operation, measureNanos);
+					allocated[index] = before < 0 ? -1 : allocatedBytes() - before;
+					stop.await();
+				} catch(Throwable e){
+					failure.compareAndSet(null, e);
+					start.reset();
+					stop.reset();
+				}
+			}, name + "-" + t);
+			workers[t].start();
+		}
+		long elapsed;
+		try{
+			start.await();
+			final long begin = System.nanoTime();
+			stop.await();
+			elapsed = System.nanoTime() - begin;
+		} catch(BrokenBarrierException e){
+			elapsed = 0;
+		}
+		for(Thread worker : workers){
+			worker.join();
+		}
+		if(failure.get() != null){
+			throw new Exception("Benchmark " + name + " failed", failure.get());
+		}
+		long totalOperations = 0;
+		long totalAllocated = 0;
+		for(int t = 0; t < threads; t++){
+			totalOperations += operations[t];
+			totalAllocated = allocated[t] < 0 || totalAllocated < 0 ? -1 : totalAllocated + allocated[t];
+		}
+		return new Result(name, threads, totalOperations, elapsed, totalAllocated);
+	}
+
+	/**
+	 * Runs an operation until the duration has passed.
+	 * @return the number of times the operation ran
+	 */
+	private static long loop(Operation operation, long durationNanos) throws Exception {
+		final long end = System.nanoTime() + durationNanos;
+		long count = 0;
+		do{
+			for(int i = 0; i < CHECK_INTERVAL; i++){
+				operation.run();
+			}
+			count += CHECK_INTERVAL;
+		} while(System.nanoTime() - end < 0);
+		return count;
+	}
+
+	/**
+	 * @return the bytes the current thread has allocated, or -1 if unsupported
+	 */
+	private static long allocatedBytes(){
+		final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if(bean instanceof com.sun.management.ThreadMXBean){
+			return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(
+					Thread.currentThread().getId());
+		}
+		return -1;
+	}
+}
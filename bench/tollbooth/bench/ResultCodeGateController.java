@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth.bench;
+
+import tollbooth.TollboothException;
+import tollbooth.gatecontroller.GateController;
+
+/**
+ * A gate controller whose scheduled failures are reported as false results by the try
+ * methods, without creating an exception. It measures the result-code path of TollGate
+ * on its own; the TestGateController throws a new exception for every failure, the way
+ * a real controller does.
+ */
+final class ResultCodeGateController implements GateController {
+
+	private boolean isOpen;
+	private int scheduledFailureCount;
+
+	@Override
+	public void open() throws TollboothException {
+		if(!tryOpen()){
+			throw new TollboothException("Failure to open");
+		}
+	}
+
+	@Override
+	public void close() throws TollboothException {
+		if(!tryClose()){
+			throw new TollboothException("Failure to close");
+		}
+	}
+
+	@Override
+	public void reset() throws TollboothException {
+		if(!tryReset()){
+			throw new TollboothException("Failure to reset");
+		}
+	}
+
+	@Override
+	public boolean tryOpen(){
+		return attempt(true);
+	}
+
+	@Override
+	public boolean tryClose(){
+		return attempt(false);
+	}
+
+	@Override
+	public boolean tryReset(){
+		return attempt(false);
+	}
+
+	@Override
+	public boolean isOpen(){
+		return isOpen;
+	}
+
+	/**
+	 * @param value the state the gate is left in
+	 */
+	void setIsOpen(boolean value){
+		isOpen = value;
+	}
+
+	/**
+	 * @param count the number of attempts that will fail
+	 */
+	void scheduleXFailures(int count){
+		scheduledFailureCount = count;
+	}
+
+	private boolean attempt(boolean open){
+		if(scheduledFailureCount > 0){
+			scheduledFailureCount--;
+			return false;
+		}
+		isOpen = open;
+		return true;
+	}
+}
@@ -0,0 +1,412 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth.bench;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import tollbooth.CompactLogger;
+import tollbooth.GateEventLog;
+import tollbooth.LogCatalogue;
+import tollbooth.LogCatalogue.Outcome;
+import tollbooth.LogMessage;
+import tollbooth.RingBufferLogger;
+import tollbooth.RingBufferLogger.OverflowPolicy;
+import tollbooth.ShardedLogger;
+import tollbooth.SimpleLogger;
+import tollbooth.TollGate;
+import tollbooth.TollboothException;
+import tollbooth.TollboothLogger;
+import tollbooth.bench.BenchmarkHarness.Result;
+import tollbooth.gatecontroller.GateController;
+import tollbooth.gatecontroller.TestGateController;
+import tollbooth.gatecontroller.XYZCOGateControllerAdapter;
+
+/**
+ * The TollboothBenchmarks measure the throughput, latency and allocation of the hot
+ * paths of the tollbooth: gate open/close cycles, actionDispatch when the controller
+ * fails, the loggers, and the XYZ Co. adapter's exception translation.
+ *
+ * Run it with the src, test and bench folders and the XYZ Co. jar on the classpath.
+ * The first argument, if given, only runs benchmarks whose name contains it. The
+ * system properties bench.warmup and bench.measure set the durations in milliseconds,
+ * and bench.threads the largest number of producer threads for the logger benchmarks.
+ **/
+public final class TollboothBenchmarks {
+
+	private static final LogMessage MESSAGE = new LogMessage("open: successful");
+
+	private final BenchmarkHarness harness;
+	private final String filter;
+
+	private TollboothBenchmarks(BenchmarkHarness harness, String filter){
+		this.harness = harness;
+		this.filter = filter;
+	}
+
+	/**
+	 * Runs the benchmarks and prints one line per benchmark.
+	 * @param args an optional filter on the benchmark names
+	 * @throws Exception if a benchmark fails
+	 */
+	public static void main(String[] args) throws Exception {
+		final long warmup = Long.getLong("bench.warmup", 1000);
+		final long measure = Long.getLong("bench.measure", 2000);
+		final int maxThreads = Integer.getInteger("bench.threads",
+				Runtime.getRuntime().availableProcessors());
+		final TollboothBenchmarks benchmarks = new TollboothBenchmarks(
+				new BenchmarkHarness(warmup, measure, TimeUnit.MILLISECONDS),
+				args.length > 0 ? args[0] : "");
+		System.out.println(BenchmarkHarness.HEADER);
+		benchmarks.gateOpenCloseCycle();
+		benchmarks.gateOpenCloseCycleWithMetrics();
+		benchmarks.dispatchWithRecoverableFailures();
+		benchmarks.dispatchWithResultCodeFailures();
+		benchmarks.dispatchWithUnrecoverableFailures();
+		benchmarks.eventLogRecordAndReplay();
+		benchmarks.tollboothLoggerAcceptAndDrain();
+		benchmarks.ringBufferLoggerBatchDrain();
+		for(int threads = 1; threads <= maxThreads; threads *= 2){
+			benchmarks.ringBufferLoggerProducers(threads);
+		}
+		for(int threads = 1; threads <= maxThreads; threads *= 2){
+			benchmarks.shardedLoggerProducers(threads);
+		}
+		benchmarks.retainedMemoryPerMessage();
+		benchmarks.xyzcoAdapterExceptionTranslation();
+		benchmarks.xyzcoAdapterTryOpen();
+		benchmarks.unresponsiveGateRefusal();
+	}
+
+	private void report(String name, int threads, BenchmarkHarness.OperationFactory factory)
+			throws Exception {
+		if(name.contains(filter)){
+			final Result result = harness.run(name, threads, factory);
+			System.out.println(result);
+		}
+	}
+
+	/**
+	 * A successful open followed by a successful close.
+	 */
+	private void gateOpenCloseCycle() throws Exception {
+		report("TollGate.openCloseCycle", 1, thread -> {
+			final RingBufferLogger logger = new RingBufferLogger();
+			final TollGate gate = new TollGate(new TestGateController(), logger);
+			return () -> {
+				gate.open();
+				gate.close();
+				logger.getNextMessage();
+				logger.getNextMessage();
+			};
+		});
+	}
+
+	/**
+	 * The same cycle with metrics recorded for every call and the latency of the default
+	 * sample of calls.
+	 */
+	private void gateOpenCloseCycleWithMetrics() throws Exception {
+		report("TollGate.openCloseCycle.metrics", 1, thread -> {
+			final RingBufferLogger logger = new RingBufferLogger();
+			final TollGate gate = new TollGate(new TestGateController(), logger);
+			gate.enableMetrics();
+			return () -> {
+				gate.open();
+				gate.close();
+				logger.getNextMessage();
+				logger.getNextMessage();
+			};
+		});
+	}
+
+	/**
+	 * An open that succeeds on the third attempt.
+	 */
+	private void dispatchWithRecoverableFailures() throws Exception {
+		report("TollGate.actionDispatch.twoFailures", 1, thread -> {
+			final TestGateController controller = new TestGateController();
+			final SimpleLogger logger = new RingBufferLogger();
+			final TollGate gate = new TollGate(controller, logger);
+			return () -> {
+				controller.scheduleXFailures(2);
+				gate.actionDispatch(controller, TollGate.Action.OPEN);
+				controller.setIsOpen(false);
+				drain(logger);
+			};
+		});
+	}
+
+	/**
+	 * The same open against a controller that reports its failures as false results,
+	 * so no exception is created at all.
+	 */
+	private void dispatchWithResultCodeFailures() throws Exception {
+		report("TollGate.actionDispatch.twoFailures.resultCode", 1, thread -> {
+			final ResultCodeGateController controller = new ResultCodeGateController();
+			final SimpleLogger logger = new RingBufferLogger();
+			final TollGate gate = new TollGate(controller, logger);
+			return () -> {
+				controller.scheduleXFailures(2);
+				gate.actionDispatch(controller, TollGate.Action.OPEN);
+				controller.setIsOpen(false);
+				drain(logger);
+			};
+		});
+	}
+
+	/**
+	 * An open that fails every attempt, followed by the reset that recovers the gate.
+	 */
+	private void dispatchWithUnrecoverableFailures() throws Exception {
+		report("TollGate.actionDispatch.unrecoverableAndReset", 1, thread -> {
+			final TestGateController controller = new TestGateController();
+			final SimpleLogger logger = new RingBufferLogger();
+			final TollGate gate = new TollGate(controller, logger);
+			return () -> {
+				controller.scheduleXFailures(3);
+				gate.open();
+				gate.reset();
+				drain(logger);
+			};
+		});
+	}
+
+	/**
+	 * Recording one event, and rebuilding the state at a random point of a log of a
+	 * million events.
+	 */
+	private void eventLogRecordAndReplay() throws Exception {
+		final TollGate.Action[] actions = TollGate.Action.values();
+		final LogCatalogue.Outcome[] outcomes = LogCatalogue.Outcome.values();
+		report("GateEventLog.record", 1, thread -> {
+			final GateEventLog events = new GateEventLog();
+			final int[] next = new int[1];
+			return () -> {
+				final int i = next[0]++;
+				events.record(i, actions[i % actions.length], outcomes[(i >> 2) % outcomes.length]);
+				if(events.size() == 1 << 24){
+					events.clear();
+				}
+			};
+		});
+		report("GateEventLog.stateAfter", 1, thread -> {
+			final GateEventLog events = new GateEventLog();
+			final int size = 1 << 20;
+			for(int i = 0; i < size; i++){
+				events.record(i, actions[i % actions.length], outcomes[(i >> 2) % outcomes.length]);
+			}
+			final Random random = new Random(1);
+			return () -> events.stateAfter(random.nextInt(size));
+		});
+	}
+
+	/**
+	 * One message in and out of the LinkedList-based logger. It is not thread safe, so
+	 * it is only measured with a single thread.
+	 */
+	private void tollboothLoggerAcceptAndDrain() throws Exception {
+		report("TollboothLogger.acceptAndGetNextMessage", 1, thread -> {
+			final TollboothLogger logger = new TollboothLogger();
+			return () -> {
+				logger.accept(MESSAGE);
+				logger.getNextMessage();
+			};
+		});
+	}
+
+	/**
+	 * A batch of messages removed from a ring one getNextMessage() at a time and then with
+	 * a single drainTo(). The operation is the whole batch, so ns/op divided by the batch
+	 * size is the cost per message.
+	 */
+	private void ringBufferLoggerBatchDrain() throws Exception {
+		final int batch = 64;
+		report("RingBufferLogger.getNextMessage.batch" + batch, 1, thread -> {
+			final RingBufferLogger logger = new RingBufferLogger(batch, OverflowPolicy.DROP_NEWEST);
+			return () -> {
+				for(int i = 0; i < batch; i++){
+					logger.accept(MESSAGE);
+				}
+				drain(logger);
+			};
+		});
+		report("RingBufferLogger.drainTo.batch" + batch, 1, thread -> {
+			final RingBufferLogger logger = new RingBufferLogger(batch, OverflowPolicy.DROP_NEWEST);
+			final LogMessage[] drained = new LogMessage[batch];
+			return () -> {
+				for(int i = 0; i < batch; i++){
+					logger.accept(MESSAGE);
+				}
+				logger.drainTo(drained, 0, batch);
+			};
+		});
+	}
+
+	/**
+	 * Producers logging into one ring while a single drainer empties it.
+	 * @param producers the number of producer threads
+	 */
+	private void ringBufferLoggerProducers(int producers) throws Exception {
+		final String name = "RingBufferLogger.accept";
+		if(!name.contains(filter)){
+			return;
+		}
+		final RingBufferLogger logger = new RingBufferLogger(4096, OverflowPolicy.DROP_OLDEST);
+		final Thread drainer = new Thread(() -> {
+			while(!Thread.currentThread().isInterrupted()){
+				if(logger.drainTo(message -> { }, 256) == 0){
+					Thread.yield();
+				}
+			}
+		}, "drainer");
+		drainer.setDaemon(true);
+		drainer.start();
+		try{
+			report(name, producers, thread -> () -> logger.accept(MESSAGE));
+		} finally{
+			drainer.interrupt();
+			drainer.join();
+		}
+		System.out.println("    dropped " + logger.getDropCount() + " messages");
+	}
+
+	/**
+	 * Producers logging into their own shards while a single drainer merges them.
+	 * @param producers the number of producer threads
+	 */
+	private void shardedLoggerProducers(int producers) throws Exception {
+		final String name = "ShardedLogger.accept";
+		if(!name.contains(filter)){
+			return;
+		}
+		final ShardedLogger logger = new ShardedLogger(4096);
+		final Thread drainer = new Thread(() -> {
+			while(!Thread.currentThread().isInterrupted()){
+				if(logger.drainTo(message -> { }, 256) == 0){
+					Thread.yield();
+				}
+			}
+		}, "drainer");
+		drainer.setDaemon(true);
+		drainer.start();
+		try{
+			report(name, producers, thread -> () -> logger.accept(MESSAGE));
+		} finally{
+			drainer.interrupt();
+			drainer.join();
+		}
+		System.out.println("    dropped " + logger.getDropCount() + " messages");
+	}
+
+	/**
+	 * The heap retained by queued malfunction messages that each carry a fresh
+	 * TollboothException wrapping a hardware exception, the way the XYZ Co. adapter
+	 * reports failures, in a TollboothLogger and in a CompactLogger.
+	 */
+	private void retainedMemoryPerMessage() throws Exception {
+		final int count = 100000;
+		final SimpleLogger[] loggers = {new TollboothLogger(), new CompactLogger()};
+		for(SimpleLogger logger : loggers){
+			final String name = logger.getClass().getSimpleName() + ".retainedMemory";
+			if(!name.contains(filter)){
+				continue;
+			}
+			final long before = usedHeap();
+			for(int i = 0; i < count; i++){
+				final TollboothException cause = new TollboothException("Hardware failure",
+						new IllegalStateException("Gate controller did not respond"));
+				logger.accept(new LogMessage(i % 16, TollGate.Action.OPEN, Outcome.MALFUNCTION, cause));
+			}
+			final long retained = usedHeap() - before;
+			System.out.printf("%-48s %12.1f bytes/message%n", name, (double) retained / count);
+			drain(logger);
+		}
+	}
+
+	private static long usedHeap() throws InterruptedException {
+		final Runtime runtime = Runtime.getRuntime();
+		for(int i = 0; i < 3; i++){
+			System.gc();
+			Thread.sleep(50);
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/**
+	 * A hardware failure translated into a TollboothException by the adapter. The XYZ Co.
+	 * stub refuses to be constructed without hardware, so the instance is allocated
+	 * without running its constructor; every call on it then throws
+	 * GateControllerException, which is exactly the path being measured.
+	 */
+	private void xyzcoAdapterExceptionTranslation() throws Exception {
+		report("XYZCOGateControllerAdapter.open.failure", 1, thread -> {
+			final GateController adapter = new XYZCOGateControllerAdapter(
+					allocateWithoutConstructor(wpi.hw.xyzco.GateController.class));
+			return () -> {
+				try{
+					adapter.open();
+				} catch(TollboothException e){
+					//expected on every call
+				}
+			};
+		});
+	}
+
+	/**
+	 * The same hardware failure reported as a result by tryOpen(). Only the vendor's own
+	 * exception is created.
+	 */
+	private void xyzcoAdapterTryOpen() throws Exception {
+		report("XYZCOGateControllerAdapter.tryOpen.failure", 1, thread -> {
+			final GateController adapter = new XYZCOGateControllerAdapter(
+					allocateWithoutConstructor(wpi.hw.xyzco.GateController.class));
+			return () -> adapter.tryOpen();
+		});
+	}
+
+	/**
+	 * An open refused by a gate in unresponsive mode, which throws the preallocated
+	 * stackless exception.
+	 */
+	private void unresponsiveGateRefusal() throws Exception {
+		report("TollGate.open.willNotRespond", 1, thread -> {
+			final TestGateController controller = new TestGateController();
+			final SimpleLogger logger = new RingBufferLogger();
+			final TollGate gate = new TollGate(controller, logger);
+			controller.scheduleXFailures(3);
+			gate.open();
+			return () -> {
+				try{
+					gate.open();
+				} catch(TollboothException e){
+					//expected on every call
+				}
+				logger.getNextMessage();
+			};
+		});
+	}
+
+	private static void drain(SimpleLogger logger){
+		while(logger.getNextMessage() != null){
+			//discard
+		}
+	}
+
+	/**
+	 * Allocates an object without running its constructor, through sun.misc.Unsafe.
+	 * Reflection is used so the benchmarks compile against the Java 8 API.
+	 */
+	private static <T> T allocateWithoutConstructor(Class<T> type) throws ReflectiveOperationException {
+		final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+		final Field field = unsafeClass.getDeclaredField("theUnsafe");
+		field.setAccessible(true);
+		final Method allocateInstance = unsafeClass.getMethod("allocateInstance", Class.class);
+		return type.cast(allocateInstance.invoke(field.get(null), type));
+	}
+}
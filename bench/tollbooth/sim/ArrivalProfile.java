@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth.sim;
+
+import java.util.SplittableRandom;
+
+/**
+ * An ArrivalProfile gives the rate at which vehicles arrive at one lane over the
+ * course of a day. Arrivals are a Poisson process with that rate; a rate that changes
+ * over time is sampled by thinning a process that runs at the peak rate.
+ **/
+public abstract class ArrivalProfile {
+
+	/** The number of simulated seconds in a day */
+	public static final double SECONDS_PER_DAY = 24 * 60 * 60;
+
+	/**
+	 * @param time the simulated time, in seconds since midnight
+	 * @return the arrival rate at that time, in vehicles per second
+	 */
+	public abstract double rateAt(double time);
+
+	/**
+	 * @return the highest rate the profile reaches, in vehicles per second
+	 */
+	public abstract double peakRate();
+
+	/**
+	 * Samples the time of the next arrival.
+	 * @param random the source of randomness of the lane
+	 * @param time the simulated time of the previous arrival, in seconds
+	 * @return the simulated time of the next arrival, in seconds
+	 */
+	public double nextArrival(SplittableRandom random, double time){
+		final double peak = peakRate();
+		if(peak <= 0){
+			return Double.POSITIVE_INFINITY;
+		}
+		double next = time;
+		do{
+			next += -Math.log(1 - random.nextDouble()) / peak;
+		} while(random.nextDouble() * peak > rateAt(next % SECONDS_PER_DAY));
+		return next;
+	}
+
+	/**
+	 * Creates a profile with the same rate all day.
+	 * @param vehiclesPerSecond the arrival rate of one lane
+	 * @return the profile
+	 */
+	public static ArrivalProfile poisson(double vehiclesPerSecond){
+		if(vehiclesPerSecond < 0){
+			throw new IllegalArgumentException("vehiclesPerSecond must not be negative");
+		}
+		return new ArrivalProfile(){
+			@Override
+			public double rateAt(double time){
+				return vehiclesPerSecond;
+			}
+
+			@Override
+			public double peakRate(){
+				return vehiclesPerSecond;
+			}
+		};
+	}
+
+	/**
+	 * Creates a profile with a morning and an evening rush hour. The rate rises from the
+	 * base rate to the peak rate in a bell curve, one hour wide, around 08:00 and 17:30.
+	 * @param baseVehiclesPerSecond the arrival rate of one lane outside rush hour
+	 * @param peakVehiclesPerSecond the arrival rate of one lane at the height of rush hour
+	 * @return the profile
+	 */
+	public static ArrivalProfile rushHour(double baseVehiclesPerSecond, double peakVehiclesPerSecond){
+		if(baseVehiclesPerSecond < 0 || peakVehiclesPerSecond < baseVehiclesPerSecond){
+			throw new IllegalArgumentException("rates must satisfy 0 <= base <= peak");
+		}
+		final double morning = 8 * 3600;
+		final double evening = 17.5 * 3600;
+		final double width = 3600;
+		return new ArrivalProfile(){
+			@Override
+			public double rateAt(double time){
+				final double m = (time - morning) / width;
+				final double e = (time - evening) / width;
+				final double rush = Math.max(Math.exp(-m * m / 2), Math.exp(-e * e / 2));
+				return baseVehiclesPerSecond + (peakVehiclesPerSecond - baseVehiclesPerSecond) * rush;
+			}
+
+			@Override
+			public double peakRate(){
+				return peakVehiclesPerSecond;
+			}
+		};
+	}
+}
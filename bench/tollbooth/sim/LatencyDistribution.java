@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth.sim;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A LatencyDistribution gives how long a simulated controller takes to carry out a
+ * command.
+ **/
+public interface LatencyDistribution {
+
+	/**
+	 * Samples the latency of one command.
+	 * @param random the source of randomness of the controller
+	 * @return the latency in nanoseconds
+	 */
+	long sampleNanos(SplittableRandom random);
+
+	/**
+	 * @return a distribution of controllers that answer immediately
+	 */
+	static LatencyDistribution none(){
+		return random -> 0;
+	}
+
+	/**
+	 * @param latency the latency of every command
+	 * @param unit the unit of the latency
+	 * @return a distribution that always takes the same time
+	 */
+	static LatencyDistribution fixed(long latency, TimeUnit unit){
+		final long nanos = unit.toNanos(latency);
+		return random -> nanos;
+	}
+
+	/**
+	 * @param mean the mean latency
+	 * @param unit the unit of the mean
+	 * @return an exponential distribution
+	 */
+	static LatencyDistribution exponential(long mean, TimeUnit unit){
+		final double nanos = unit.toNanos(mean);
+		return random -> (long) (-Math.log(1 - random.nextDouble()) * nanos);
+	}
+
+	/**
+	 * A log-normal distribution, which has the long tail that real hardware shows.
+	 * @param median the median latency
+	 * @param sigma the standard deviation of the logarithm of the latency
+	 * @param unit the unit of the median
+	 * @return a log-normal distribution
+	 */
+	static LatencyDistribution logNormal(long median, double sigma, TimeUnit unit){
+		final double mu = Math.log(unit.toNanos(median));
+		return random -> {
+			//Box-Muller transform of two uniform samples
+			final double u = 1 - random.nextDouble();
+			final double v = random.nextDouble();
+			final double normal = Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * v);
+			return (long) Math.exp(mu + sigma * normal);
+		};
+	}
+}
@@ -0,0 +1,212 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth.sim;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A Scenario describes one run of the TrafficSimulator: the size of the plaza, the
+ * traffic, and how the simulated hardware behaves. It is immutable; start from
+ * defaults() and change it with the with methods, which return modified copies.
+ **/
+public final class Scenario {
+
+	private final long seed;
+	private final int lanes;
+	private final int workers;
+	private final double startTime;
+	private final double duration;
+	private final ArrivalProfile arrivals;
+	private final LatencyDistribution latency;
+	private final double failureRate;
+	private final int burstLength;
+	private final int maxInFlight;
+	private final double timeScale;
+	private final boolean autoReset;
+
+	private Scenario(long seed, int lanes, int workers, double startTime, double duration,
+			ArrivalProfile arrivals, LatencyDistribution latency, double failureRate,
+			int burstLength, int maxInFlight, double timeScale, boolean autoReset){
+		this.seed = seed;
+		this.lanes = lanes;
+		this.workers = workers;
+		this.startTime = startTime;
+		this.duration = duration;
+		this.arrivals = arrivals;
+		this.latency = latency;
+		this.failureRate = failureRate;
+		this.burstLength = burstLength;
+		this.maxInFlight = maxInFlight;
+		this.timeScale = timeScale;
+		this.autoReset = autoReset;
+	}
+
+	/**
+	 * The default scenario is one simulated minute of the morning rush hour at a plaza
+	 * of 1000 lanes, run as fast as possible. Commands take a log-normal 200us, one in
+	 * a thousand starts a burst of three failures, and unresponsive lanes are reset.
+	 * @return the default scenario
+	 */
+	public static Scenario defaults(){
+		return new Scenario(1, 1000, 64, 8 * 3600, 60, ArrivalProfile.rushHour(0.05, 0.5),
+				LatencyDistribution.logNormal(200, 0.5, TimeUnit.MICROSECONDS), 0.001, 3,
+				10000, 0, true);
+	}
+
+	/**
+	 * @param seed the seed that all the randomness of the run is derived from
+	 * @return a copy of this scenario with the seed
+	 */
+	public Scenario withSeed(long seed){
+		return new Scenario(seed, lanes, workers, startTime, duration, arrivals, latency,
+				failureRate, burstLength, maxInFlight, timeScale, autoReset);
+	}
+
+	/**
+	 * @param lanes the number of lanes in the plaza
+	 * @param workers the number of worker threads of the plaza
+	 * @return a copy of this scenario with the plaza size
+	 */
+	public Scenario withPlaza(int lanes, int workers){
+		if(lanes < 1 || workers < 1){
+			throw new IllegalArgumentException("lanes and workers must be at least 1");
+		}
+		return new Scenario(seed, lanes, workers, startTime, duration, arrivals, latency,
+				failureRate, burstLength, maxInFlight, timeScale, autoReset);
+	}
+
+	/**
+	 * @param arrivals the arrival profile of every lane
+	 * @param startTime the simulated time the run starts, in seconds since midnight
+	 * @param duration the simulated length of the run, in seconds
+	 * @return a copy of this scenario with the traffic
+	 */
+	public Scenario withTraffic(ArrivalProfile arrivals, double startTime, double duration){
+		if(duration < 0){
+			throw new IllegalArgumentException("duration must not be negative");
+		}
+		return new Scenario(seed, lanes, workers, startTime, duration, arrivals, latency,
+				failureRate, burstLength, maxInFlight, timeScale, autoReset);
+	}
+
+	/**
+	 * @param latency how long each hardware command takes
+	 * @param failureRate the probability that a command starts a burst of failures
+	 * @param burstLength the number of consecutive commands that fail in a burst
+	 * @return a copy of this scenario with the hardware behavior
+	 */
+	public Scenario withHardware(LatencyDistribution latency, double failureRate, int burstLength){
+		return new Scenario(seed, lanes, workers, startTime, duration, arrivals, latency,
+				failureRate, burstLength, maxInFlight, timeScale, autoReset);
+	}
+
+	/**
+	 * @param maxInFlight the largest number of commands submitted but not finished
+	 * @param timeScale simulated seconds per second of real time, or 0 to run as fast
+	 *  as the plaza allows
+	 * @return a copy of this scenario with the pacing
+	 */
+	public Scenario withPacing(int maxInFlight, double timeScale){
+		if(maxInFlight < 1 || timeScale < 0){
+			throw new IllegalArgumentException("maxInFlight must be positive and timeScale not negative");
+		}
+		return new Scenario(seed, lanes, workers, startTime, duration, arrivals, latency,
+				failureRate, burstLength, maxInFlight, timeScale, autoReset);
+	}
+
+	/**
+	 * @param autoReset true to reset a lane as soon as it is found unresponsive
+	 * @return a copy of this scenario with the reset behavior
+	 */
+	public Scenario withAutoReset(boolean autoReset){
+		return new Scenario(seed, lanes, workers, startTime, duration, arrivals, latency,
+				failureRate, burstLength, maxInFlight, timeScale, autoReset);
+	}
+
+	/**
+	 * @return the seed that all the randomness of the run is derived from
+	 */
+	public long getSeed(){
+		return seed;
+	}
+
+	/**
+	 * @return the number of lanes in the plaza
+	 */
+	public int getLanes(){
+		return lanes;
+	}
+
+	/**
+	 * @return the number of worker threads of the plaza
+	 */
+	public int getWorkers(){
+		return workers;
+	}
+
+	/**
+	 * @return the simulated time the run starts, in seconds since midnight
+	 */
+	public double getStartTime(){
+		return startTime;
+	}
+
+	/**
+	 * @return the simulated length of the run, in seconds
+	 */
+	public double getDuration(){
+		return duration;
+	}
+
+	/**
+	 * @return the arrival profile of every lane
+	 */
+	public ArrivalProfile getArrivals(){
+		return arrivals;
+	}
+
+	/**
+	 * @return how long each hardware command takes
+	 */
+	public LatencyDistribution getLatency(){
+		return latency;
+	}
+
+	/**
+	 * @return the probability that a command starts a burst of failures
+	 */
+	public double getFailureRate(){
+		return failureRate;
+	}
+
+	/**
+	 * @return the number of consecutive commands that fail in a burst
+	 */
+	public int getBurstLength(){
+		return burstLength;
+	}
+
+	/**
+	 * @return the largest number of commands submitted but not finished
+	 */
+	public int getMaxInFlight(){
+		return maxInFlight;
+	}
+
+	/**
+	 * @return simulated seconds per second of real time, or 0 for as fast as possible
+	 */
+	public double getTimeScale(){
+		return timeScale;
+	}
+
+	/**
+	 * @return true if a lane is reset as soon as it is found unresponsive
+	 */
+	public boolean isAutoReset(){
+		return autoReset;
+	}
+}
@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth.sim;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import tollbooth.TollboothException;
+import tollbooth.gatecontroller.GateController;
+
+/**
+ * The SimulatedGateController stands in for the hardware of one lane. Every open, close
+ * or reset takes a time drawn from a LatencyDistribution, during which the calling
+ * thread is parked, and fails with a given probability. A failure starts a burst of
+ * consecutive failures, which is what drives a TollGate into unresponsive mode. Status
+ * checks answer immediately and never fail.
+ *
+ * The controller is deterministic: the same seed and the same sequence of calls give
+ * the same latencies and failures.
+ **/
+public class SimulatedGateController implements GateController {
+
+	private final SplittableRandom random;
+	private final LatencyDistribution latency;
+	private final double failureRate;
+	private final int burstLength;
+	private final LongAdder commands;
+	private final LongAdder statusChecks;
+	private volatile boolean open;
+	private int remainingBurst;
+
+	/**
+	 * Creates a simulated controller.
+	 * @param seed the seed of the controller's randomness
+	 * @param latency how long each command takes
+	 * @param failureRate the probability, between 0 and 1, that a command starts a burst
+	 *  of failures
+	 * @param burstLength the number of consecutive commands that fail in a burst
+	 */
+	public SimulatedGateController(long seed, LatencyDistribution latency, double failureRate,
+			int burstLength){
+		if(failureRate < 0 || failureRate > 1){
+			throw new IllegalArgumentException("failureRate must be in [0, 1]");
+		}
+		if(burstLength < 1){
+			throw new IllegalArgumentException("burstLength must be at least 1");
+		}
+		random = new SplittableRandom(seed);
+		this.latency = latency;
+		this.failureRate = failureRate;
+		this.burstLength = burstLength;
+		commands = new LongAdder();
+		statusChecks = new LongAdder();
+	}
+
+	/*
+	 * @see tollbooth.gatecontroller.GateController#open()
+	 */
+	@Override
+	public void open() throws TollboothException {
+		if(!tryOpen()){
+			throw new TollboothException("Simulated failure to open");
+		}
+	}
+
+	/*
+	 * @see tollbooth.gatecontroller.GateController#close()
+	 */
+	@Override
+	public void close() throws TollboothException {
+		if(!tryClose()){
+			throw new TollboothException("Simulated failure to close");
+		}
+	}
+
+	/*
+	 * @see tollbooth.gatecontroller.GateController#reset()
+	 */
+	@Override
+	public void reset() throws TollboothException {
+		if(!tryReset()){
+			throw new TollboothException("Simulated failure to reset");
+		}
+	}
+
+	/*
+	 * @see tollbooth.gatecontroller.GateController#isOpen()
+	 */
+	@Override
+	public boolean isOpen() throws TollboothException {
+		statusChecks.increment();
+		return open;
+	}
+
+	/*
+	 * @see tollbooth.gatecontroller.GateController#tryOpen()
+	 */
+	@Override
+	public boolean tryOpen() {
+		return command(true);
+	}
+
+	/*
+	 * @see tollbooth.gatecontroller.GateController#tryClose()
+	 */
+	@Override
+	public boolean tryClose() {
+		return command(false);
+	}
+
+	/*
+	 * @see tollbooth.gatecontroller.GateController#tryReset()
+	 */
+	@Override
+	public boolean tryReset() {
+		return command(false);
+	}
+
+	/**
+	 * @return the number of open, close and reset commands the controller received
+	 */
+	public long getCommandCount(){
+		return commands.sum();
+	}
+
+	/**
+	 * @return the number of isOpen() calls the controller received
+	 */
+	public long getStatusCheckCount(){
+		return statusChecks.sum();
+	}
+
+	/**
+	 * Carries out a command: samples its latency and whether it fails, waits out the
+	 * latency, and moves the gate if it succeeded.
+	 * @param opened the state the gate is left in if the command succeeds
+	 * @return true if the command succeeded
+	 */
+	private boolean command(boolean opened){
+		commands.increment();
+		final long nanos;
+		final boolean failed;
+		synchronized(this){
+			nanos = latency.sampleNanos(random);
+			if(remainingBurst > 0){
+				remainingBurst--;
+				failed = true;
+			} else if(random.nextDouble() < failureRate){
+				remainingBurst = burstLength - 1;
+				failed = true;
+			} else{
+				failed = false;
+			}
+		}
+		if(nanos > 0){
+			LockSupport.parkNanos(nanos);
+		}
+		if(!failed){
+			open = opened;
+		}
+		return !failed;
+	}
+}
@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth.sim;
+
+import tollbooth.LatencyHistogram;
+
+/**
+ * The SimulationReport holds the results of one run of the TrafficSimulator.
+ **/
+public final class SimulationReport {
+
+	private final long vehicles;
+	private final long commands;
+	private final long failedCommands;
+	private final long resets;
+	private final long hardwareCommands;
+	private final long statusChecks;
+	private final long malfunctions;
+	private final int unresponsiveLanes;
+	private final long wallNanos;
+	private final LatencyHistogram.Snapshot latency;
+
+	SimulationReport(long vehicles, long commands, long failedCommands, long resets,
+			long hardwareCommands, long statusChecks, long malfunctions, int unresponsiveLanes,
+			long wallNanos, LatencyHistogram.Snapshot latency){
+		this.vehicles = vehicles;
+		this.commands = commands;
+		this.failedCommands = failedCommands;
+		this.resets = resets;
+		this.hardwareCommands = hardwareCommands;
+		this.statusChecks = statusChecks;
+		this.malfunctions = malfunctions;
+		this.unresponsiveLanes = unresponsiveLanes;
+		this.wallNanos = wallNanos;
+		this.latency = latency;
+	}
+
+	/**
+	 * @return the number of vehicles that arrived
+	 */
+	public long getVehicles(){
+		return vehicles;
+	}
+
+	/**
+	 * @return the number of open and close commands submitted for the vehicles
+	 */
+	public long getCommands(){
+		return commands;
+	}
+
+	/**
+	 * @return the number of those commands that failed
+	 */
+	public long getFailedCommands(){
+		return failedCommands;
+	}
+
+	/**
+	 * @return the number of resets submitted for unresponsive lanes
+	 */
+	public long getResets(){
+		return resets;
+	}
+
+	/**
+	 * @return the number of open, close and reset commands the hardware received
+	 */
+	public long getHardwareCommands(){
+		return hardwareCommands;
+	}
+
+	/**
+	 * @return the number of isOpen() calls the hardware received
+	 */
+	public long getStatusChecks(){
+		return statusChecks;
+	}
+
+	/**
+	 * @return the number of malfunctions counted by the gates
+	 */
+	public long getMalfunctions(){
+		return malfunctions;
+	}
+
+	/**
+	 * @return the number of lanes that were unresponsive at the end of the run
+	 */
+	public int getUnresponsiveLanes(){
+		return unresponsiveLanes;
+	}
+
+	/**
+	 * @return the real time the run took, in nanoseconds
+	 */
+	public long getWallNanos(){
+		return wallNanos;
+	}
+
+	/**
+	 * @return the latency of the commands, from submission to completion
+	 */
+	public LatencyHistogram.Snapshot getLatency(){
+		return latency;
+	}
+
+	/**
+	 * @return the number of commands completed per second of real time
+	 */
+	public double getThroughput(){
+		return wallNanos == 0 ? 0 : commands * 1e9 / wallNanos;
+	}
+
+	@Override
+	public String toString(){
+		return String.format("vehicles %d, commands %d (%d failed), resets %d%n"
+				+ "hardware commands %d, status checks %d, malfunctions %d, unresponsive lanes %d%n"
+				+ "wall time %.3f s, throughput %.0f commands/s%n"
+				+ "latency us: mean %.1f, p50 %.1f, p99 %.1f, p99.9 %.1f, max %.1f",
+				vehicles, commands, failedCommands, resets, hardwareCommands, statusChecks,
+				malfunctions, unresponsiveLanes, wallNanos / 1e9, getThroughput(),
+				latency.getMean() / 1e3, micros(50), micros(99), micros(99.9),
+				latency.getMax() / 1e3);
+	}
+
+	private double micros(double percentile){
+		return latency.getValueAtPercentile(percentile) / 1e3;
+	}
+}
@@ -0,0 +1,249 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth.sim;
+
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import tollbooth.LatencyHistogram;
+import tollbooth.LogMessage;
+import tollbooth.SimpleLogger;
+import tollbooth.TollGate;
+import tollbooth.TollPlaza;
+
+/**
+ * The TrafficSimulator drives a TollPlaza of SimulatedGateControllers with generated
+ * traffic. Each lane has its own stream of vehicle arrivals, and each vehicle opens
+ * and then closes the gate of its lane. Lanes that become unresponsive are reset,
+ * unless the Scenario turns that off. Arrivals from all lanes are submitted in order
+ * of their simulated time, either as fast as the plaza accepts them or paced against
+ * real time, and the run reports throughput, command latency and unresponsive lanes.
+ *
+ * Every random choice is derived from the seed of the Scenario, so a run can be
+ * repeated. The interleaving of commands on the worker threads is not deterministic,
+ * but the arrivals and the behavior of each lane's hardware are.
+ *
+ * Run it with the src, bench and XYZ Co. jar on the classpath. The system properties
+ * sim.lanes, sim.workers, sim.seconds, sim.seed and sim.failureRate change the
+ * default scenario.
+ **/
+public final class TrafficSimulator {
+
+	/** The number of times a lane is reset before it is left unresponsive */
+	private static final int MAX_RESETS = 10;
+
+	private final Scenario scenario;
+	private final Lane[] lanes;
+	private final TollPlaza plaza;
+	private final LatencyHistogram latency;
+	private final Semaphore inFlight;
+	private final AtomicInteger resetsInFlight;
+	private final LongAdder failedCommands;
+	private final LongAdder resets;
+
+	/**
+	 * Builds the plaza and lanes of a scenario.
+	 * @param scenario the scenario to run
+	 */
+	public TrafficSimulator(Scenario scenario){
+		this.scenario = scenario;
+		final SimpleLogger logger = new DiscardingLogger();
+		plaza = new TollPlaza(logger, scenario.getWorkers());
+		lanes = new Lane[scenario.getLanes()];
+		final SplittableRandom seeds = new SplittableRandom(scenario.getSeed());
+		for(int i = 0; i < lanes.length; i++){
+			final String laneId = "lane-" + i;
+			final SimulatedGateController controller = new SimulatedGateController(seeds.nextLong(),
+					scenario.getLatency(), scenario.getFailureRate(), scenario.getBurstLength());
+			lanes[i] = new Lane(laneId, plaza.addLane(laneId, controller), controller,
+					new SplittableRandom(seeds.nextLong()));
+		}
+		latency = new LatencyHistogram();
+		inFlight = new Semaphore(scenario.getMaxInFlight());
+		resetsInFlight = new AtomicInteger();
+		failedCommands = new LongAdder();
+		resets = new LongAdder();
+	}
+
+	/**
+	 * Runs the scenario and shuts the plaza down. A simulator can only be run once.
+	 * @return the results of the run
+	 * @throws InterruptedException
+	 */
+	public SimulationReport run() throws InterruptedException {
+		final double start = scenario.getStartTime();
+		final double end = start + scenario.getDuration();
+		final PriorityQueue<Lane> arrivals = new PriorityQueue<Lane>(lanes.length,
+				(a, b) -> Double.compare(a.nextArrival, b.nextArrival));
+		for(Lane lane : lanes){
+			lane.nextArrival = scenario.getArrivals().nextArrival(lane.random, start);
+			if(lane.nextArrival < end){
+				arrivals.add(lane);
+			}
+		}
+
+		long vehicles = 0;
+		final long wallStart = System.nanoTime();
+		while(!arrivals.isEmpty()){
+			final Lane lane = arrivals.poll();
+			pace(wallStart, lane.nextArrival - start);
+			vehicles++;
+			submit(lane, () -> plaza.open(lane.laneId));
+			submit(lane, () -> plaza.close(lane.laneId));
+			lane.nextArrival = scenario.getArrivals().nextArrival(lane.random, lane.nextArrival);
+			if(lane.nextArrival < end){
+				arrivals.add(lane);
+			}
+		}
+		//Wait for the commands, then for any resets they started
+		inFlight.acquire(scenario.getMaxInFlight());
+		while(resetsInFlight.get() > 0){
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+		}
+		final long wallNanos = System.nanoTime() - wallStart;
+		plaza.shutdown(1, TimeUnit.SECONDS);
+
+		long hardwareCommands = 0;
+		long statusChecks = 0;
+		long malfunctions = 0;
+		for(Lane lane : lanes){
+			hardwareCommands += lane.controller.getCommandCount();
+			statusChecks += lane.controller.getStatusCheckCount();
+			malfunctions += lane.gate.getNumberOfMalfunctions();
+		}
+		return new SimulationReport(vehicles, 2 * vehicles, failedCommands.sum(), resets.sum(),
+				hardwareCommands, statusChecks, malfunctions, plaza.getUnresponsiveGateCount(),
+				wallNanos, latency.snapshot());
+	}
+
+	/**
+	 * Waits until the real time that corresponds to a simulated time, if the scenario
+	 * is paced.
+	 * @param wallStart the real time the run started
+	 * @param elapsed the simulated seconds since the start of the run
+	 */
+	private void pace(long wallStart, double elapsed){
+		if(scenario.getTimeScale() == 0){
+			return;
+		}
+		final long due = wallStart + (long) (elapsed / scenario.getTimeScale() * 1e9);
+		long wait;
+		while((wait = due - System.nanoTime()) > 0){
+			LockSupport.parkNanos(wait);
+		}
+	}
+
+	/**
+	 * Sends a command once it may be in flight, records its latency and resets the lane
+	 * if the command found it unresponsive. The latency is measured from the moment the
+	 * command is sent, not from when the simulator started waiting for a permit.
+	 * @param lane the lane of the command
+	 * @param send sends the command to the plaza and returns its future
+	 * @throws InterruptedException
+	 */
+	private void submit(Lane lane, Supplier<CompletableFuture<Void>> send) throws InterruptedException {
+		inFlight.acquire();
+		final long submitted = System.nanoTime();
+		send.get().whenComplete((value, error) -> {
+			latency.record(System.nanoTime() - submitted);
+			if(error != null){
+				failedCommands.increment();
+			}
+			//The command that makes a gate unresponsive completes normally
+			if(scenario.isAutoReset() && lane.gate.getUnresponsiveMode()
+					&& lane.resetting.compareAndSet(false, true)){
+				resetsInFlight.incrementAndGet();
+				reset(lane, 1);
+			}
+			inFlight.release();
+		});
+	}
+
+	/**
+	 * Resets an unresponsive lane, and tries again if the reset fails, the way an
+	 * operator would.
+	 * @param lane the lane to reset
+	 * @param attempt the number of this reset, starting at 1
+	 */
+	private void reset(Lane lane, int attempt){
+		resets.increment();
+		plaza.reset(lane.laneId).whenComplete((value, error) -> {
+			if(lane.gate.getUnresponsiveMode() && attempt < MAX_RESETS){
+				reset(lane, attempt + 1);
+			} else{
+				lane.resetting.set(false);
+				resetsInFlight.decrementAndGet();
+			}
+		});
+	}
+
+	/**
+	 * Runs the default scenario, changed by system properties, and prints the report.
+	 * @param args not used
+	 * @throws InterruptedException
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		final Scenario defaults = Scenario.defaults();
+		final Scenario scenario = defaults
+				.withSeed(Long.getLong("sim.seed", defaults.getSeed()))
+				.withPlaza(Integer.getInteger("sim.lanes", defaults.getLanes()),
+						Integer.getInteger("sim.workers", defaults.getWorkers()))
+				.withTraffic(defaults.getArrivals(), defaults.getStartTime(),
+						Double.parseDouble(System.getProperty("sim.seconds",
+								String.valueOf(defaults.getDuration()))))
+				.withHardware(defaults.getLatency(),
+						Double.parseDouble(System.getProperty("sim.failureRate",
+								String.valueOf(defaults.getFailureRate()))),
+						defaults.getBurstLength());
+		System.out.println(new TrafficSimulator(scenario).run());
+	}
+
+	/**
+	 * The state the simulator keeps for each lane
+	 */
+	private static final class Lane{
+		final String laneId;
+		final TollGate gate;
+		final SimulatedGateController controller;
+		final SplittableRandom random;
+		final AtomicBoolean resetting;
+		double nextArrival;
+
+		Lane(String laneId, TollGate gate, SimulatedGateController controller,
+				SplittableRandom random){
+			this.laneId = laneId;
+			this.gate = gate;
+			this.controller = controller;
+			this.random = random;
+			resetting = new AtomicBoolean();
+		}
+	}
+
+	/**
+	 * A logger that keeps nothing, so the run measures the gates rather than the log.
+	 * RingBufferLogger is what a real plaza would use, and it is measured by the
+	 * benchmarks.
+	 */
+	private static final class DiscardingLogger implements SimpleLogger{
+		@Override
+		public void accept(LogMessage message){
+			//discard
+		}
+
+		@Override
+		public LogMessage getNextMessage(){
+			return null;
+		}
+	}
+}
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth.sim;
+
+import static org.junit.Assert.*;
+
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+/**
+ * Test cases for the TrafficSimulator and its simulated hardware.
+ */
+public class TrafficSimulatorTest
+{
+	private static Scenario small(){
+		return Scenario.defaults()
+				.withPlaza(20, 4)
+				.withTraffic(ArrivalProfile.poisson(1), 0, 30)
+				.withHardware(LatencyDistribution.none(), 0.05, 3)
+				.withAutoReset(false);
+	}
+
+	@Test
+	public void runsWithTheSameSeedAgree() throws InterruptedException
+	{
+		final SimulationReport first = new TrafficSimulator(small()).run();
+		final SimulationReport second = new TrafficSimulator(small()).run();
+		assertTrue(first.getVehicles() > 0);
+		assertEquals(first.getVehicles(), second.getVehicles());
+		assertEquals(first.getMalfunctions(), second.getMalfunctions());
+		assertEquals(first.getUnresponsiveLanes(), second.getUnresponsiveLanes());
+		assertEquals(2 * first.getVehicles(), first.getCommands());
+		assertEquals(first.getCommands(), first.getLatency().getCount());
+
+		final SimulationReport other = new TrafficSimulator(small().withSeed(2)).run();
+		assertNotEquals(first.getVehicles(), other.getVehicles());
+	}
+
+	@Test
+	public void reliableHardwareNeverFails() throws InterruptedException
+	{
+		final SimulationReport report = new TrafficSimulator(
+				small().withHardware(LatencyDistribution.none(), 0, 1)).run();
+		assertEquals(0, report.getFailedCommands());
+		assertEquals(0, report.getMalfunctions());
+		assertEquals(0, report.getUnresponsiveLanes());
+	}
+
+	@Test
+	public void autoResetRecoversEveryLane() throws InterruptedException
+	{
+		final SimulationReport report = new TrafficSimulator(small().withAutoReset(true)).run();
+		assertTrue(report.getResets() > 0);
+		assertEquals(0, report.getUnresponsiveLanes());
+	}
+
+	@Test
+	public void failuresComeInBursts()
+	{
+		final SimulatedGateController controller =
+				new SimulatedGateController(7, LatencyDistribution.none(), 0.1, 3);
+		int failures = 0;
+		int run = 0;
+		for(int i = 0; i < 10000; i++){
+			if(!controller.tryOpen()){
+				failures++;
+				run++;
+			} else{
+				//Bursts can follow each other, so a run is a multiple of the burst length
+				assertEquals(0, run % 3);
+				run = 0;
+			}
+		}
+		assertTrue(failures > 0);
+		assertEquals(10000, controller.getCommandCount());
+	}
+
+	@Test
+	public void rushHourPeaksInTheMorningAndEvening()
+	{
+		final ArrivalProfile profile = ArrivalProfile.rushHour(0.1, 1);
+		assertEquals(1, profile.rateAt(8 * 3600), 1e-9);
+		assertEquals(1, profile.rateAt(17.5 * 3600), 1e-9);
+		assertEquals(0.1, profile.rateAt(3 * 3600), 1e-3);
+		final SplittableRandom random = new SplittableRandom(3);
+		int morning = 0;
+		for(double t = 7.5 * 3600; (t = profile.nextArrival(random, t)) < 8.5 * 3600; ){
+			morning++;
+		}
+		int night = 0;
+		for(double t = 2.5 * 3600; (t = profile.nextArrival(random, t)) < 3.5 * 3600; ){
+			night++;
+		}
+		assertTrue(morning > 5 * night);
+	}
+}
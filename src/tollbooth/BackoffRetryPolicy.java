@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import tollbooth.TollGate.Action;
+
+/**
+ * The BackoffRetryPolicy is the standard RetryPolicy. It waits either a fixed delay or
+ * an exponentially growing delay between attempts, optionally randomized ("full
+ * jitter") so that many gates that failed together do not all retry together. The
+ * number of attempts can be set separately for each action.
+ *
+ * Instances are immutable; withMaxAttempts() returns a modified copy.
+ **/
+public final class BackoffRetryPolicy implements RetryPolicy {
+
+	/** The number of attempts TollGate has always used */
+	public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+	private final int[] maxAttempts;
+	private final long initialNanos;
+	private final long maxNanos;
+	private final boolean exponential;
+	private final boolean jitter;
+
+	private BackoffRetryPolicy(int[] maxAttempts, long initialNanos, long maxNanos,
+			boolean exponential, boolean jitter){
+		this.maxAttempts = maxAttempts;
+		this.initialNanos = initialNanos;
+		this.maxNanos = maxNanos;
+		this.exponential = exponential;
+		this.jitter = jitter;
+	}
+
+	/**
+	 * @param maxAttempts the number of attempts for every action
+	 * @return a policy that retries back-to-back with no delay
+	 */
+	public static BackoffRetryPolicy immediate(int maxAttempts){
+		return new BackoffRetryPolicy(attemptsFor(maxAttempts), 0, 0, false, false);
+	}
+
+	/**
+	 * @param maxAttempts the number of attempts for every action
+	 * @param delay the delay before every retry
+	 * @param unit the unit of the delay
+	 * @return a policy that waits the same time before every retry
+	 */
+	public static BackoffRetryPolicy fixed(int maxAttempts, long delay, TimeUnit unit){
+		final long nanos = toNanos(delay, unit);
+		return new BackoffRetryPolicy(attemptsFor(maxAttempts), nanos, nanos, false, false);
+	}
+
+	/**
+	 * @param maxAttempts the number of attempts for every action
+	 * @param initialDelay the delay before the first retry
+	 * @param maxDelay the longest delay before any retry
+	 * @param unit the unit of the delays
+	 * @return a policy that doubles the delay after every failed attempt
+	 */
+	public static BackoffRetryPolicy exponential(int maxAttempts, long initialDelay,
+			long maxDelay, TimeUnit unit){
+		return new BackoffRetryPolicy(attemptsFor(maxAttempts), toNanos(initialDelay, unit),
+				toNanos(maxDelay, unit), true, false);
+	}
+
+	/**
+	 * @param maxAttempts the number of attempts for every action
+	 * @param initialDelay the upper bound of the delay before the first retry
+	 * @param maxDelay the upper bound of the delay before any retry
+	 * @param unit the unit of the delays
+	 * @return a policy that waits a random time between zero and the exponential delay
+	 */
+	public static BackoffRetryPolicy jittered(int maxAttempts, long initialDelay,
+			long maxDelay, TimeUnit unit){
+		return new BackoffRetryPolicy(attemptsFor(maxAttempts), toNanos(initialDelay, unit),
+				toNanos(maxDelay, unit), true, true);
+	}
+
+	/**
+	 * Returns a copy of this policy with a different number of attempts for one action.
+	 * @param act the action
+	 * @param attempts the number of attempts for the action
+	 * @return the modified copy
+	 */
+	public BackoffRetryPolicy withMaxAttempts(Action act, int attempts){
+		checkAttempts(attempts);
+		final int[] copy = maxAttempts.clone();
+		copy[act.ordinal()] = attempts;
+		return new BackoffRetryPolicy(copy, initialNanos, maxNanos, exponential, jitter);
+	}
+
+	@Override
+	public int getMaxAttempts(Action act){
+		return maxAttempts[act.ordinal()];
+	}
+
+	@Override
+	public long getBackoffNanos(Action act, int failedAttempts){
+		long delay = initialNanos;
+		if(exponential && failedAttempts > 1){
+			//Shift at most 62 bits so the delay cannot overflow past the cap
+			final int shift = Math.min(failedAttempts - 1, 62);
+			delay = initialNanos > (maxNanos >> shift) ? maxNanos : initialNanos << shift;
+		}
+		delay = Math.min(delay, maxNanos);
+		if(jitter && delay > 0){
+			//Clamped so an uncapped delay of Long.MAX_VALUE does not overflow the bound
+			delay = ThreadLocalRandom.current().nextLong(Math.min(delay, Long.MAX_VALUE - 1) + 1);
+		}
+		return delay;
+	}
+
+	private static int[] attemptsFor(int attempts){
+		checkAttempts(attempts);
+		final int[] result = new int[Action.values().length];
+		for(int i = 0; i < result.length; i++){
+			result[i] = attempts;
+		}
+		return result;
+	}
+
+	private static void checkAttempts(int attempts){
+		if(attempts < 1){
+			throw new IllegalArgumentException("attempts must be at least 1");
+		}
+	}
+
+	private static long toNanos(long delay, TimeUnit unit){
+		if(delay < 0){
+			throw new IllegalArgumentException("delay must not be negative");
+		}
+		return unit.toNanos(delay);
+	}
+}
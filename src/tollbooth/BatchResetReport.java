@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The BatchResetReport holds the outcome of TollPlaza.resetUnresponsive() for each
+ * lane that was reset.
+ **/
+public final class BatchResetReport {
+
+	/**
+	 * Specifies the outcome of resetting one gate
+	 */
+	public enum Result{
+		/** The reset succeeded and the gate is responsive again */
+		RECOVERED,
+		/** Every attempt failed, so the gate is still in unresponsive mode */
+		STILL_UNRESPONSIVE,
+		/** The reset was refused, for example because the last reset was unrecoverable */
+		FAILED
+	}
+
+	private final Map<String, Result> results;
+	private final Map<String, Throwable> causes;
+	private final long elapsedNanos;
+
+	BatchResetReport(Map<String, Result> results, Map<String, Throwable> causes, long elapsedNanos){
+		this.results = Collections.unmodifiableMap(results);
+		this.causes = Collections.unmodifiableMap(causes);
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * @return the IDs of the lanes that were reset
+	 */
+	public Set<String> getLaneIds(){
+		return results.keySet();
+	}
+
+	/**
+	 * @param laneId the ID of a lane
+	 * @return the outcome of its reset, or null if the lane was not reset
+	 */
+	public Result getResult(String laneId){
+		return results.get(laneId);
+	}
+
+	/**
+	 * @param laneId the ID of a lane
+	 * @return the exception the reset failed with, or null if it did not fail
+	 */
+	public Throwable getCause(String laneId){
+		return causes.get(laneId);
+	}
+
+	/**
+	 * @param result an outcome
+	 * @return the number of lanes whose reset had that outcome
+	 */
+	public int getCount(Result result){
+		int count = 0;
+		for(Result each : results.values()){
+			if(each == result){
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return the time from the start of the batch until the last reset finished
+	 */
+	public long getElapsedNanos(){
+		return elapsedNanos;
+	}
+}
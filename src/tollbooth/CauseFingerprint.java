@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth;
+
+import java.util.Objects;
+
+/**
+ * A CauseFingerprint stands in for the cause of a LogMessage once the message has been
+ * encoded by a LogCodec. It keeps the class name and message of the cause and of each
+ * cause in its chain, such as the wpi.hw.xyzco.GateControllerException behind a
+ * TollboothException, but no stack trace, so it prints the same as the original
+ * chain while taking a few dozen bytes.
+ *
+ * Fingerprints are interned by the LogCodec, so every stored message with an equal
+ * cause shares one instance. Like the preallocated exceptions of the LogCatalogue they have
+ * no stack trace and no suppressed exceptions.
+ **/
+public final class CauseFingerprint extends Throwable {
+
+	private static final long serialVersionUID = -2417635290385470261L;
+
+	/** The longest cause chain that is fingerprinted; deeper causes are left off */
+	static final int MAX_DEPTH = 16;
+
+	private final String className;
+	private final int digest;
+	private final int hash;
+
+	/**
+	 * Creates a fingerprint.
+	 * @param className the name of the class of the cause
+	 * @param message the message of the cause, or null
+	 * @param cause the fingerprint of the next cause in the chain, or null
+	 */
+	CauseFingerprint(String className, String message, CauseFingerprint cause){
+		super(message, cause, false, false);
+		this.className = className;
+		final int digest = 31 * className.hashCode() + (message == null ? 0 : message.hashCode());
+		this.digest = digest == 0 ? 1 : digest;
+		hash = 31 * this.digest + Objects.hashCode(cause);
+	}
+
+	/**
+	 * Fingerprints a cause and its chain, without interning.
+	 * @param cause the cause, or null
+	 * @return the fingerprint, or null for a null cause
+	 */
+	static CauseFingerprint of(Throwable cause){
+		return of(cause, 0);
+	}
+
+	private static CauseFingerprint of(Throwable cause, int depth){
+		if(cause == null || depth == MAX_DEPTH){
+			return null;
+		}
+		if(cause instanceof CauseFingerprint){
+			return (CauseFingerprint) cause;
+		}
+		return new CauseFingerprint(cause.getClass().getName(), cause.getMessage(),
+				of(cause.getCause(), depth + 1));
+	}
+
+	/**
+	 * @return the name of the class of the original cause
+	 */
+	public String getClassName(){
+		return className;
+	}
+
+	/**
+	 * @return the fingerprint of the next cause in the chain, or null
+	 */
+	@Override
+	public CauseFingerprint getCause(){
+		return (CauseFingerprint) super.getCause();
+	}
+
+	/**
+	 * @return the digest of the class name and message, the same as
+	 *  JournalEntry.digestOf() returns for the original cause
+	 */
+	public int getDigest(){
+		return digest;
+	}
+
+	/**
+	 * @return the class name and message, printed the way the original cause printed them
+	 */
+	@Override
+	public String toString(){
+		final String message = getLocalizedMessage();
+		return message == null ? className : className + ": " + message;
+	}
+
+	@Override
+	public boolean equals(Object other){
+		if(this == other){
+			return true;
+		}
+		if(!(other instanceof CauseFingerprint)){
+			return false;
+		}
+		final CauseFingerprint that = (CauseFingerprint) other;
+		return hash == that.hash && className.equals(that.className)
+				&& Objects.equals(getMessage(), that.getMessage())
+				&& Objects.equals(getCause(), that.getCause());
+	}
+
+	@Override
+	public int hashCode(){
+		return hash;
+	}
+}
@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth;
+
+import java.util.function.Consumer;
+
+/**
+ * The CompactLogger is an implementation of the SimpleLogger interface that queues
+ * messages in their LogCodec encoding: three primitive array slots, 20 bytes, per
+ * message. Nothing of the original message is retained, in particular not its cause
+ * or the stack traces of the cause chain, which make up most of the memory a queued
+ * malfunction holds on to. getNextMessage() decodes the message again as a
+ * DecodedLogMessage.
+ *
+ * Encoding happens on the calling thread before the queue's lock is taken. The queue
+ * grows as needed, like the TollboothLogger's.
+ **/
+public class CompactLogger implements SimpleLogger {
+
+	private final LogCodec codec;
+	private long[] timestamps;
+	private long[] headers;
+	private int[] causeIds;
+	private int head;
+	private int size;
+
+	/**
+	 * Creates a CompactLogger with its own codec.
+	 */
+	public CompactLogger(){
+		this(new LogCodec());
+	}
+
+	/**
+	 * Creates a CompactLogger.
+	 * @param codec the codec the messages are encoded with, which may be shared with
+	 *  other loggers so they intern causes in one table
+	 */
+	public CompactLogger(LogCodec codec){
+		this.codec = codec;
+		timestamps = new long[64];
+		headers = new long[64];
+		causeIds = new int[64];
+	}
+
+	@Override
+	public void accept(LogMessage message) {
+		final long timestamp = LogCodec.now();
+		final long header = codec.encodeHeader(message);
+		final int causeId = codec.encodeCause(message.getCause());
+		synchronized(this){
+			if(size == headers.length){
+				grow();
+			}
+			final int tail = (head + size) & (headers.length - 1);
+			timestamps[tail] = timestamp;
+			headers[tail] = header;
+			causeIds[tail] = causeId;
+			size++;
+		}
+	}
+
+	@Override
+	public synchronized LogMessage getNextMessage() {
+		if(size == 0){
+			return null;
+		}
+		return take();
+	}
+
+	@Override
+	public synchronized int drainTo(Consumer<? super LogMessage> consumer, int maxMessages) {
+		if(maxMessages < 0){
+			throw new IllegalArgumentException("maxMessages must not be negative");
+		}
+		final int count = Math.min(maxMessages, size);
+		for(int i = 0; i < count; i++){
+			consumer.accept(take());
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the size of the log message queue
+	 * @return the number of messages in the logger queue
+	 */
+	public synchronized int logSize(){
+		return size;
+	}
+
+	/**
+	 * @return the codec the messages are encoded with
+	 */
+	public LogCodec getCodec(){
+		return codec;
+	}
+
+	private DecodedLogMessage take(){
+		final DecodedLogMessage message = codec.decode(timestamps[head], headers[head], causeIds[head]);
+		codec.release(headers[head], causeIds[head]);
+		head = (head + 1) & (headers.length - 1);
+		size--;
+		return message;
+	}
+
+	/**
+	 * Doubles the arrays, moving the queued messages to the start.
+	 */
+	private void grow(){
+		final int capacity = headers.length * 2;
+		final long[] newTimestamps = new long[capacity];
+		final long[] newHeaders = new long[capacity];
+		final int[] newCauseIds = new int[capacity];
+		final int first = headers.length - head;
+		System.arraycopy(timestamps, head, newTimestamps, 0, first);
+		System.arraycopy(timestamps, 0, newTimestamps, first, head);
+		System.arraycopy(headers, head, newHeaders, 0, first);
+		System.arraycopy(headers, 0, newHeaders, first, head);
+		System.arraycopy(causeIds, head, newCauseIds, 0, first);
+		System.arraycopy(causeIds, 0, newCauseIds, first, head);
+		timestamps = newTimestamps;
+		headers = newHeaders;
+		causeIds = newCauseIds;
+		head = 0;
+	}
+}
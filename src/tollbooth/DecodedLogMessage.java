@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth;
+
+import tollbooth.LogCatalogue.Outcome;
+import tollbooth.TollGate.Action;
+
+/**
+ * A DecodedLogMessage is a LogMessage rebuilt by a LogCodec. Its cause, if it has one,
+ * is the interned CauseFingerprint of the original cause, and it carries the time the
+ * message was encoded. A message decoded from a RepeatedLogMessage keeps its repeat
+ * count and timestamps, and prints the same.
+ **/
+public class DecodedLogMessage extends LogMessage {
+
+	private final long timestampNanos;
+	private final long repeatCount;
+	private final long firstTimestamp;
+	private final long lastTimestamp;
+	//Built on first use; a race only builds an equal string twice
+	private String description;
+
+	/**
+	 * Creates a decoded message.
+	 * @param gateId the ID of the gate the message came from
+	 * @param action the action that was attempted, or null for a free-form message
+	 * @param outcome the outcome of the attempt, or null
+	 * @param message the text of a free-form message, or null for a catalogue message
+	 * @param cause the fingerprint of the cause, or null
+	 * @param timestampNanos the time the message was encoded, in nanoseconds since the epoch
+	 */
+	DecodedLogMessage(int gateId, Action action, Outcome outcome, String message, CauseFingerprint cause,
+			long timestampNanos){
+		this(gateId, action, outcome, message, cause, timestampNanos, 0, 0, 0);
+	}
+
+	/**
+	 * Creates a decoded summary of repeated messages.
+	 * @param gateId the ID of the gate the message came from
+	 * @param action the action that was attempted, or null for a free-form message
+	 * @param outcome the outcome of the attempt, or null
+	 * @param message the text of a free-form message, or null for a catalogue message
+	 * @param cause the fingerprint of the cause, or null
+	 * @param timestampNanos the time the message was encoded, in nanoseconds since the epoch
+	 * @param repeatCount the number of messages collapsed into the summary, or 0 if it is
+	 *  not a summary
+	 * @param firstTimestamp the time of the first collapsed message
+	 * @param lastTimestamp the time of the last collapsed message
+	 */
+	DecodedLogMessage(int gateId, Action action, Outcome outcome, String message, CauseFingerprint cause,
+			long timestampNanos, long repeatCount, long firstTimestamp, long lastTimestamp){
+		super(gateId, action, outcome, cause, message);
+		this.timestampNanos = timestampNanos;
+		this.repeatCount = repeatCount;
+		this.firstTimestamp = firstTimestamp;
+		this.lastTimestamp = lastTimestamp;
+	}
+
+	/**
+	 * @return the text of the message, followed by the number of repeats for a summary
+	 */
+	@Override
+	public String getMessage(){
+		if(!isRepeated()){
+			return super.getMessage();
+		}
+		String text = description;
+		if(text == null){
+			text = RepeatedLogMessage.describe(super.getMessage(), repeatCount);
+			description = text;
+		}
+		return text;
+	}
+
+	/**
+	 * @return the fingerprint of the original cause, or null
+	 */
+	@Override
+	public CauseFingerprint getCause(){
+		return (CauseFingerprint) super.getCause();
+	}
+
+	/**
+	 * @return the time the message was encoded, in nanoseconds since the epoch
+	 */
+	public long getTimestampNanos(){
+		return timestampNanos;
+	}
+
+	/**
+	 * @return true if the message was a RepeatedLogMessage
+	 */
+	public boolean isRepeated(){
+		return repeatCount > 0;
+	}
+
+	/**
+	 * @return the text of the repeated message itself
+	 */
+	public String getRepeatedMessage(){
+		return super.getMessage();
+	}
+
+	/**
+	 * @return the number of messages collapsed into the summary, or 0 if it is not one
+	 */
+	public long getRepeatCount(){
+		return repeatCount;
+	}
+
+	/**
+	 * @return the time of the first collapsed message, in milliseconds since the epoch
+	 */
+	public long getFirstTimestamp(){
+		return firstTimestamp;
+	}
+
+	/**
+	 * @return the time of the last collapsed message, in milliseconds since the epoch
+	 */
+	public long getLastTimestamp(){
+		return lastTimestamp;
+	}
+}
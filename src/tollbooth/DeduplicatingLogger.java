@@ -0,0 +1,273 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * The DeduplicatingLogger decorates another SimpleLogger and stops a flapping gate
+ * from flooding it. Messages are keyed by gate and message: the gate ID, action and
+ * outcome of a catalogue message, or the gate ID and text of a free-form one. The first
+ * maxPerWindow messages of a key in a window are passed on at once; the rest of the
+ * window's messages for that key are only counted. When the window is over, a single
+ * RepeatedLogMessage with the count and the first and last times is passed on in
+ * their place, and the next message of the key starts a new window.
+ *
+ * Windows are kept in a LinkedHashMap in the order they started, bounded to maxKeys
+ * entries, so the memory used stays flat during a fault storm across many gates. When
+ * the table is full the oldest window is closed early to make room. Windows that are
+ * over are closed whenever messages are read, and flush() closes all of them. A
+ * message is looked up with a reusable key, so only a new window allocates one.
+ *
+ * The decorator is synchronized, so the logger it decorates need not be.
+ **/
+public class DeduplicatingLogger implements SimpleLogger {
+
+	/** The key table bound used by the three-argument constructor */
+	public static final int DEFAULT_MAX_KEYS = 1024;
+
+	/**
+	 * The messages of one key in the current window
+	 */
+	private static final class Window{
+		final LogMessage first;
+		final long start;
+		int passed;
+		long suppressed;
+		long firstSuppressed;
+		long lastSuppressed;
+
+		Window(LogMessage first, long start){
+			this.first = first;
+			this.start = start;
+		}
+	}
+
+	private final SimpleLogger delegate;
+	private final long windowMillis;
+	private final int maxPerWindow;
+	private final int maxKeys;
+	private final LinkedHashMap<Key, Window> windows;
+	private final Key probe;
+	private long suppressedCount;
+	private long evictionCount;
+
+	/**
+	 * Creates a deduplicating logger that passes on one message per key and window.
+	 * @param delegate the logger that receives the messages that are passed on
+	 * @param window the length of a window
+	 * @param unit the unit of the window
+	 */
+	public DeduplicatingLogger(SimpleLogger delegate, long window, TimeUnit unit){
+		this(delegate, window, unit, 1, DEFAULT_MAX_KEYS);
+	}
+
+	/**
+	 * Creates a deduplicating logger.
+	 * @param delegate the logger that receives the messages that are passed on
+	 * @param window the length of a window
+	 * @param unit the unit of the window
+	 * @param maxPerWindow the number of messages of a key passed on in a window before
+	 *  the rest are collapsed
+	 * @param maxKeys the largest number of keys tracked at once
+	 */
+	public DeduplicatingLogger(SimpleLogger delegate, long window, TimeUnit unit, int maxPerWindow,
+			int maxKeys){
+		if(window <= 0){
+			throw new IllegalArgumentException("window must be positive");
+		}
+		if(maxPerWindow < 1){
+			throw new IllegalArgumentException("maxPerWindow must be at least 1");
+		}
+		if(maxKeys < 1){
+			throw new IllegalArgumentException("maxKeys must be at least 1");
+		}
+		this.delegate = delegate;
+		windowMillis = Math.max(1, unit.toMillis(window));
+		this.maxPerWindow = maxPerWindow;
+		this.maxKeys = maxKeys;
+		probe = new Key();
+		windows = new LinkedHashMap<Key, Window>(16, 0.75f, false){
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Window> eldest){
+				if(size() > DeduplicatingLogger.this.maxKeys){
+					evictionCount++;
+					close(eldest.getValue());
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	@Override
+	public void accept(LogMessage message) {
+		accept(System.currentTimeMillis(), message);
+	}
+
+	/**
+	 * Accepts a message logged at the given time, for example to replay captured traffic.
+	 * @param timestamp the time of the message, in milliseconds since the epoch
+	 * @param message the message
+	 */
+	public synchronized void accept(long timestamp, LogMessage message){
+		final Key key = probe.set(message);
+		Window window = windows.get(key);
+		if(window != null && timestamp - window.start >= windowMillis){
+			windows.remove(key);
+			close(window);
+			window = null;
+		}
+		if(window == null){
+			window = new Window(message, timestamp);
+			windows.put(key.copy(), window);
+		}
+		if(window.passed < maxPerWindow){
+			window.passed++;
+			delegate.accept(message);
+			return;
+		}
+		if(window.suppressed == 0){
+			window.firstSuppressed = timestamp;
+		}
+		window.suppressed++;
+		window.lastSuppressed = timestamp;
+		suppressedCount++;
+	}
+
+	@Override
+	public synchronized LogMessage getNextMessage() {
+		closeExpiredWindows(System.currentTimeMillis());
+		return delegate.getNextMessage();
+	}
+
+	@Override
+	public synchronized int drainTo(Consumer<? super LogMessage> consumer, int maxMessages) {
+		closeExpiredWindows(System.currentTimeMillis());
+		return delegate.drainTo(consumer, maxMessages);
+	}
+
+	/**
+	 * Closes every window that is over at the given time, passing on the summaries of
+	 * the messages they collapsed.
+	 * @param now the time, in milliseconds since the epoch
+	 */
+	public synchronized void closeExpiredWindows(long now){
+		//Windows are in the order they started, so the expired ones come first
+		final Iterator<Window> iterator = windows.values().iterator();
+		while(iterator.hasNext()){
+			final Window window = iterator.next();
+			if(now - window.start < windowMillis){
+				return;
+			}
+			iterator.remove();
+			close(window);
+		}
+	}
+
+	/**
+	 * Closes every window, passing on the summaries of the messages they collapsed.
+	 */
+	public synchronized void flush(){
+		for(Window window : windows.values()){
+			close(window);
+		}
+		windows.clear();
+	}
+
+	/**
+	 * @return the logger that receives the messages that are passed on
+	 */
+	public SimpleLogger getDelegate(){
+		return delegate;
+	}
+
+	/**
+	 * @return the number of messages collapsed into summaries
+	 */
+	public synchronized long getSuppressedCount(){
+		return suppressedCount;
+	}
+
+	/**
+	 * @return the number of windows closed early to keep the key table bounded
+	 */
+	public synchronized long getEvictionCount(){
+		return evictionCount;
+	}
+
+	/**
+	 * @return the number of keys whose window is open
+	 */
+	public synchronized int getKeyCount(){
+		return windows.size();
+	}
+
+	private void close(Window window){
+		if(window.suppressed > 0){
+			delegate.accept(new RepeatedLogMessage(window.first, window.suppressed,
+					window.firstSuppressed, window.lastSuppressed));
+		}
+	}
+
+	/**
+	 * The gate ID, action and outcome of a catalogue message, or the gate ID and text of
+	 * a free-form one
+	 */
+	private static final class Key{
+		int gateId;
+		//The action and outcome codes, or -1 for a free-form message
+		int code;
+		String text;
+		int hash;
+
+		/**
+		 * Makes this the key of a message.
+		 * @return this key
+		 */
+		Key set(LogMessage message){
+			gateId = message.getGateId();
+			if(message.getAction() == null){
+				code = -1;
+				text = message.getMessage();
+			} else{
+				final int outcome = message.getOutcome() == null ? 0xFF : message.getOutcome().ordinal();
+				code = (message.getAction().ordinal() << 8) | outcome;
+				text = null;
+			}
+			hash = 31 * (31 * gateId + code) + (text == null ? 0 : text.hashCode());
+			return this;
+		}
+
+		Key copy(){
+			final Key copy = new Key();
+			copy.gateId = gateId;
+			copy.code = code;
+			copy.text = text;
+			copy.hash = hash;
+			return copy;
+		}
+
+		@Override
+		public boolean equals(Object other){
+			if(!(other instanceof Key)){
+				return false;
+			}
+			final Key that = (Key) other;
+			return hash == that.hash && gateId == that.gateId && code == that.code
+					&& (text == null ? that.text == null : text.equals(that.text));
+		}
+
+		@Override
+		public int hashCode(){
+			return hash;
+		}
+	}
+}
@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import tollbooth.TollGate.Action;
+
+/**
+ * The GateCommandCoalescer sits in front of a TollGate and collapses bursts of open and
+ * close requests into the last one. A request starts a window of the configured
+ * length; every request that arrives before the window closes replaces the pending
+ * one, and when the window closes only the final desired state is sent to the gate.
+ * An open, close, open, close burst therefore costs a single close, which the gate
+ * skips if it is already closed.
+ *
+ * The gate only sees the commands that are sent, so its counters and log messages
+ * record exactly the transitions that happened. The requests that were absorbed are
+ * counted here.
+ **/
+public class GateCommandCoalescer {
+
+	/**
+	 * The requests collected during one window
+	 */
+	private static final class Batch{
+		final CompletableFuture<Void> result = new CompletableFuture<Void>();
+		Action desired;
+
+		Batch(Action desired){
+			this.desired = desired;
+		}
+	}
+
+	private final TollGate gate;
+	private final long windowNanos;
+	private final LongAdder requests;
+	private final LongAdder coalesced;
+	private Batch pending;
+
+	/**
+	 * Creates a coalescer for a gate.
+	 * @param gate the gate that receives the coalesced commands
+	 * @param window how long requests are collected before the final one is sent. Zero
+	 *  sends each request at once, so nothing is coalesced.
+	 * @param unit the unit of the window
+	 */
+	public GateCommandCoalescer(TollGate gate, long window, TimeUnit unit){
+		if(window < 0){
+			throw new IllegalArgumentException("window must not be negative");
+		}
+		this.gate = gate;
+		windowNanos = unit.toNanos(window);
+		requests = new LongAdder();
+		coalesced = new LongAdder();
+	}
+
+	/**
+	 * Requests that the gate be open at the end of the current window.
+	 * @return a future that completes when the final command of the window has finished.
+	 *  Every request in a window shares it, so a request that was replaced completes
+	 *  with the outcome of the one that replaced it.
+	 */
+	public CompletableFuture<Void> open(){
+		return request(Action.OPEN);
+	}
+
+	/**
+	 * Requests that the gate be closed at the end of the current window.
+	 * @return a future that completes when the final command of the window has finished
+	 */
+	public CompletableFuture<Void> close(){
+		return request(Action.CLOSE);
+	}
+
+	/**
+	 * @return the gate that receives the coalesced commands
+	 */
+	public TollGate getGate(){
+		return gate;
+	}
+
+	/**
+	 * @return the number of open and close requests received
+	 */
+	public long getRequestCount(){
+		return requests.sum();
+	}
+
+	/**
+	 * @return the number of requests that were replaced by a later one and never sent
+	 */
+	public long getCoalescedCount(){
+		return coalesced.sum();
+	}
+
+	private CompletableFuture<Void> request(Action act){
+		requests.increment();
+		if(windowNanos == 0){
+			return send(act);
+		}
+		final Batch batch;
+		synchronized(this){
+			if(pending != null){
+				pending.desired = act;
+				coalesced.increment();
+				return pending.result;
+			}
+			batch = new Batch(act);
+			pending = batch;
+		}
+		try{
+			GateCommandQueue.defaultScheduler().schedule(this::flush, windowNanos, TimeUnit.NANOSECONDS);
+		} catch(RejectedExecutionException e){
+			flush();
+		}
+		return batch.result;
+	}
+
+	/**
+	 * Closes the window and sends its final request to the gate.
+	 */
+	private void flush(){
+		final Batch batch;
+		final Action desired;
+		synchronized(this){
+			batch = pending;
+			pending = null;
+			desired = batch.desired;
+		}
+		send(desired).whenComplete((value, error) -> {
+			if(error != null){
+				batch.result.completeExceptionally(error);
+			} else{
+				batch.result.complete(null);
+			}
+		});
+	}
+
+	private CompletableFuture<Void> send(Action act){
+		return act == Action.OPEN ? gate.openAsync() : gate.closeAsync();
+	}
+}
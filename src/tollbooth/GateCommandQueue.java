@@ -0,0 +1,207 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The GateCommandQueue runs the commands submitted for one TollGate strictly one at a
+ * time and in submission order, on threads borrowed from a shared Executor. Submitting
+ * a command never blocks: each command is chained behind the completion of the one
+ * submitted before it, so no lock is held and no thread waits for the gate.
+ **/
+public class GateCommandQueue {
+
+	/**
+	 * A unit of work that is run against a gate
+	 * @param <T> the type of the result
+	 */
+	public interface Command<T>{
+		/**
+		 * Run the command
+		 * @return the result of the command
+		 * @throws TollboothException
+		 */
+		T run() throws TollboothException;
+	}
+
+	/**
+	 * A unit of work that finishes some time after it returns, for example because it
+	 * waits for a scheduled retry. The queue does not start the next command until the
+	 * returned stage completes.
+	 * @param <T> the type of the result
+	 */
+	public interface AsyncCommand<T>{
+		/**
+		 * Start the command
+		 * @return a stage that completes when the command has finished
+		 */
+		CompletionStage<T> start();
+	}
+
+	private static final CompletableFuture<Void> IDLE = CompletableFuture.completedFuture(null);
+
+	private final Executor executor;
+	private final AtomicReference<CompletableFuture<?>> tail;
+	private final AtomicInteger pendingCount;
+
+	/**
+	 * Creates a command queue that runs its commands on the given executor.
+	 * @param executor the Executor that supplies the threads
+	 */
+	public GateCommandQueue(Executor executor){
+		if(executor == null){
+			throw new IllegalArgumentException("executor must not be null");
+		}
+		this.executor = executor;
+		tail = new AtomicReference<CompletableFuture<?>>(IDLE);
+		pendingCount = new AtomicInteger();
+	}
+
+	/**
+	 * Adds a command to the end of the queue.
+	 * @param command the command to run once every earlier command has finished
+	 * @return a future that completes with the result of the command, or exceptionally
+	 *  with the exception the command threw
+	 */
+	public <T> CompletableFuture<T> submit(Command<T> command){
+		final CompletableFuture<T> done = new CompletableFuture<T>();
+		return enqueue(() -> {
+			try{
+				done.complete(command.run());
+			} catch(Throwable e){
+				done.completeExceptionally(e);
+			}
+		}, done);
+	}
+
+	/**
+	 * Adds a command that finishes asynchronously to the end of the queue.
+	 * @param command the command to start once every earlier command has finished
+	 * @return a future that completes the same way as the stage the command returns
+	 */
+	public <T> CompletableFuture<T> submitAsync(AsyncCommand<T> command){
+		final CompletableFuture<T> done = new CompletableFuture<T>();
+		return enqueue(() -> {
+			try{
+				command.start().whenComplete((value, error) -> {
+					if(error != null){
+						done.completeExceptionally(error);
+					} else{
+						done.complete(value);
+					}
+				});
+			} catch(Throwable e){
+				done.completeExceptionally(e);
+			}
+		}, done);
+	}
+
+	/**
+	 * Chains a command behind the command submitted before it. The next command waits
+	 * for the pending count to be updated, not just for the command to finish, so a
+	 * submitter that sees a later command complete also sees this one counted as done.
+	 * The future handed back to the submitter is separate from the one the queue waits
+	 * on, so a submitter cannot complete or cancel a command that is still queued.
+	 * @param task runs the command and completes its future
+	 * @param done the future the command completes
+	 * @return the future for the submitter
+	 */
+	private <T> CompletableFuture<T> enqueue(Runnable task, CompletableFuture<T> done){
+		pendingCount.incrementAndGet();
+		final CompletableFuture<Void> settled = new CompletableFuture<Void>();
+		final CompletableFuture<T> result = new CompletableFuture<T>();
+		done.whenComplete((value, error) -> {
+			pendingCount.decrementAndGet();
+			settled.complete(null);
+			if(error != null){
+				result.completeExceptionally(error);
+			} else{
+				result.complete(value);
+			}
+		});
+		final CompletableFuture<?> previous = tail.getAndSet(settled);
+		previous.whenComplete((value, error) -> dispatch(task, done));
+		return result;
+	}
+
+	/**
+	 * Hands a command whose predecessor has finished to the executor.
+	 * @param task runs the command and completes its future
+	 * @param done the future to complete if the executor refuses the command
+	 */
+	private void dispatch(Runnable task, CompletableFuture<?> done){
+		try{
+			executor.execute(task);
+		} catch(RejectedExecutionException e){
+			//Complete the command so the commands queued behind it are not stranded
+			done.completeExceptionally(e);
+		}
+	}
+
+	/**
+	 * @return the number of commands that have been submitted but not yet finished
+	 */
+	public int getPendingCount(){
+		return pendingCount.get();
+	}
+
+	/**
+	 * Returns the Executor used by gates that are not given one. It is a cached pool of
+	 * daemon threads that is created the first time it is needed.
+	 * @return the shared default Executor
+	 */
+	public static Executor defaultExecutor(){
+		return DefaultExecutorHolder.EXECUTOR;
+	}
+
+	/**
+	 * Returns the shared scheduler that gates use to wait between retries. Its single
+	 * daemon thread only hands delayed work back to an executor; it never runs a
+	 * gate command itself.
+	 * @return the shared scheduler
+	 */
+	public static ScheduledExecutorService defaultScheduler(){
+		return DefaultSchedulerHolder.SCHEDULER;
+	}
+
+	/**
+	 * Holds the default executor so that it is only created when first used
+	 */
+	private static final class DefaultExecutorHolder{
+		static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+			final Thread thread = new Thread(runnable, "tollgate-command");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Holds the default scheduler so that it is only created when first used
+	 */
+	private static final class DefaultSchedulerHolder{
+		static final ScheduledExecutorService SCHEDULER = createScheduler();
+
+		private static ScheduledExecutorService createScheduler(){
+			final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+				final Thread thread = new Thread(runnable, "tollgate-retry-scheduler");
+				thread.setDaemon(true);
+				return thread;
+			});
+			scheduler.setRemoveOnCancelPolicy(true);
+			return scheduler;
+		}
+	}
+}
@@ -0,0 +1,356 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth;
+
+import java.util.Arrays;
+
+import tollbooth.LogCatalogue.Outcome;
+import tollbooth.TollGate.Action;
+
+/**
+ * The GateEventLog records every attempt a TollGate makes at an action, with its
+ * outcome and time, and derives the state of the gate from those events: whether it is
+ * open, whether it is unresponsive or will not respond to a reset, and its counters.
+ *
+ * Events are stored in primitive arrays, one long and one byte per event, and the
+ * derived state is snapshotted every snapshot interval events. The state at any event
+ * or point in time is rebuilt from the nearest earlier snapshot, so no query replays
+ * more than one interval of events. A log can also be filled offline with record() to
+ * replay traffic captured from a lane.
+ *
+ * The log assumes the gate starts closed, as a new or reset gate is. Events are kept
+ * until clear() is called; each takes 9 bytes plus 33 bytes per snapshot interval.
+ **/
+public class GateEventLog {
+
+	/** The snapshot interval used by the no-argument constructor */
+	public static final int DEFAULT_SNAPSHOT_INTERVAL = 1024;
+
+	private static final Action[] ACTIONS = Action.values();
+	private static final Outcome[] OUTCOMES = Outcome.values();
+
+	private final int snapshotInterval;
+	private long[] timestamps;
+	private byte[] events;
+	private int size;
+	private final Tally current;
+	private long[] snapshotCounters;
+	private byte[] snapshotFlags;
+
+	/**
+	 * Creates an empty log with the default snapshot interval.
+	 */
+	public GateEventLog(){
+		this(DEFAULT_SNAPSHOT_INTERVAL);
+	}
+
+	/**
+	 * Creates an empty log.
+	 * @param snapshotInterval the number of events between snapshots of the state
+	 */
+	public GateEventLog(int snapshotInterval){
+		if(snapshotInterval < 1){
+			throw new IllegalArgumentException("snapshotInterval must be at least 1");
+		}
+		this.snapshotInterval = snapshotInterval;
+		timestamps = new long[64];
+		events = new byte[64];
+		current = new Tally();
+		snapshotCounters = new long[Tally.COUNTERS * 4];
+		snapshotFlags = new byte[4];
+		//Snapshot 0 is the initial state
+		current.save(snapshotCounters, snapshotFlags, 0);
+	}
+
+	/**
+	 * Records the outcome of an attempt at the current time.
+	 * @param act the action that was attempted
+	 * @param outcome the outcome of the attempt
+	 */
+	public void record(Action act, Outcome outcome){
+		record(System.currentTimeMillis(), act, outcome);
+	}
+
+	/**
+	 * Records the outcome of an attempt. Timestamps are kept in order: one earlier than
+	 * the previous event, for example after the clock was set back, is recorded as the
+	 * time of the previous event.
+	 * @param timestamp the time of the attempt, in milliseconds since the epoch
+	 * @param act the action that was attempted
+	 * @param outcome the outcome of the attempt
+	 */
+	public synchronized void record(long timestamp, Action act, Outcome outcome){
+		if(size == events.length){
+			timestamps = Arrays.copyOf(timestamps, size * 2);
+			events = Arrays.copyOf(events, size * 2);
+		}
+		final byte event = encode(act, outcome);
+		timestamps[size] = size > 0 ? Math.max(timestamp, timestamps[size - 1]) : timestamp;
+		events[size] = event;
+		size++;
+		current.apply(event);
+		if(size % snapshotInterval == 0){
+			final int snapshot = size / snapshotInterval;
+			if(snapshot == snapshotFlags.length){
+				snapshotCounters = Arrays.copyOf(snapshotCounters, snapshotCounters.length * 2);
+				snapshotFlags = Arrays.copyOf(snapshotFlags, snapshotFlags.length * 2);
+			}
+			current.save(snapshotCounters, snapshotFlags, snapshot);
+		}
+	}
+
+	/**
+	 * Discards every recorded event. The current state becomes the starting state of
+	 * the log, so a gate that runs for a long time can bound the memory its log uses.
+	 */
+	public synchronized void clear(){
+		size = 0;
+		current.save(snapshotCounters, snapshotFlags, 0);
+	}
+
+	/**
+	 * @return the number of events recorded
+	 */
+	public synchronized int size(){
+		return size;
+	}
+
+	/**
+	 * @param index the index of an event
+	 * @return the time of the event, in milliseconds since the epoch
+	 */
+	public synchronized long getTimestamp(int index){
+		checkIndex(index);
+		return timestamps[index];
+	}
+
+	/**
+	 * @param index the index of an event
+	 * @return the action that was attempted
+	 */
+	public synchronized Action getAction(int index){
+		checkIndex(index);
+		return ACTIONS[events[index] / OUTCOMES.length];
+	}
+
+	/**
+	 * @param index the index of an event
+	 * @return the outcome of the attempt
+	 */
+	public synchronized Outcome getOutcome(int index){
+		checkIndex(index);
+		return OUTCOMES[events[index] % OUTCOMES.length];
+	}
+
+	/**
+	 * @return the state after every recorded event
+	 */
+	public synchronized State currentState(){
+		return current.toState(size);
+	}
+
+	/**
+	 * Rebuilds the state of the gate after a number of events.
+	 * @param eventCount the number of events, from 0 up to size()
+	 * @return the state after the first eventCount events
+	 */
+	public synchronized State stateAfter(int eventCount){
+		if(eventCount < 0 || eventCount > size){
+			throw new IndexOutOfBoundsException("eventCount " + eventCount + ", size " + size);
+		}
+		if(eventCount == size){
+			return current.toState(size);
+		}
+		final int snapshot = eventCount / snapshotInterval;
+		final Tally tally = new Tally();
+		tally.load(snapshotCounters, snapshotFlags, snapshot);
+		for(int i = snapshot * snapshotInterval; i < eventCount; i++){
+			tally.apply(events[i]);
+		}
+		return tally.toState(eventCount);
+	}
+
+	/**
+	 * Rebuilds the state of the gate at a point in time.
+	 * @param timestamp the time, in milliseconds since the epoch
+	 * @return the state after every event recorded at or before the time
+	 */
+	public synchronized State stateAt(long timestamp){
+		//Find the first event after the time
+		int low = 0;
+		int high = size;
+		while(low < high){
+			final int mid = (low + high) >>> 1;
+			if(timestamps[mid] <= timestamp){
+				low = mid + 1;
+			} else{
+				high = mid;
+			}
+		}
+		return stateAfter(low);
+	}
+
+	private void checkIndex(int index){
+		if(index < 0 || index >= size){
+			throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+		}
+	}
+
+	private static byte encode(Action act, Outcome outcome){
+		return (byte) (act.ordinal() * OUTCOMES.length + outcome.ordinal());
+	}
+
+	/**
+	 * The mutable state that events are applied to. It is kept in primitive fields so
+	 * that replaying an event is a few field updates.
+	 */
+	private static final class Tally{
+		static final int COUNTERS = 4;
+		static final int OPEN = 1;
+		static final int UNRESPONSIVE = 2;
+		static final int RESET_NOT_RESPONDING = 4;
+
+		long opens;
+		long closes;
+		long resets;
+		long malfunctions;
+		int flags;
+
+		/**
+		 * Applies the outcome of one attempt, the same way TollGate changes its state.
+		 */
+		void apply(byte event){
+			final int act = event / OUTCOMES.length;
+			final int outcome = event % OUTCOMES.length;
+			if(outcome == Outcome.SUCCESSFUL.ordinal()){
+				if(act == Action.OPEN.ordinal()){
+					opens++;
+					flags |= OPEN;
+				} else if(act == Action.CLOSE.ordinal()){
+					closes++;
+					flags &= ~OPEN;
+				} else{
+					resets++;
+					flags = 0;
+				}
+				return;
+			}
+			malfunctions++;
+			if(outcome == Outcome.UNRECOVERABLE_MALFUNCTION.ordinal()){
+				flags |= UNRESPONSIVE;
+				if(act == Action.RESET.ordinal()){
+					flags |= RESET_NOT_RESPONDING;
+				}
+			}
+		}
+
+		void save(long[] counters, byte[] flagArray, int snapshot){
+			final int base = snapshot * COUNTERS;
+			counters[base] = opens;
+			counters[base + 1] = closes;
+			counters[base + 2] = resets;
+			counters[base + 3] = malfunctions;
+			flagArray[snapshot] = (byte) flags;
+		}
+
+		void load(long[] counters, byte[] flagArray, int snapshot){
+			final int base = snapshot * COUNTERS;
+			opens = counters[base];
+			closes = counters[base + 1];
+			resets = counters[base + 2];
+			malfunctions = counters[base + 3];
+			flags = flagArray[snapshot];
+		}
+
+		State toState(int eventCount){
+			return new State(eventCount, (flags & OPEN) != 0, (flags & UNRESPONSIVE) != 0,
+					(flags & RESET_NOT_RESPONDING) != 0, opens, closes, resets, malfunctions);
+		}
+	}
+
+	/**
+	 * An immutable state of a gate, as rebuilt from its events
+	 */
+	public static final class State{
+		private final int eventCount;
+		private final boolean open;
+		private final boolean unresponsive;
+		private final boolean resetNotResponding;
+		private final long opens;
+		private final long closes;
+		private final long resets;
+		private final long malfunctions;
+
+		State(int eventCount, boolean open, boolean unresponsive, boolean resetNotResponding,
+				long opens, long closes, long resets, long malfunctions){
+			this.eventCount = eventCount;
+			this.open = open;
+			this.unresponsive = unresponsive;
+			this.resetNotResponding = resetNotResponding;
+			this.opens = opens;
+			this.closes = closes;
+			this.resets = resets;
+			this.malfunctions = malfunctions;
+		}
+
+		/**
+		 * @return the number of events the state was built from
+		 */
+		public int getEventCount(){
+			return eventCount;
+		}
+
+		/**
+		 * @return true if the last successful action left the gate open
+		 */
+		public boolean isOpen(){
+			return open;
+		}
+
+		/**
+		 * @return true if the gate was in unresponsive mode
+		 */
+		public boolean isUnresponsive(){
+			return unresponsive;
+		}
+
+		/**
+		 * @return true if the last reset was unrecoverable, so the next failed reset
+		 *  will not respond
+		 */
+		public boolean isResetNotResponding(){
+			return resetNotResponding;
+		}
+
+		/**
+		 * @return the number of successful opens
+		 */
+		public long getNumberOfOpens(){
+			return opens;
+		}
+
+		/**
+		 * @return the number of successful closes
+		 */
+		public long getNumberOfCloses(){
+			return closes;
+		}
+
+		/**
+		 * @return the number of successful resets
+		 */
+		public long getNumberOfResets(){
+			return resets;
+		}
+
+		/**
+		 * @return the number of failed attempts
+		 */
+		public long getNumberOfMalfunctions(){
+			return malfunctions;
+		}
+	}
+}
@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import tollbooth.TollGate.Action;
+
+/**
+ * The GateMetrics record, for each action of one TollGate, how many attempts were made,
+ * how many of them malfunctioned, how many times the action left the gate
+ * unrecoverable, and how long a sample of the controller calls took. Reading the clock
+ * costs more than the rest of the recording, so only one call in every sample interval
+ * is timed. Everything is recorded with striped counters and a LatencyHistogram, so
+ * recording never locks or allocates.
+ **/
+public class GateMetrics {
+
+	/** The sample interval used by the no-argument constructor */
+	public static final int DEFAULT_SAMPLE_INTERVAL = 64;
+
+	private final int sampleInterval;
+	private final LatencyHistogram[] latencies;
+	private final LongAdder[] attempts;
+	private final LongAdder[] malfunctions;
+	private final LongAdder[] unrecoverables;
+	private int untilSample;
+
+	/**
+	 * Creates metrics with nothing recorded that time one call in every
+	 * DEFAULT_SAMPLE_INTERVAL.
+	 */
+	public GateMetrics(){
+		this(DEFAULT_SAMPLE_INTERVAL);
+	}
+
+	/**
+	 * Creates metrics with nothing recorded.
+	 * @param sampleInterval time one controller call in every sampleInterval; 1 times
+	 *  every call
+	 */
+	public GateMetrics(int sampleInterval){
+		if(sampleInterval < 1){
+			throw new IllegalArgumentException("sampleInterval must be at least 1");
+		}
+		this.sampleInterval = sampleInterval;
+		untilSample = 1;
+		final int actions = Action.values().length;
+		latencies = new LatencyHistogram[actions];
+		attempts = new LongAdder[actions];
+		malfunctions = new LongAdder[actions];
+		unrecoverables = new LongAdder[actions];
+		for(int i = 0; i < actions; i++){
+			latencies[i] = new LatencyHistogram();
+			attempts[i] = new LongAdder();
+			malfunctions[i] = new LongAdder();
+			unrecoverables[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Decides whether the next controller call is timed. The countdown is a plain
+	 * field: calls that race on it can only change which of them is sampled.
+	 * @return true if the caller should time the call and pass it to recordLatency()
+	 */
+	public boolean sampleNext(){
+		if(--untilSample > 0){
+			return false;
+		}
+		untilSample = sampleInterval;
+		return true;
+	}
+
+	/**
+	 * Records one call to the controller.
+	 * @param act the action that was attempted
+	 * @param malfunctioned true if the call failed
+	 */
+	public void recordAttempt(Action act, boolean malfunctioned){
+		final int i = act.ordinal();
+		attempts[i].increment();
+		if(malfunctioned){
+			malfunctions[i].increment();
+		}
+	}
+
+	/**
+	 * Records how long a sampled call to the controller took.
+	 * @param act the action that was attempted
+	 * @param latencyNanos how long the controller call took
+	 */
+	public void recordLatency(Action act, long latencyNanos){
+		latencies[act.ordinal()].record(latencyNanos);
+	}
+
+	/**
+	 * Records that an action used up its attempts and left the gate unrecoverable.
+	 * @param act the action that was attempted
+	 */
+	public void recordUnrecoverable(Action act){
+		unrecoverables[act.ordinal()].increment();
+	}
+
+	/**
+	 * @return a copy of the metrics of every action
+	 */
+	public Snapshot snapshot(){
+		final Action[] actions = Action.values();
+		final ActionSnapshot[] result = new ActionSnapshot[actions.length];
+		for(Action act : actions){
+			final int i = act.ordinal();
+			final LatencyHistogram.Snapshot latency = latencies[i].snapshot();
+			result[i] = new ActionSnapshot(act, latency, attempts[i].sum(),
+					malfunctions[i].sum(), unrecoverables[i].sum());
+		}
+		return new Snapshot(result);
+	}
+
+	/**
+	 * An immutable copy of the metrics of every action of a gate
+	 */
+	public static final class Snapshot{
+		private final ActionSnapshot[] actions;
+
+		Snapshot(ActionSnapshot[] actions){
+			this.actions = actions;
+		}
+
+		/**
+		 * @param act an action
+		 * @return the metrics of the action
+		 */
+		public ActionSnapshot get(Action act){
+			return actions[act.ordinal()];
+		}
+	}
+
+	/**
+	 * An immutable copy of the metrics of one action
+	 */
+	public static final class ActionSnapshot{
+		private final Action action;
+		private final LatencyHistogram.Snapshot latency;
+		private final long attempts;
+		private final long malfunctions;
+		private final long unrecoverables;
+
+		ActionSnapshot(Action action, LatencyHistogram.Snapshot latency, long attempts,
+				long malfunctions, long unrecoverables){
+			this.action = action;
+			this.latency = latency;
+			this.attempts = attempts;
+			this.malfunctions = malfunctions;
+			this.unrecoverables = unrecoverables;
+		}
+
+		/**
+		 * @return the action these metrics describe
+		 */
+		public Action getAction(){
+			return action;
+		}
+
+		/**
+		 * @return the latency of the sampled controller calls made for the action
+		 */
+		public LatencyHistogram.Snapshot getLatency(){
+			return latency;
+		}
+
+		/**
+		 * @return the number of controller calls made for the action
+		 */
+		public long getAttempts(){
+			return attempts;
+		}
+
+		/**
+		 * @return the number of controller calls for the action that failed
+		 */
+		public long getMalfunctions(){
+			return malfunctions;
+		}
+
+		/**
+		 * @return the number of times the action left the gate unrecoverable
+		 */
+		public long getUnrecoverableTransitions(){
+			return unrecoverables;
+		}
+	}
+}
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The GateReconciler brings every gate of a TollPlaza to the state set with
+ * TollGate.setDesiredState(). On each pass it queues reconcileAsync() for every gate
+ * that has a desired state, which compares that state with the controller's isOpen()
+ * and opens or closes the gate if they differ, with the gate's usual retries.
+ *
+ * A gate is skipped while it still has commands queued, so a slow gate never has more
+ * than one reconciliation waiting, and while it is in unresponsive mode, so it does not
+ * log a refusal on every pass. A failure that the retries absorb is simply corrected
+ * on a later pass. Each pass reads the state of every reconciled gate; wrapping the
+ * controllers in a CachingGateController keeps those reads off the hardware.
+ **/
+public class GateReconciler {
+
+	private final TollPlaza plaza;
+	private final long intervalNanos;
+	private final LongAdder passes;
+	private final LongAdder commands;
+	private final LongAdder skippedUnresponsive;
+	private ScheduledFuture<?> schedule;
+
+	/**
+	 * Creates a reconciler for a plaza. It does nothing until it is started.
+	 * @param plaza the plaza whose gates are reconciled
+	 * @param interval the time between the end of one pass and the start of the next
+	 * @param unit the unit of the interval
+	 */
+	public GateReconciler(TollPlaza plaza, long interval, TimeUnit unit){
+		if(interval <= 0){
+			throw new IllegalArgumentException("interval must be positive");
+		}
+		this.plaza = plaza;
+		intervalNanos = unit.toNanos(interval);
+		passes = new LongAdder();
+		commands = new LongAdder();
+		skippedUnresponsive = new LongAdder();
+	}
+
+	/**
+	 * Starts running passes on the shared scheduler. A pass only queues commands, so it
+	 * never holds the scheduler thread while the hardware works.
+	 */
+	public synchronized void start(){
+		if(schedule == null){
+			schedule = GateCommandQueue.defaultScheduler().scheduleWithFixedDelay(this::reconcile,
+					intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/**
+	 * Stops running passes. Commands already queued still run.
+	 */
+	public synchronized void stop(){
+		if(schedule != null){
+			schedule.cancel(false);
+			schedule = null;
+		}
+	}
+
+	/**
+	 * Runs one pass over every gate of the plaza.
+	 */
+	public void reconcile(){
+		passes.increment();
+		for(TollGate gate : plaza.getLanes()){
+			if(gate.getDesiredState() == null || gate.getPendingCommandCount() > 0){
+				continue;
+			}
+			if(gate.getUnresponsiveMode()){
+				skippedUnresponsive.increment();
+				continue;
+			}
+			commands.increment();
+			gate.reconcileAsync();
+		}
+	}
+
+	/**
+	 * @return the number of passes run
+	 */
+	public long getPassCount(){
+		return passes.sum();
+	}
+
+	/**
+	 * @return the number of reconciliation commands queued
+	 */
+	public long getCommandCount(){
+		return commands.sum();
+	}
+
+	/**
+	 * @return the number of times a gate was skipped because it was unresponsive
+	 */
+	public long getSkippedUnresponsiveCount(){
+		return skippedUnresponsive.sum();
+	}
+}
@@ -0,0 +1,416 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+import tollbooth.LogCatalogue.Outcome;
+import tollbooth.TollGate.Action;
+
+/**
+ * The IndexedLogStore decorates another SimpleLogger and keeps a copy of every message
+ * it accepts that can be queried any number of times. Reading the decorated logger
+ * with getNextMessage() or drainTo() does not remove anything from the store.
+ *
+ * Messages are kept in time buckets of a fixed length, in their LogCodec encoding. Each
+ * bucket indexes its messages by gate, by action and by outcome, so query() and
+ * count() visit only the buckets in the time range and, in each of them, only the
+ * messages listed under the most selective condition of the query.
+ *
+ * The memory budget is charged with the arrays of every bucket at their allocated
+ * capacity, the index lists likewise, BYTES_PER_BUCKET for the fixed part of a bucket
+ * and the estimated size of the texts, causes and summaries interned by the codec.
+ * Buckets start small and double as they fill. Before a message is indexed, the most it
+ * can add is worked out; if that would exceed the budget, the oldest buckets are
+ * evicted, releasing their texts and causes. A message whose bucket is the oldest left
+ * is not indexed, rather than evicting newer buckets to make room for it.
+ *
+ * The decorator is synchronized, so the logger it decorates need not be.
+ **/
+public class IndexedLogStore implements SimpleLogger {
+
+	/** The bucket length used by the two-argument constructor */
+	public static final long DEFAULT_BUCKET_MILLIS = TimeUnit.MINUTES.toMillis(1);
+	/** The estimated fixed size of a bucket, its index tables and its entry in the store */
+	public static final int BYTES_PER_BUCKET = 640;
+
+	//The estimated size of a gate's entry in the index of a bucket, without its list
+	private static final int BYTES_PER_GATE = 48;
+
+	private static final int ACTION_CODES = Action.values().length + 1;
+	private static final int OUTCOME_CODES = Outcome.values().length + 1;
+
+	private final SimpleLogger delegate;
+	private final LogCodec codec;
+	private final long bucketMillis;
+	private final long maxBytes;
+	private final TreeMap<Long, Bucket> buckets;
+	private long bytes;
+	private long size;
+	private long evictedMessageCount;
+	private long unindexedCount;
+
+	/**
+	 * Creates a store with one-minute buckets.
+	 * @param delegate the logger that also receives every message
+	 * @param maxBytes the memory budget
+	 */
+	public IndexedLogStore(SimpleLogger delegate, long maxBytes){
+		this(delegate, DEFAULT_BUCKET_MILLIS, TimeUnit.MILLISECONDS, maxBytes);
+	}
+
+	/**
+	 * Creates a store.
+	 * @param delegate the logger that also receives every message
+	 * @param bucket the length of a time bucket, which is also the unit of eviction
+	 * @param unit the unit of the bucket length
+	 * @param maxBytes the memory budget
+	 */
+	public IndexedLogStore(SimpleLogger delegate, long bucket, TimeUnit unit, long maxBytes){
+		if(unit.toMillis(bucket) < 1){
+			throw new IllegalArgumentException("bucket must be at least a millisecond");
+		}
+		if(maxBytes < new Bucket(0).bytes + Bucket.MAX_FIRST_GROWTH){
+			throw new IllegalArgumentException("maxBytes must hold at least one message");
+		}
+		this.delegate = delegate;
+		codec = new LogCodec();
+		bucketMillis = unit.toMillis(bucket);
+		this.maxBytes = maxBytes;
+		buckets = new TreeMap<Long, Bucket>();
+	}
+
+	@Override
+	public void accept(LogMessage message) {
+		accept(System.currentTimeMillis(), message);
+	}
+
+	/**
+	 * Accepts a message logged at the given time, for example to load captured traffic.
+	 * @param timestamp the time of the message, in milliseconds since the epoch
+	 * @param message the message
+	 */
+	public synchronized void accept(long timestamp, LogMessage message){
+		index(timestamp, message);
+		delegate.accept(message);
+	}
+
+	@Override
+	public synchronized LogMessage getNextMessage() {
+		return delegate.getNextMessage();
+	}
+
+	@Override
+	public synchronized int drainTo(Consumer<? super LogMessage> consumer, int maxMessages) {
+		return delegate.drainTo(consumer, maxMessages);
+	}
+
+	/**
+	 * Finds the messages selected by a query without removing them.
+	 * @param query the conditions
+	 * @return the messages, oldest bucket first and in the order they were accepted
+	 *  within a bucket. Each carries the time it was accepted.
+	 */
+	public synchronized List<DecodedLogMessage> query(LogQuery query){
+		final List<DecodedLogMessage> found = new ArrayList<DecodedLogMessage>();
+		select(query, (bucket, i) -> found.add(codec.decode(bucket.timestamps[i] * 1_000_000L,
+				bucket.headers[i], bucket.causeIds[i])));
+		return found;
+	}
+
+	/**
+	 * Counts the messages selected by a query without decoding them.
+	 * @param query the conditions
+	 * @return the number of messages selected
+	 */
+	public synchronized int count(LogQuery query){
+		final int[] count = new int[1];
+		select(query, (bucket, i) -> count[0]++);
+		return count[0];
+	}
+
+	/**
+	 * @return the logger that also receives every message
+	 */
+	public SimpleLogger getDelegate(){
+		return delegate;
+	}
+
+	/**
+	 * @return the number of messages indexed
+	 */
+	public synchronized long size(){
+		return size;
+	}
+
+	/**
+	 * @return the number of time buckets kept
+	 */
+	public synchronized int getBucketCount(){
+		return buckets.size();
+	}
+
+	/**
+	 * @return the memory charged against the budget
+	 */
+	public synchronized long getEstimatedBytes(){
+		return bytes + codec.getEstimatedBytes();
+	}
+
+	/**
+	 * @return the memory budget
+	 */
+	public long getMaxBytes(){
+		return maxBytes;
+	}
+
+	/**
+	 * @return the number of messages removed by evicting their bucket
+	 */
+	public synchronized long getEvictedMessageCount(){
+		return evictedMessageCount;
+	}
+
+	/**
+	 * @return the number of messages passed on but not indexed, because they were older
+	 *  than every bucket that could be evicted to make room
+	 */
+	public synchronized long getUnindexedCount(){
+		return unindexedCount;
+	}
+
+	private void index(long timestamp, LogMessage message){
+		final long start = Math.floorDiv(timestamp, bucketMillis) * bucketMillis;
+		final Bucket existing = buckets.get(start);
+		final Bucket bucket = existing != null ? existing : new Bucket(start);
+		final Action action = message.getAction();
+		final long cost = (existing == null ? bucket.bytes : 0)
+				+ bucket.growth(message.getGateId(), action, action == null ? null : message.getOutcome())
+				+ LogCodec.estimateBytes(message);
+		while(bytes + codec.getEstimatedBytes() + cost > maxBytes){
+			final Map.Entry<Long, Bucket> oldest = buckets.firstEntry();
+			if(oldest == null || oldest.getKey() >= start){
+				unindexedCount++;
+				return;
+			}
+			buckets.pollFirstEntry();
+			oldest.getValue().release(codec);
+			bytes -= oldest.getValue().bytes;
+			size -= oldest.getValue().size;
+			evictedMessageCount += oldest.getValue().size;
+		}
+		if(existing == null){
+			buckets.put(start, bucket);
+			bytes += bucket.bytes;
+		}
+		bytes += bucket.add(timestamp, codec.encodeHeader(message), codec.encodeCause(message.getCause()));
+		size++;
+	}
+
+	/**
+	 * Visits every message selected by a query.
+	 */
+	private void select(LogQuery query, ObjIntConsumer<Bucket> visitor){
+		final long from = query.getFrom();
+		final long to = query.getTo();
+		if(to <= from){
+			return;
+		}
+		//The bucket holding from; an open range starts before every bucket
+		final long firstBucket = from < Long.MIN_VALUE + bucketMillis ? Long.MIN_VALUE
+				: Math.floorDiv(from, bucketMillis) * bucketMillis;
+		for(Bucket bucket : buckets.subMap(firstBucket, true, to, false).values()){
+			final boolean wholeBucket = bucket.start >= from && bucket.start <= to - bucketMillis;
+			final IntList candidates = bucket.candidates(query);
+			if(candidates == null){
+				continue;
+			}
+			final int count = candidates == Bucket.EVERY ? bucket.size : candidates.size;
+			for(int c = 0; c < count; c++){
+				final int i = candidates == Bucket.EVERY ? c : candidates.values[c];
+				final long header = bucket.headers[i];
+				if(query.hasGateId() && LogCodec.gateIdOf(header) != query.getGateId()){
+					continue;
+				}
+				if(query.getAction() != null && LogCodec.actionOf(header) != query.getAction()){
+					continue;
+				}
+				if(query.getOutcome() != null && LogCodec.outcomeOf(header) != query.getOutcome()){
+					continue;
+				}
+				if(!wholeBucket && (bucket.timestamps[i] < from || bucket.timestamps[i] >= to)){
+					continue;
+				}
+				visitor.accept(bucket, i);
+			}
+		}
+	}
+
+	/**
+	 * @return the estimated size of an array
+	 */
+	private static long arrayBytes(int length, int elementBytes){
+		return (16 + (long) length * elementBytes + 7) & ~7L;
+	}
+
+	/**
+	 * A growable list of message indexes
+	 */
+	private static final class IntList{
+		static final int INITIAL_CAPACITY = 4;
+		//The estimated size of a new list
+		static final long BYTES = 24 + arrayBytes(INITIAL_CAPACITY, 4);
+
+		int[] values = new int[INITIAL_CAPACITY];
+		int size;
+
+		/**
+		 * @return the bytes that adding a value to a list allocates, where a null list
+		 *  is created first
+		 */
+		static long growth(IntList list){
+			if(list == null){
+				return BYTES;
+			}
+			return list.size == list.values.length
+					? arrayBytes(list.size * 2, 4) - arrayBytes(list.size, 4) : 0;
+		}
+
+		void add(int value){
+			if(size == values.length){
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+	}
+
+	/**
+	 * The messages accepted in one time bucket and their indexes
+	 */
+	private static final class Bucket{
+		//Marks a query with no indexed condition, which visits every message
+		static final IntList EVERY = new IntList();
+
+		static final int INITIAL_CAPACITY = 8;
+		//The most the first message can add: a gate entry and three new lists
+		static final long MAX_FIRST_GROWTH = BYTES_PER_GATE + 3 * IntList.BYTES;
+
+		final long start;
+		long[] timestamps = new long[INITIAL_CAPACITY];
+		long[] headers = new long[INITIAL_CAPACITY];
+		int[] causeIds = new int[INITIAL_CAPACITY];
+		int size;
+		final Map<Integer, IntList> byGate = new HashMap<Integer, IntList>();
+		final IntList[] byAction = new IntList[ACTION_CODES];
+		final IntList[] byOutcome = new IntList[OUTCOME_CODES];
+		//The estimated size of the bucket, its arrays and its index lists
+		long bytes = BYTES_PER_BUCKET + messageBytes(INITIAL_CAPACITY);
+
+		Bucket(long start){
+			this.start = start;
+		}
+
+		/**
+		 * @return the estimated size of the message arrays at a capacity
+		 */
+		static long messageBytes(int capacity){
+			return 2 * arrayBytes(capacity, 8) + arrayBytes(capacity, 4);
+		}
+
+		/**
+		 * @return the bytes adding a message with these fields allocates
+		 */
+		long growth(int gateId, Action action, Outcome outcome){
+			long growth = size == headers.length ? messageBytes(size * 2) - messageBytes(size) : 0;
+			final IntList gate = byGate.get(gateId);
+			growth += gate == null ? BYTES_PER_GATE + IntList.BYTES : IntList.growth(gate);
+			growth += IntList.growth(byAction[actionCode(action)]);
+			growth += IntList.growth(byOutcome[outcomeCode(outcome)]);
+			return growth;
+		}
+
+		/**
+		 * @return the bytes the message allocated
+		 */
+		long add(long timestamp, long header, int causeId){
+			final long growth = growth(LogCodec.gateIdOf(header), LogCodec.actionOf(header),
+					LogCodec.outcomeOf(header));
+			bytes += growth;
+			if(size == headers.length){
+				timestamps = Arrays.copyOf(timestamps, size * 2);
+				headers = Arrays.copyOf(headers, size * 2);
+				causeIds = Arrays.copyOf(causeIds, size * 2);
+			}
+			final int i = size++;
+			timestamps[i] = timestamp;
+			headers[i] = header;
+			causeIds[i] = causeId;
+			byGate.computeIfAbsent(LogCodec.gateIdOf(header), gate -> new IntList()).add(i);
+			final int action = actionCode(LogCodec.actionOf(header));
+			if(byAction[action] == null){
+				byAction[action] = new IntList();
+			}
+			byAction[action].add(i);
+			final int outcome = outcomeCode(LogCodec.outcomeOf(header));
+			if(byOutcome[outcome] == null){
+				byOutcome[outcome] = new IntList();
+			}
+			byOutcome[outcome].add(i);
+			return growth;
+		}
+
+		/**
+		 * Drops the texts, summaries and causes of an evicted bucket.
+		 */
+		void release(LogCodec codec){
+			for(int i = 0; i < size; i++){
+				codec.release(headers[i], causeIds[i]);
+			}
+		}
+
+		/**
+		 * Picks the shortest index list among the conditions of a query.
+		 * @return the list, EVERY if the query has no indexed condition, or null if a
+		 *  condition matches nothing in the bucket
+		 */
+		IntList candidates(LogQuery query){
+			IntList best = EVERY;
+			if(query.hasGateId()){
+				best = shorter(best, byGate.get(query.getGateId()));
+			}
+			if(best != null && query.getAction() != null){
+				best = shorter(best, byAction[actionCode(query.getAction())]);
+			}
+			if(best != null && query.getOutcome() != null){
+				best = shorter(best, byOutcome[outcomeCode(query.getOutcome())]);
+			}
+			return best;
+		}
+
+		private static IntList shorter(IntList best, IntList list){
+			if(list == null){
+				return null;
+			}
+			return best == EVERY || list.size < best.size ? list : best;
+		}
+
+		private static int actionCode(Action action){
+			return action == null ? 0 : action.ordinal() + 1;
+		}
+
+		private static int outcomeCode(Outcome outcome){
+			return outcome == null ? 0 : outcome.ordinal() + 1;
+		}
+	}
+}
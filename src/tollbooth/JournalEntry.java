@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth;
+
+import tollbooth.LogCatalogue.Outcome;
+import tollbooth.TollGate.Action;
+
+/**
+ * A JournalEntry is a LogMessage read back from a JournalLogger. The journal does not
+ * store the cause itself, only a digest of it, so an entry has no cause but reports
+ * the digest and the time the message was journaled.
+ **/
+public class JournalEntry extends LogMessage {
+
+	private final long timestamp;
+	private final int causeDigest;
+
+	/**
+	 * Creates an entry for a free-form message.
+	 * @param gateId the ID of the gate the message came from, or TollGate.NO_GATE_ID
+	 * @param message the text of the message
+	 * @param timestamp the time the message was journaled, in milliseconds since the epoch
+	 * @param causeDigest the digest of the cause, or 0 if the message had no cause
+	 */
+	JournalEntry(int gateId, String message, long timestamp, int causeDigest){
+		super(gateId, null, null, null, message);
+		this.timestamp = timestamp;
+		this.causeDigest = causeDigest;
+	}
+
+	/**
+	 * Creates an entry for a message from the LogCatalogue.
+	 * @param gateId the ID of the gate the message came from
+	 * @param action the action that was attempted
+	 * @param outcome the outcome of the attempt
+	 * @param message the text journaled with the message, such as the repeat count of a
+	 *  RepeatedLogMessage, or null to look it up in the LogCatalogue
+	 * @param timestamp the time the message was journaled, in milliseconds since the epoch
+	 * @param causeDigest the digest of the cause, or 0 if the message had no cause
+	 */
+	JournalEntry(int gateId, Action action, Outcome outcome, String message, long timestamp,
+			int causeDigest){
+		super(gateId, action, outcome, null, message);
+		this.timestamp = timestamp;
+		this.causeDigest = causeDigest;
+	}
+
+	/**
+	 * @return the time the message was journaled, in milliseconds since the epoch
+	 */
+	public long getTimestamp(){
+		return timestamp;
+	}
+
+	/**
+	 * @return true if the journaled message had a cause
+	 */
+	public boolean hadCause(){
+		return causeDigest != 0;
+	}
+
+	/**
+	 * @return the digest of the cause, equal for causes of the same class with the same
+	 *  message, or 0 if the message had no cause
+	 */
+	public int getCauseDigest(){
+		return causeDigest;
+	}
+
+	/**
+	 * Computes the digest the journal stores for a cause.
+	 * @param cause the cause, or null
+	 * @return a non-zero digest of the class and message of the cause, or 0 for null.
+	 *  A CauseFingerprint has the digest of the cause it was taken from.
+	 */
+	public static int digestOf(Throwable cause){
+		if(cause == null){
+			return 0;
+		}
+		if(cause instanceof CauseFingerprint){
+			return ((CauseFingerprint) cause).getDigest();
+		}
+		final String message = cause.getMessage();
+		final int digest = 31 * cause.getClass().getName().hashCode()
+				+ (message == null ? 0 : message.hashCode());
+		return digest == 0 ? 1 : digest;
+	}
+}
@@ -0,0 +1,431 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+import tollbooth.LogCatalogue.Outcome;
+import tollbooth.TollGate.Action;
+
+/**
+ * The JournalLogger is an implementation of the SimpleLogger interface that keeps its
+ * queue on disk, so the malfunction history of a lane survives a restart of the JVM.
+ *
+ * Messages are appended as compact binary records to memory-mapped segment files of a
+ * fixed size; when a segment is full the journal rolls over to a new one. A record is
+ * encoded straight into the mapped segment and nothing is forced to disk per message;
+ * call flush() to do that. Each record carries a checksum and its length is written
+ * last, so after a crash the journal resumes after the last complete record.
+ *
+ * getNextMessage() reads through a cursor that is itself kept in a mapped file, and
+ * segments are deleted once they have been read. Messages are returned as JournalEntry
+ * objects, which carry a digest of the cause instead of the cause itself.
+ *
+ * Record layout, after a 4 byte body length and a 4 byte checksum of the body:
+ * timestamp (8), gate ID (4), action (1), outcome (1), cause digest (4), text length (2)
+ * and the UTF-16 text of free-form messages. Catalogue messages store no text, except
+ * a RepeatedLogMessage, which stores its full text with the repeat count.
+ **/
+public class JournalLogger implements SimpleLogger, Closeable {
+
+	/** The segment size used by the single-argument constructor */
+	public static final int DEFAULT_SEGMENT_SIZE = 16 << 20;
+	/** The smallest segment that still holds the largest possible record */
+	public static final int MIN_SEGMENT_SIZE = 128 << 10;
+
+	private static final String SEGMENT_PREFIX = "journal-";
+	private static final String SEGMENT_SUFFIX = ".seg";
+	private static final String CURSOR_FILE = "journal.cursor";
+
+	private static final int CHECKSUM_OFFSET = 4;
+	private static final int BODY_OFFSET = 8;
+	private static final int TIMESTAMP = 0;
+	private static final int GATE_ID = 8;
+	private static final int ACTION = 12;
+	private static final int OUTCOME = 13;
+	private static final int CAUSE_DIGEST = 14;
+	private static final int TEXT_LENGTH = 18;
+	private static final int TEXT = 20;
+	private static final int FIXED_BODY_LENGTH = TEXT;
+	private static final int MAX_TEXT_LENGTH = Short.MAX_VALUE;
+
+	private static final Action[] ACTIONS = Action.values();
+	private static final Outcome[] OUTCOMES = Outcome.values();
+
+	private final Path directory;
+	private final int segmentSize;
+	private final int maxSegments;
+	private final MappedByteBuffer cursor;
+	private long firstSegment;
+	private long writeSegment;
+	private MappedByteBuffer writeBuffer;
+	private int writePosition;
+	private long readSegment;
+	private MappedByteBuffer readBuffer;
+	private int readPosition;
+	private long droppedSegments;
+	private boolean closed;
+
+	/**
+	 * Opens the journal in a directory, or creates it, with the default segment size and
+	 * no limit on the number of segments.
+	 * @param directory the directory that holds the segment and cursor files
+	 * @throws IOException
+	 */
+	public JournalLogger(Path directory) throws IOException {
+		this(directory, DEFAULT_SEGMENT_SIZE, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Opens the journal in a directory, or creates it.
+	 * @param directory the directory that holds the segment and cursor files
+	 * @param segmentSize the size of each segment file in bytes. Segments left by a
+	 *  previous run may be smaller, and are grown to it, but not larger.
+	 * @param maxSegments the largest number of segment files kept. When a roll-over would
+	 *  exceed it, the oldest segment is deleted even if it has not been read.
+	 * @throws IOException if the journal could not be opened, or a segment is larger
+	 *  than segmentSize
+	 */
+	public JournalLogger(Path directory, int segmentSize, int maxSegments) throws IOException {
+		if(segmentSize < MIN_SEGMENT_SIZE){
+			throw new IllegalArgumentException("segmentSize must be at least " + MIN_SEGMENT_SIZE);
+		}
+		if(maxSegments < 2){
+			throw new IllegalArgumentException("maxSegments must be at least 2");
+		}
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.maxSegments = maxSegments;
+		Files.createDirectories(directory);
+
+		//Find the segments left by a previous run
+		long lowest = Long.MAX_VALUE;
+		long highest = -1;
+		try(DirectoryStream<Path> segments = Files.newDirectoryStream(directory,
+				SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)){
+			for(Path segment : segments){
+				final long index = segmentIndex(segment);
+				if(index >= 0){
+					lowest = Math.min(lowest, index);
+					highest = Math.max(highest, index);
+				}
+			}
+		}
+		if(highest < 0){
+			firstSegment = 0;
+			writeSegment = 0;
+			writeBuffer = map(0);
+			writePosition = 0;
+		} else{
+			firstSegment = lowest;
+			writeSegment = highest;
+			writeBuffer = map(highest);
+			writePosition = recover(writeBuffer);
+		}
+
+		cursor = mapCursor();
+		readSegment = cursor.getLong(0);
+		readPosition = cursor.getInt(8);
+		if(readSegment < firstSegment){
+			readSegment = firstSegment;
+			readPosition = 0;
+		}
+		if(readSegment > writeSegment
+				|| (readSegment == writeSegment && readPosition > writePosition)){
+			readSegment = writeSegment;
+			readPosition = writePosition;
+		}
+		readBuffer = readSegment == writeSegment ? writeBuffer : map(readSegment);
+		saveCursor();
+	}
+
+	@Override
+	public synchronized void accept(LogMessage message) {
+		checkOpen();
+		final Action action = message.getAction();
+		final boolean hasText = action == null || message instanceof RepeatedLogMessage;
+		final String text = !hasText || message.getMessage() == null ? "" : message.getMessage();
+		final int textLength = Math.min(text.length(), MAX_TEXT_LENGTH);
+		final int bodyLength = FIXED_BODY_LENGTH + 2 * textLength;
+		//Keep room for the zero length that marks the end of the segment
+		if(writePosition + BODY_OFFSET + bodyLength + 4 > segmentSize){
+			roll();
+		}
+		final MappedByteBuffer buffer = writeBuffer;
+		final int body = writePosition + BODY_OFFSET;
+		buffer.putLong(body + TIMESTAMP, System.currentTimeMillis());
+		buffer.putInt(body + GATE_ID, message.getGateId());
+		buffer.put(body + ACTION, (byte) (action == null ? 0 : action.ordinal() + 1));
+		buffer.put(body + OUTCOME,
+				(byte) (message.getOutcome() == null ? 0 : message.getOutcome().ordinal() + 1));
+		buffer.putInt(body + CAUSE_DIGEST, JournalEntry.digestOf(message.getCause()));
+		buffer.putShort(body + TEXT_LENGTH, (short) textLength);
+		for(int i = 0; i < textLength; i++){
+			buffer.putChar(body + TEXT + 2 * i, text.charAt(i));
+		}
+		buffer.putInt(writePosition + CHECKSUM_OFFSET, checksum(buffer, body, bodyLength));
+		//Writing the length last commits the record
+		buffer.putInt(writePosition, bodyLength);
+		writePosition += BODY_OFFSET + bodyLength;
+	}
+
+	@Override
+	public synchronized LogMessage getNextMessage() {
+		checkOpen();
+		final JournalEntry entry = read();
+		if(entry != null){
+			saveCursor();
+		}
+		return entry;
+	}
+
+	/**
+	 * Reads the batch under one lock and moves the persistent cursor once, after the
+	 * last message is handed over.
+	 */
+	@Override
+	public synchronized int drainTo(Consumer<? super LogMessage> consumer, int maxMessages) {
+		if(maxMessages < 0){
+			throw new IllegalArgumentException("maxMessages must not be negative");
+		}
+		checkOpen();
+		int count = 0;
+		try{
+			JournalEntry entry;
+			while(count < maxMessages && (entry = read()) != null){
+				count++;
+				consumer.accept(entry);
+			}
+		} finally{
+			saveCursor();
+		}
+		return count;
+	}
+
+	/**
+	 * Decodes the record at the cursor and moves the cursor past it, without saving
+	 * the cursor.
+	 * @return the entry, or null if every record has been read
+	 */
+	private JournalEntry read(){
+		while(true){
+			final int bodyLength = readPosition + 4 > segmentSize ? 0 : readBuffer.getInt(readPosition);
+			if(!isValid(readBuffer, readPosition, bodyLength)){
+				if(readSegment < writeSegment){
+					advanceReadSegment();
+					continue;
+				}
+				return null;
+			}
+			final JournalEntry entry = decode(readBuffer, readPosition + BODY_OFFSET);
+			readPosition += BODY_OFFSET + bodyLength;
+			return entry;
+		}
+	}
+
+	private void checkOpen(){
+		if(closed){
+			throw new IllegalStateException("The journal is closed");
+		}
+	}
+
+	/**
+	 * Forces the segment being written and the read cursor to disk.
+	 */
+	public synchronized void flush(){
+		writeBuffer.force();
+		cursor.force();
+	}
+
+	/**
+	 * Flushes the journal and stops accepting messages. The mapped files are released
+	 * when their buffers are garbage collected.
+	 */
+	@Override
+	public synchronized void close(){
+		if(!closed){
+			flush();
+			closed = true;
+		}
+	}
+
+	/**
+	 * @return the number of segment files the journal currently has on disk
+	 */
+	public synchronized int getSegmentCount(){
+		return (int) (writeSegment - firstSegment + 1);
+	}
+
+	/**
+	 * @return the number of unread segments that were deleted to stay within maxSegments
+	 */
+	public synchronized long getDroppedSegmentCount(){
+		return droppedSegments;
+	}
+
+	/**
+	 * Starts a new segment, deleting the oldest ones if there are too many.
+	 */
+	private void roll(){
+		try{
+			writeSegment++;
+			writeBuffer = map(writeSegment);
+			writePosition = 0;
+			while(writeSegment - firstSegment + 1 > maxSegments){
+				if(readSegment == firstSegment){
+					droppedSegments++;
+					advanceReadSegment();
+				} else{
+					Files.deleteIfExists(segmentPath(firstSegment));
+					firstSegment++;
+				}
+			}
+		} catch(IOException e){
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Moves the cursor to the start of the next segment and deletes the one it left.
+	 */
+	private void advanceReadSegment(){
+		try{
+			final long finished = readSegment;
+			readSegment++;
+			readPosition = 0;
+			readBuffer = readSegment == writeSegment ? writeBuffer : map(readSegment);
+			saveCursor();
+			if(finished == firstSegment){
+				Files.deleteIfExists(segmentPath(finished));
+				firstSegment++;
+			}
+		} catch(IOException e){
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void saveCursor(){
+		cursor.putLong(0, readSegment);
+		cursor.putInt(8, readPosition);
+	}
+
+	/**
+	 * Finds the end of the last complete record in a segment and clears whatever a
+	 * crash may have left after it.
+	 * @return the position after the last complete record
+	 */
+	private int recover(MappedByteBuffer buffer){
+		int position = 0;
+		while(position + 4 <= segmentSize){
+			final int bodyLength = buffer.getInt(position);
+			if(!isValid(buffer, position, bodyLength)){
+				break;
+			}
+			position += BODY_OFFSET + bodyLength;
+		}
+		for(int i = position; i < segmentSize; i++){
+			buffer.put(i, (byte) 0);
+		}
+		return position;
+	}
+
+	/**
+	 * @return true if a complete record with a matching checksum starts at the position
+	 */
+	private boolean isValid(MappedByteBuffer buffer, int position, int bodyLength){
+		if(bodyLength < FIXED_BODY_LENGTH || bodyLength > segmentSize - position - BODY_OFFSET){
+			return false;
+		}
+		final int body = position + BODY_OFFSET;
+		final int textLength = buffer.getShort(body + TEXT_LENGTH);
+		return textLength >= 0 && bodyLength == FIXED_BODY_LENGTH + 2 * textLength
+				&& buffer.getInt(position + CHECKSUM_OFFSET) == checksum(buffer, body, bodyLength);
+	}
+
+	private static JournalEntry decode(MappedByteBuffer buffer, int body){
+		final long timestamp = buffer.getLong(body + TIMESTAMP);
+		final int causeDigest = buffer.getInt(body + CAUSE_DIGEST);
+		final int action = buffer.get(body + ACTION);
+		final int outcome = buffer.get(body + OUTCOME);
+		final int gateId = buffer.getInt(body + GATE_ID);
+		final int textLength = buffer.getShort(body + TEXT_LENGTH);
+		String text = null;
+		if(textLength > 0){
+			final char[] chars = new char[textLength];
+			for(int i = 0; i < textLength; i++){
+				chars[i] = buffer.getChar(body + TEXT + 2 * i);
+			}
+			text = new String(chars);
+		}
+		if(action > 0 && action <= ACTIONS.length && outcome > 0 && outcome <= OUTCOMES.length){
+			return new JournalEntry(gateId, ACTIONS[action - 1], OUTCOMES[outcome - 1], text,
+					timestamp, causeDigest);
+		}
+		return new JournalEntry(gateId, text == null ? "" : text, timestamp, causeDigest);
+	}
+
+	/**
+	 * A 32-bit FNV-1a hash of the body of a record.
+	 */
+	private static int checksum(MappedByteBuffer buffer, int body, int bodyLength){
+		int hash = 0x811c9dc5;
+		for(int i = body; i < body + bodyLength; i++){
+			hash ^= buffer.get(i) & 0xff;
+			hash *= 0x01000193;
+		}
+		return hash;
+	}
+
+	private Path segmentPath(long index){
+		return directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+	}
+
+	private static long segmentIndex(Path segment){
+		final String name = segment.getFileName().toString();
+		try{
+			return Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+					name.length() - SEGMENT_SUFFIX.length()));
+		} catch(NumberFormatException | IndexOutOfBoundsException e){
+			return -1;
+		}
+	}
+
+	/**
+	 * Maps a segment file, creating it at full size if it does not exist. A smaller file
+	 * is grown; a larger one was written with a larger segment size and is refused rather
+	 * than truncated. The mapping stays valid after the file is closed.
+	 */
+	private MappedByteBuffer map(long index) throws IOException {
+		try(RandomAccessFile file = new RandomAccessFile(segmentPath(index).toFile(), "rw")){
+			if(file.length() > segmentSize){
+				throw new IOException("Segment " + index + " is " + file.length()
+						+ " bytes, larger than the segment size of " + segmentSize);
+			}
+			if(file.length() < segmentSize){
+				file.setLength(segmentSize);
+			}
+			return file.getChannel().map(MapMode.READ_WRITE, 0, segmentSize);
+		}
+	}
+
+	private MappedByteBuffer mapCursor() throws IOException {
+		try(RandomAccessFile file = new RandomAccessFile(directory.resolve(CURSOR_FILE).toFile(), "rw")){
+			if(file.length() < 16){
+				file.setLength(16);
+			}
+			return file.getChannel().map(MapMode.READ_WRITE, 0, 16);
+		}
+	}
+}
@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The LatencyHistogram records durations in nanoseconds into log-linear buckets in the
+ * style of an HDR histogram: every power of two is split into 16 equal sub-buckets, so
+ * any recorded value is reported within about 6% of its true value while the whole
+ * range up to several hours fits in a few hundred counters. Recording is one array
+ * increment and never locks or allocates.
+ **/
+public class LatencyHistogram {
+
+	/** The number of bits of each value that are kept exactly */
+	private static final int PRECISION_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << PRECISION_BITS;
+	private static final int LINEAR_LIMIT = SUB_BUCKETS << 1;
+	/** The largest value recorded exactly; larger values are recorded as this one */
+	public static final long MAX_TRACKABLE_NANOS = (1L << 44) - 1;
+	private static final int BUCKET_COUNT = indexOf(MAX_TRACKABLE_NANOS) + 1;
+
+	private final AtomicLongArray counts;
+	private final LongAdder total;
+	private final AtomicLong max;
+
+	/**
+	 * Creates an empty histogram.
+	 */
+	public LatencyHistogram(){
+		counts = new AtomicLongArray(BUCKET_COUNT);
+		total = new LongAdder();
+		max = new AtomicLong();
+	}
+
+	/**
+	 * Records one duration.
+	 * @param nanos the duration in nanoseconds; negative values are recorded as zero
+	 */
+	public void record(long nanos){
+		final long value = nanos < 0 ? 0 : Math.min(nanos, MAX_TRACKABLE_NANOS);
+		counts.incrementAndGet(indexOf(value));
+		total.add(value);
+		long current = max.get();
+		while(value > current && !max.compareAndSet(current, value)){
+			current = max.get();
+		}
+	}
+
+	/**
+	 * Copies the current counts. Values recorded while the copy is being made may or
+	 * may not be included.
+	 * @return a snapshot of the histogram
+	 */
+	public Snapshot snapshot(){
+		final long[] copy = new long[BUCKET_COUNT];
+		long count = 0;
+		for(int i = 0; i < BUCKET_COUNT; i++){
+			copy[i] = counts.get(i);
+			count += copy[i];
+		}
+		return new Snapshot(copy, count, total.sum(), max.get());
+	}
+
+	/**
+	 * @param value a value between 0 and MAX_TRACKABLE_NANOS
+	 * @return the index of the bucket that holds the value
+	 */
+	static int indexOf(long value){
+		if(value < LINEAR_LIMIT){
+			return (int) value;
+		}
+		final int magnitude = 63 - Long.numberOfLeadingZeros(value);
+		final int shift = magnitude - PRECISION_BITS;
+		return LINEAR_LIMIT + (magnitude - PRECISION_BITS - 1) * SUB_BUCKETS
+				+ (int) (value >>> shift) - SUB_BUCKETS;
+	}
+
+	/**
+	 * @param index the index of a bucket
+	 * @return the largest value that falls into the bucket
+	 */
+	static long highestValueIn(int index){
+		if(index < LINEAR_LIMIT){
+			return index;
+		}
+		final int offset = index - LINEAR_LIMIT;
+		final int shift = offset / SUB_BUCKETS + 1;
+		final long subBucket = offset % SUB_BUCKETS + SUB_BUCKETS;
+		return ((subBucket + 1) << shift) - 1;
+	}
+
+	/**
+	 * An immutable copy of a LatencyHistogram
+	 */
+	public static final class Snapshot{
+		private final long[] counts;
+		private final long count;
+		private final long total;
+		private final long max;
+
+		Snapshot(long[] counts, long count, long total, long max){
+			this.counts = counts;
+			this.count = count;
+			this.total = total;
+			this.max = max;
+		}
+
+		/**
+		 * @return the number of recorded values
+		 */
+		public long getCount(){
+			return count;
+		}
+
+		/**
+		 * @return the mean of the recorded values in nanoseconds, or 0 if there are none
+		 */
+		public double getMean(){
+			return count == 0 ? 0 : (double) total / count;
+		}
+
+		/**
+		 * @return the largest recorded value in nanoseconds
+		 */
+		public long getMax(){
+			return max;
+		}
+
+		/**
+		 * @param percentile a percentile between 0 and 100
+		 * @return the value in nanoseconds that the given percentage of recorded values
+		 *  are less than or equal to, or 0 if there are none
+		 */
+		public long getValueAtPercentile(double percentile){
+			if(count == 0){
+				return 0;
+			}
+			final long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+			long seen = 0;
+			for(int i = 0; i < counts.length; i++){
+				seen += counts[i];
+				if(seen >= rank){
+					return Math.min(highestValueIn(i), max);
+				}
+			}
+			return max;
+		}
+	}
+}
@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth;
+
+import tollbooth.TollGate.Action;
+
+/**
+ * The LogCatalogue holds every message a TollGate can produce, keyed by the action and
+ * its outcome. The message text is built once when the class is loaded, and each
+ * catalogue preallocates one LogMessage for each action and outcome pair, so logging
+ * an attempt does not format a string or allocate a message. Gates with an ID get a
+ * catalogue of their own so that their messages carry the ID.
+ *
+ * The catalogue also holds a stackless TollboothException with the same text for each
+ * pair, which gates throw when they refuse an action.
+ **/
+public final class LogCatalogue {
+
+	/**
+	 * Specifies the different outcomes of an attempted action
+	 */
+	public enum Outcome{
+		SUCCESSFUL("successful"),
+		MALFUNCTION("malfunction"),
+		UNRECOVERABLE_MALFUNCTION("unrecoverable malfunction"),
+		WILL_NOT_RESPOND("will not respond");
+
+		private final String description;
+
+		private Outcome(String description){
+			this.description = description;
+		}
+
+		/**
+		 * @return the text used for this outcome in log messages
+		 */
+		public String getDescription(){
+			return description;
+		}
+	}
+
+	private static final String[][] TEXT;
+	private static final TollboothException[][] EXCEPTIONS;
+	private static final LogCatalogue SHARED;
+
+	static{
+		final Action[] actions = Action.values();
+		final Outcome[] outcomes = Outcome.values();
+		TEXT = new String[actions.length][outcomes.length];
+		EXCEPTIONS = new TollboothException[actions.length][outcomes.length];
+		for(Action act : actions){
+			for(Outcome outcome : outcomes){
+				final String text = (TollGate.getActionName(act) + ": " + outcome.getDescription()).intern();
+				TEXT[act.ordinal()][outcome.ordinal()] = text;
+				EXCEPTIONS[act.ordinal()][outcome.ordinal()] = TollboothException.stackless(text);
+			}
+		}
+		SHARED = new LogCatalogue(TollGate.NO_GATE_ID);
+	}
+
+	private final LogMessage[][] messages;
+	private final LogMessage[][] exceptionMessages;
+
+	private LogCatalogue(int gateId){
+		final Action[] actions = Action.values();
+		final Outcome[] outcomes = Outcome.values();
+		messages = new LogMessage[actions.length][outcomes.length];
+		exceptionMessages = new LogMessage[actions.length][outcomes.length];
+		for(Action act : actions){
+			for(Outcome outcome : outcomes){
+				messages[act.ordinal()][outcome.ordinal()] = new LogMessage(gateId, act, outcome, null);
+				exceptionMessages[act.ordinal()][outcome.ordinal()] = new LogMessage(gateId, act,
+						outcome, getException(act, outcome));
+			}
+		}
+	}
+
+	/**
+	 * Returns the catalogue whose messages carry a gate ID. Gates without an ID share
+	 * a single catalogue.
+	 * @param gateId the ID of the gate
+	 * @return the catalogue for the gate
+	 */
+	public static LogCatalogue forGate(int gateId){
+		return gateId == TollGate.NO_GATE_ID ? SHARED : new LogCatalogue(gateId);
+	}
+
+	/**
+	 * Returns the LogMessage of this catalogue, without a cause, for an action and outcome.
+	 * @param act the action that was attempted
+	 * @param outcome the outcome of the attempt
+	 * @return the preallocated LogMessage
+	 */
+	public LogMessage message(Action act, Outcome outcome){
+		return messages[act.ordinal()][outcome.ordinal()];
+	}
+
+	/**
+	 * Returns the LogMessage of this catalogue for an action and outcome whose cause is
+	 * the preallocated exception for the same pair.
+	 * @param act the action that was attempted
+	 * @param outcome the outcome of the attempt
+	 * @return the preallocated LogMessage
+	 */
+	public LogMessage messageWithException(Action act, Outcome outcome){
+		return exceptionMessages[act.ordinal()][outcome.ordinal()];
+	}
+
+	/**
+	 * Returns the shared LogMessage, without a cause or gate ID, for an action and outcome.
+	 * @param act the action that was attempted
+	 * @param outcome the outcome of the attempt
+	 * @return the shared LogMessage
+	 */
+	public static LogMessage get(Action act, Outcome outcome){
+		return SHARED.message(act, outcome);
+	}
+
+	/**
+	 * Returns the interned text for an action and outcome, for example "open: malfunction".
+	 * @param act the action that was attempted
+	 * @param outcome the outcome of the attempt
+	 * @return the message text
+	 */
+	public static String getText(Action act, Outcome outcome){
+		return TEXT[act.ordinal()][outcome.ordinal()];
+	}
+
+	/**
+	 * Returns the preallocated, stackless TollboothException whose message is the text
+	 * for an action and outcome.
+	 * @param act the action that was attempted
+	 * @param outcome the outcome of the attempt
+	 * @return the shared exception
+	 */
+	public static TollboothException getException(Action act, Outcome outcome){
+		return EXCEPTIONS[act.ordinal()][outcome.ordinal()];
+	}
+}
@@ -0,0 +1,507 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.ToIntFunction;
+
+import tollbooth.LogCatalogue.Outcome;
+import tollbooth.TollGate.Action;
+
+/**
+ * The LogCodec encodes a LogMessage as three primitives and decodes it again:
+ * <ul>
+ * <li>a timestamp in nanoseconds since the epoch,</li>
+ * <li>a header long holding the gate ID in the upper 32 bits, then a summary flag, a
+ *  3 bit action code, a 4 bit outcome code and a 24 bit text ID,</li>
+ * <li>an int cause ID.</li>
+ * </ul>
+ * Codes and IDs are 0 when the message has no action, outcome, free-form text or
+ * cause. The text of a free-form message is interned and stored by ID; catalogue
+ * messages store no text. A cause is replaced by its interned CauseFingerprint, so
+ * equal causes share one small object and no stack trace is kept.
+ *
+ * A RepeatedLogMessage sets the summary flag, and its 24 bits hold the ID of a summary
+ * record with its repeat count, its first and last timestamps and the ID of its text.
+ *
+ * Texts and causes are reference counted. Whoever stores an encoded message passes its
+ * header and cause ID to release() once it will not be decoded again. A text or cause
+ * is dropped when the last message using it is released, a summary at once, and their
+ * IDs are reused. A cause encoded before is found by identity, without fingerprinting
+ * its chain again. getEstimatedBytes() estimates the memory the tables hold, so a store
+ * can charge it against its budget.
+ *
+ * Decoding is lossless for everything but stack traces: the decoded message has the
+ * same gate ID, action, outcome, text and repeat summary, and a cause chain that
+ * prints the same. A codec is thread safe, and messages must be decoded by the codec
+ * that encoded them.
+ **/
+public final class LogCodec {
+
+	/** The largest number of distinct free-form texts a codec can hold at once */
+	public static final int MAX_TEXTS = (1 << 24) - 1;
+
+	private static final Action[] ACTIONS = Action.values();
+	private static final Outcome[] OUTCOMES = Outcome.values();
+	private static final int SUMMARY_FLAG = 1 << 31;
+	private static final int ACTION_SHIFT = 28;
+	private static final int ACTION_MASK = 0x7;
+	private static final int OUTCOME_SHIFT = 24;
+	private static final int OUTCOME_MASK = 0xF;
+	private static final int TEXT_MASK = 0xFFFFFF;
+	//Estimated sizes: a map entry and boxed ID, a String without its characters, the
+	//fixed part of a CauseFingerprint, a Summary, and a table slot
+	private static final int ENTRY_BYTES = 48;
+	private static final int STRING_BYTES = 40;
+	private static final int FINGERPRINT_BYTES = 64;
+	private static final int SUMMARY_BYTES = 40;
+	private static final int SLOT_BYTES = 8;
+	//Lines the monotonic clock up with the wall clock once, so a timestamp costs one nanoTime()
+	private static final long EPOCH_NANOS_OFFSET =
+			System.currentTimeMillis() * 1_000_000L - System.nanoTime();
+
+	private final InternTable<String> texts;
+	private final InternTable<CauseFingerprint> causes;
+	//The interned fingerprint of each cause encoded, until the cause is collected
+	private final WeakHashMap<Throwable, CauseFingerprint> recentCauses;
+	private final List<Summary> summaries;
+	private final ArrayDeque<Integer> freeSummaryIds;
+
+	/**
+	 * Creates a codec with empty intern tables.
+	 */
+	public LogCodec(){
+		texts = new InternTable<String>(LogCodec::bytesOf);
+		causes = new InternTable<CauseFingerprint>(cause -> FINGERPRINT_BYTES + bytesOf(cause.getMessage()));
+		recentCauses = new WeakHashMap<Throwable, CauseFingerprint>();
+		summaries = new ArrayList<Summary>();
+		summaries.add(null);
+		freeSummaryIds = new ArrayDeque<Integer>();
+	}
+
+	/**
+	 * @return the current time in nanoseconds since the epoch
+	 */
+	public static long now(){
+		return EPOCH_NANOS_OFFSET + System.nanoTime();
+	}
+
+	/**
+	 * Encodes the gate ID, action, outcome, free-form text and repeat summary of a
+	 * message, taking a reference to its text.
+	 * @param message the message
+	 * @return the header
+	 */
+	public long encodeHeader(LogMessage message){
+		final Action action = message.getAction();
+		int low = 0;
+		if(action != null){
+			low = (action.ordinal() + 1) << ACTION_SHIFT;
+			if(message.getOutcome() != null){
+				low |= (message.getOutcome().ordinal() + 1) << OUTCOME_SHIFT;
+			}
+		}
+		if(message instanceof RepeatedLogMessage){
+			final RepeatedLogMessage repeated = (RepeatedLogMessage) message;
+			low |= SUMMARY_FLAG | summaryId(action != null ? 0 : textId(repeated.getRepeatedMessage()),
+					repeated.getRepeatCount(), repeated.getFirstTimestamp(), repeated.getLastTimestamp());
+		} else if(message instanceof DecodedLogMessage && ((DecodedLogMessage) message).isRepeated()){
+			final DecodedLogMessage repeated = (DecodedLogMessage) message;
+			low |= SUMMARY_FLAG | summaryId(action != null ? 0 : textId(repeated.getRepeatedMessage()),
+					repeated.getRepeatCount(), repeated.getFirstTimestamp(), repeated.getLastTimestamp());
+		} else if(action == null){
+			low = textId(message.getMessage());
+		}
+		return ((long) message.getGateId() << 32) | (low & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Interns the fingerprint of a cause, taking a reference to it.
+	 * @param cause the cause, or null
+	 * @return the ID of the fingerprint, or 0 for a null cause
+	 */
+	public int encodeCause(Throwable cause){
+		if(cause == null){
+			return 0;
+		}
+		synchronized(causes){
+			final CauseFingerprint known = cause instanceof CauseFingerprint
+					? (CauseFingerprint) cause : recentCauses.get(cause);
+			if(known != null){
+				final int id = causes.acquire(known);
+				if(id != 0){
+					return id;
+				}
+			}
+		}
+		final CauseFingerprint fingerprint = CauseFingerprint.of(cause);
+		synchronized(causes){
+			final int id = intern(fingerprint);
+			if(fingerprint != cause){
+				recentCauses.put(cause, causes.get(id));
+			}
+			return id;
+		}
+	}
+
+	/**
+	 * Rebuilds a message.
+	 * @param timestamp the timestamp the message was encoded with
+	 * @param header the header returned by encodeHeader()
+	 * @param causeId the ID returned by encodeCause()
+	 * @return the message
+	 */
+	public DecodedLogMessage decode(long timestamp, long header, int causeId){
+		final Action action = actionOf(header);
+		final CauseFingerprint cause = getCause(causeId);
+		final int id = (int) header & TEXT_MASK;
+		if(isSummary(header)){
+			final Summary summary;
+			synchronized(summaries){
+				summary = summaries.get(id);
+			}
+			return new DecodedLogMessage(gateIdOf(header), action, outcomeOf(header),
+					getText(summary.textId), cause, timestamp,
+					summary.repeatCount, summary.firstTimestamp, summary.lastTimestamp);
+		}
+		return new DecodedLogMessage(gateIdOf(header), action, outcomeOf(header),
+				action == null ? getText(id) : null, cause, timestamp);
+	}
+
+	/**
+	 * Drops the references an encoded message holds to its text, repeat summary and
+	 * cause. Call it once for every stored message, when it will not be decoded again.
+	 * @param header a header returned by encodeHeader()
+	 * @param causeId the ID returned by encodeCause()
+	 */
+	public void release(long header, int causeId){
+		final int id = (int) header & TEXT_MASK;
+		if(isSummary(header)){
+			final Summary summary;
+			synchronized(summaries){
+				summary = summaries.set(id, null);
+				freeSummaryIds.push(id);
+			}
+			releaseText(summary.textId);
+		} else if(actionOf(header) == null){
+			releaseText(id);
+		}
+		releaseCause(causeId);
+	}
+
+	/**
+	 * @param header a header returned by encodeHeader()
+	 * @return true if it holds the repeat summary of a RepeatedLogMessage
+	 */
+	public static boolean isSummary(long header){
+		return ((int) header & SUMMARY_FLAG) != 0;
+	}
+
+	/**
+	 * @param header a header returned by encodeHeader()
+	 * @return the gate ID it holds
+	 */
+	public static int gateIdOf(long header){
+		return (int) (header >>> 32);
+	}
+
+	/**
+	 * @param header a header returned by encodeHeader()
+	 * @return the action it holds, or null for a free-form message
+	 */
+	public static Action actionOf(long header){
+		final int action = ((int) header >>> ACTION_SHIFT) & ACTION_MASK;
+		return action == 0 ? null : ACTIONS[action - 1];
+	}
+
+	/**
+	 * @param header a header returned by encodeHeader()
+	 * @return the outcome it holds, or null if the message has none
+	 */
+	public static Outcome outcomeOf(long header){
+		final int action = ((int) header >>> ACTION_SHIFT) & ACTION_MASK;
+		final int outcome = ((int) header >>> OUTCOME_SHIFT) & OUTCOME_MASK;
+		return action == 0 || outcome == 0 ? null : OUTCOMES[outcome - 1];
+	}
+
+	/**
+	 * @param causeId the ID returned by encodeCause()
+	 * @return the interned fingerprint, or null for ID 0
+	 */
+	public CauseFingerprint getCause(int causeId){
+		if(causeId == 0){
+			return null;
+		}
+		synchronized(causes){
+			return causes.get(causeId);
+		}
+	}
+
+	/**
+	 * @return the number of distinct causes, counting each fingerprint of a chain,
+	 *  that are interned and still referenced
+	 */
+	public int getCauseCount(){
+		synchronized(causes){
+			return causes.size();
+		}
+	}
+
+	/**
+	 * @return the number of distinct free-form texts interned and still referenced
+	 */
+	public int getTextCount(){
+		synchronized(texts){
+			return texts.size();
+		}
+	}
+
+	/**
+	 * @return the number of repeat summaries encoded and not yet released
+	 */
+	public int getSummaryCount(){
+		synchronized(summaries){
+			return summaries.size() - 1 - freeSummaryIds.size();
+		}
+	}
+
+	/**
+	 * @return the estimated memory held by the texts, causes and summaries, including
+	 *  the slots kept for released IDs
+	 */
+	public long getEstimatedBytes(){
+		long bytes;
+		synchronized(texts){
+			bytes = texts.bytes;
+		}
+		synchronized(causes){
+			bytes += causes.bytes;
+		}
+		synchronized(summaries){
+			bytes += (long) summaries.size() * SLOT_BYTES
+					+ (long) (summaries.size() - 1 - freeSummaryIds.size()) * SUMMARY_BYTES;
+		}
+		return bytes;
+	}
+
+	/**
+	 * Bounds the memory encoding a message can add to the tables, as if its text and
+	 * every cause in its chain were new.
+	 * @param message the message
+	 * @return the most getEstimatedBytes() can grow by when the message is encoded
+	 */
+	public static long estimateBytes(LogMessage message){
+		long bytes = 0;
+		String text = null;
+		if(message instanceof RepeatedLogMessage){
+			bytes += SUMMARY_BYTES + SLOT_BYTES;
+			text = ((RepeatedLogMessage) message).getRepeatedMessage();
+		} else if(message instanceof DecodedLogMessage && ((DecodedLogMessage) message).isRepeated()){
+			bytes += SUMMARY_BYTES + SLOT_BYTES;
+			text = ((DecodedLogMessage) message).getRepeatedMessage();
+		} else if(message.getAction() == null){
+			text = message.getMessage();
+		}
+		if(message.getAction() == null && text != null){
+			bytes += bytesOf(text) + ENTRY_BYTES + SLOT_BYTES;
+		}
+		Throwable cause = message.getCause();
+		for(int depth = 0; cause != null && depth < CauseFingerprint.MAX_DEPTH; depth++){
+			bytes += FINGERPRINT_BYTES + bytesOf(cause.getMessage()) + ENTRY_BYTES + SLOT_BYTES;
+			cause = cause.getCause();
+		}
+		return bytes;
+	}
+
+	private static int bytesOf(String text){
+		return text == null ? 0 : STRING_BYTES + 2 * text.length();
+	}
+
+	private int textId(String text){
+		if(text == null){
+			return 0;
+		}
+		synchronized(texts){
+			final int id = texts.acquire(text);
+			return id != 0 ? id : texts.add(text, MAX_TEXTS);
+		}
+	}
+
+	private void releaseText(int textId){
+		if(textId != 0){
+			synchronized(texts){
+				texts.release(textId);
+			}
+		}
+	}
+
+	private String getText(int textId){
+		if(textId == 0){
+			return null;
+		}
+		synchronized(texts){
+			return texts.get(textId);
+		}
+	}
+
+	/**
+	 * Stores a repeat summary, reusing a released ID if there is one.
+	 */
+	private int summaryId(int textId, long repeatCount, long firstTimestamp, long lastTimestamp){
+		final Summary summary = new Summary(textId, repeatCount, firstTimestamp, lastTimestamp);
+		synchronized(summaries){
+			final Integer free = freeSummaryIds.poll();
+			if(free != null){
+				summaries.set(free, summary);
+				return free;
+			}
+			if(summaries.size() > TEXT_MASK){
+				throw new IllegalStateException("More than " + TEXT_MASK + " unreleased summaries");
+			}
+			summaries.add(summary);
+			return summaries.size() - 1;
+		}
+	}
+
+	/**
+	 * Takes a reference to an interned fingerprint equal to the given one, interning it
+	 * first if there is none. The chain of an interned fingerprint is made of interned
+	 * fingerprints too, and each holds a reference to the next. The caller holds the
+	 * lock of the cause table.
+	 */
+	private int intern(CauseFingerprint fingerprint){
+		final int id = causes.acquire(fingerprint);
+		if(id != 0){
+			return id;
+		}
+		final CauseFingerprint next = fingerprint.getCause();
+		final CauseFingerprint interned = next == null ? fingerprint
+				: new CauseFingerprint(fingerprint.getClassName(), fingerprint.getMessage(),
+						causes.get(intern(next)));
+		return causes.add(interned, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Drops a reference to an interned fingerprint, and the reference it held to the
+	 * next one in its chain if it was the last.
+	 */
+	private void releaseCause(int causeId){
+		synchronized(causes){
+			int id = causeId;
+			while(id != 0){
+				final CauseFingerprint dropped = causes.release(id);
+				id = dropped == null || dropped.getCause() == null ? 0 : causes.idOf(dropped.getCause());
+			}
+		}
+	}
+
+	/**
+	 * A table of reference-counted values and their IDs. The ID of a value whose last
+	 * reference is dropped is reused. Callers hold the table's lock.
+	 */
+	private static final class InternTable<T>{
+		final Map<T, Integer> ids = new HashMap<T, Integer>();
+		final List<T> values = new ArrayList<T>();
+		final ArrayDeque<Integer> freeIds = new ArrayDeque<Integer>();
+		final ToIntFunction<T> weigher;
+		int[] references = new int[16];
+		//The estimated size of the held values, their entries and every slot
+		long bytes;
+
+		InternTable(ToIntFunction<T> weigher){
+			this.weigher = weigher;
+			values.add(null);
+			bytes = SLOT_BYTES;
+		}
+
+		/**
+		 * @return the ID of the value with one more reference, or 0 if it is not held
+		 */
+		int acquire(T value){
+			final Integer id = ids.get(value);
+			if(id == null){
+				return 0;
+			}
+			references[id]++;
+			return id;
+		}
+
+		/**
+		 * @return the ID of a value that is not held yet, with one reference
+		 */
+		int add(T value, int maxId){
+			final Integer free = freeIds.poll();
+			final int id;
+			if(free != null){
+				id = free;
+				values.set(id, value);
+			} else{
+				if(values.size() > maxId){
+					throw new IllegalStateException("More than " + maxId + " distinct values");
+				}
+				id = values.size();
+				values.add(value);
+				if(id == references.length){
+					references = Arrays.copyOf(references, id * 2);
+				}
+				bytes += SLOT_BYTES;
+			}
+			references[id] = 1;
+			ids.put(value, id);
+			bytes += ENTRY_BYTES + weigher.applyAsInt(value);
+			return id;
+		}
+
+		/**
+		 * @return the value if that was its last reference, or null
+		 */
+		T release(int id){
+			if(--references[id] > 0){
+				return null;
+			}
+			final T value = values.set(id, null);
+			ids.remove(value);
+			freeIds.push(id);
+			bytes -= ENTRY_BYTES + weigher.applyAsInt(value);
+			return value;
+		}
+
+		T get(int id){
+			return values.get(id);
+		}
+
+		int idOf(T value){
+			return ids.get(value);
+		}
+
+		int size(){
+			return ids.size();
+		}
+	}
+
+	/**
+	 * The repeat count, timestamps and text of an encoded RepeatedLogMessage
+	 */
+	private static final class Summary{
+		final int textId;
+		final long repeatCount;
+		final long firstTimestamp;
+		final long lastTimestamp;
+
+		Summary(int textId, long repeatCount, long firstTimestamp, long lastTimestamp){
+			this.textId = textId;
+			this.repeatCount = repeatCount;
+			this.firstTimestamp = firstTimestamp;
+			this.lastTimestamp = lastTimestamp;
+		}
+	}
+}
@@ -8,6 +8,9 @@
 
 package tollbooth;
 
+import tollbooth.LogCatalogue.Outcome;
+import tollbooth.TollGate.Action;
+
 /**
  * The LogMessage is a simple data structure that contains information about any system
  * malfunction.
@@ -16,8 +19,11 @@ package tollbooth;
  */
 public class LogMessage
 {
-	private final String message;
+	private String message;
 	private final Throwable cause;
+	private final Action action;
+	private final Outcome outcome;
+	private final int gateId;
 
 	/**
 	 * Create a LogMessage object with just a message and no cause.
@@ -37,6 +43,55 @@ public class LogMessage
 	{
 		this.message = message;
 		this.cause = cause;
+		this.action = null;
+		this.outcome = null;
+		this.gateId = TollGate.NO_GATE_ID;
+	}
+
+	/**
+	 * Create a LogMessage object for an entry in the LogCatalogue. The text of the
+	 * message is looked up the first time getMessage() is called.
+	 * @param action the action that was attempted
+	 * @param outcome the outcome of the attempt
+	 * @param cause the Throwable object that was the cause for the message, or null
+	 */
+	public LogMessage(Action action, Outcome outcome, Throwable cause)
+	{
+		this(TollGate.NO_GATE_ID, action, outcome, cause);
+	}
+
+	/**
+	 * Create a LogMessage object for an entry in the LogCatalogue of a gate.
+	 * @param gateId the ID of the gate the message came from
+	 * @param action the action that was attempted
+	 * @param outcome the outcome of the attempt
+	 * @param cause the Throwable object that was the cause for the message, or null
+	 */
+	public LogMessage(int gateId, Action action, Outcome outcome, Throwable cause)
+	{
+		this.message = null;
+		this.cause = cause;
+		this.action = action;
+		this.outcome = outcome;
+		this.gateId = gateId;
+	}
+	
+	/**
+	 * Create a LogMessage object with every field given, for subclasses that copy
+	 * another message.
+	 * @param gateId the ID of the gate the message came from
+	 * @param action the action that was attempted, or null for a free-form message
+	 * @param outcome the outcome of the attempt, or null for a free-form message
+	 * @param cause the Throwable object that was the cause for the message, or null
+	 * @param message the descriptive message, or null to look it up in the LogCatalogue
+	 */
+	protected LogMessage(int gateId, Action action, Outcome outcome, Throwable cause, String message)
+	{
+		this.message = message;
+		this.cause = cause;
+		this.action = action;
+		this.outcome = outcome;
+		this.gateId = gateId;
 	}
 	
 	/**
@@ -52,7 +107,12 @@ public class LogMessage
 	 */
 	public String getMessage()
 	{
-		return message;
+		String text = message;
+		if(text == null && action != null){
+			text = LogCatalogue.getText(action, outcome);
+			message = text;
+		}
+		return text;
 	}
 
 	/**
@@ -62,4 +122,28 @@ public class LogMessage
 	{
 		return cause;
 	}
+
+	/**
+	 * @return the action this message describes, or null for a free-form message
+	 */
+	public Action getAction()
+	{
+		return action;
+	}
+
+	/**
+	 * @return the outcome this message describes, or null for a free-form message
+	 */
+	public Outcome getOutcome()
+	{
+		return outcome;
+	}
+
+	/**
+	 * @return the ID of the gate the message came from, or TollGate.NO_GATE_ID
+	 */
+	public int getGateId()
+	{
+		return gateId;
+	}
 }
@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth;
+
+import java.util.concurrent.TimeUnit;
+
+import tollbooth.LogCatalogue.Outcome;
+import tollbooth.TollGate.Action;
+
+/**
+ * A LogQuery selects the messages of an IndexedLogStore by gate, action, outcome and
+ * time. Queries are immutable; each withX() method returns a copy with one more
+ * condition, for example
+ * LogQuery.all().withAction(Action.RESET).withOutcome(Outcome.WILL_NOT_RESPOND)
+ * .withTimeRange(now - hour, now).
+ **/
+public final class LogQuery {
+
+	private static final LogQuery ALL = new LogQuery(false, 0, null, null, Long.MIN_VALUE, Long.MAX_VALUE);
+
+	private final boolean hasGateId;
+	private final int gateId;
+	private final Action action;
+	private final Outcome outcome;
+	private final long from;
+	private final long to;
+
+	private LogQuery(boolean hasGateId, int gateId, Action action, Outcome outcome, long from, long to){
+		this.hasGateId = hasGateId;
+		this.gateId = gateId;
+		this.action = action;
+		this.outcome = outcome;
+		this.from = from;
+		this.to = to;
+	}
+
+	/**
+	 * @return a query that selects every message
+	 */
+	public static LogQuery all(){
+		return ALL;
+	}
+
+	/**
+	 * @param gateId the ID of a gate
+	 * @return a copy that only selects messages from the gate
+	 */
+	public LogQuery withGateId(int gateId){
+		return new LogQuery(true, gateId, action, outcome, from, to);
+	}
+
+	/**
+	 * @param action an action
+	 * @return a copy that only selects messages about the action
+	 */
+	public LogQuery withAction(Action action){
+		return new LogQuery(hasGateId, gateId, action, outcome, from, to);
+	}
+
+	/**
+	 * @param outcome an outcome
+	 * @return a copy that only selects messages with the outcome
+	 */
+	public LogQuery withOutcome(Outcome outcome){
+		return new LogQuery(hasGateId, gateId, action, outcome, from, to);
+	}
+
+	/**
+	 * @param from the earliest time selected, in milliseconds since the epoch
+	 * @param to the time after the latest time selected, in milliseconds since the epoch
+	 * @return a copy that only selects messages accepted from from, up to but not
+	 *  including to
+	 */
+	public LogQuery withTimeRange(long from, long to){
+		if(to < from){
+			throw new IllegalArgumentException("to must not be before from");
+		}
+		return new LogQuery(hasGateId, gateId, action, outcome, from, to);
+	}
+
+	/**
+	 * @param duration a length of time
+	 * @param unit the unit of the duration
+	 * @return a copy that only selects messages accepted within the duration before now
+	 */
+	public LogQuery withinLast(long duration, TimeUnit unit){
+		final long now = System.currentTimeMillis();
+		return withTimeRange(now - unit.toMillis(duration), now + 1);
+	}
+
+	/**
+	 * @return true if the query selects a single gate
+	 */
+	public boolean hasGateId(){
+		return hasGateId;
+	}
+
+	/**
+	 * @return the gate selected, if hasGateId() is true
+	 */
+	public int getGateId(){
+		return gateId;
+	}
+
+	/**
+	 * @return the action selected, or null for any
+	 */
+	public Action getAction(){
+		return action;
+	}
+
+	/**
+	 * @return the outcome selected, or null for any
+	 */
+	public Outcome getOutcome(){
+		return outcome;
+	}
+
+	/**
+	 * @return the earliest time selected, in milliseconds since the epoch
+	 */
+	public long getFrom(){
+		return from;
+	}
+
+	/**
+	 * @return the time after the latest time selected, in milliseconds since the epoch
+	 */
+	public long getTo(){
+		return to;
+	}
+}
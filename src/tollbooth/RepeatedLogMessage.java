@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth;
+
+/**
+ * A RepeatedLogMessage stands for a run of identical messages that a
+ * DeduplicatingLogger collapsed into one. It has the gate, action, outcome, text and
+ * cause of the first message of the run, the number of messages in the run, and the
+ * times of the first and the last of them.
+ **/
+public class RepeatedLogMessage extends LogMessage {
+
+	private final long repeatCount;
+	private final long firstTimestamp;
+	private final long lastTimestamp;
+	//Built on first use; a race only builds an equal string twice
+	private String description;
+
+	/**
+	 * Creates a summary of a run of messages.
+	 * @param original the first message of the run
+	 * @param repeatCount the number of messages in the run
+	 * @param firstTimestamp the time of the first message, in milliseconds since the epoch
+	 * @param lastTimestamp the time of the last message, in milliseconds since the epoch
+	 */
+	RepeatedLogMessage(LogMessage original, long repeatCount, long firstTimestamp, long lastTimestamp){
+		super(original.getGateId(), original.getAction(), original.getOutcome(), original.getCause(),
+				original.getAction() == null ? original.getMessage() : null);
+		this.repeatCount = repeatCount;
+		this.firstTimestamp = firstTimestamp;
+		this.lastTimestamp = lastTimestamp;
+	}
+
+	/**
+	 * @return the text of the repeated message followed by the number of repeats, for
+	 *  example "open: malfunction (repeated 12 times)"
+	 */
+	@Override
+	public String getMessage(){
+		String text = description;
+		if(text == null){
+			text = describe(super.getMessage(), repeatCount);
+			description = text;
+		}
+		return text;
+	}
+
+	/**
+	 * @return the text of the repeated message itself
+	 */
+	public String getRepeatedMessage(){
+		return super.getMessage();
+	}
+
+	/**
+	 * @return the number of messages collapsed into this one
+	 */
+	public long getRepeatCount(){
+		return repeatCount;
+	}
+
+	/**
+	 * @return the time of the first collapsed message, in milliseconds since the epoch
+	 */
+	public long getFirstTimestamp(){
+		return firstTimestamp;
+	}
+
+	/**
+	 * @return the time of the last collapsed message, in milliseconds since the epoch
+	 */
+	public long getLastTimestamp(){
+		return lastTimestamp;
+	}
+
+	/**
+	 * @param text the text of a repeated message
+	 * @param repeatCount the number of repeats
+	 * @return the text of a summary of the repeats
+	 */
+	static String describe(String text, long repeatCount){
+		return text + " (repeated " + repeatCount + " times)";
+	}
+}
@@ -0,0 +1,30 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth;
+
+import tollbooth.TollGate.Action;
+
+/**
+ * A RetryPolicy decides how many times a TollGate attempts an action before the gate
+ * is declared unrecoverable, and how long it waits between attempts.
+ **/
+public interface RetryPolicy {
+
+	/**
+	 * @param act the action being attempted
+	 * @return the number of attempts, including the first, before the action is
+	 *  declared an unrecoverable malfunction. Must be at least 1.
+	 */
+	int getMaxAttempts(Action act);
+
+	/**
+	 * @param act the action being attempted
+	 * @param failedAttempts the number of attempts that have failed so far
+	 * @return the number of nanoseconds to wait before the next attempt, or zero to
+	 *  attempt again immediately
+	 */
+	long getBackoffNanos(Action act, int failedAttempts);
+}
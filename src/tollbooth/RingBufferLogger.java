@@ -0,0 +1,318 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * The RingBufferLogger is a bounded, lock-free implementation of the SimpleLogger
+ * interface. Messages are stored in a preallocated ring whose capacity is a power of
+ * two, so many TollGates may call accept() concurrently without locking and without
+ * allocating a queue node per message. Messages are normally removed by a single
+ * drainer thread.
+ *
+ * When the ring is full the configured OverflowPolicy decides what happens to the
+ * incoming message, and every message that is thrown away is counted.
+ *
+ * The drainTo() methods claim every published message up to the limit with a single
+ * CAS on the head of the ring, rather than one per message.
+ *
+ * A stamped ring also keeps a long in each slot beside the message, such as the time
+ * the message was accepted, so it can travel with the message without a wrapper.
+ **/
+public class RingBufferLogger implements SimpleLogger {
+
+	/**
+	 * Specifies what accept() does when the ring is full
+	 */
+	public enum OverflowPolicy{
+		/** Discard the oldest queued message to make room for the new one */
+		DROP_OLDEST,
+		/** Discard the new message and keep the queued ones */
+		DROP_NEWEST,
+		/** Wait until the drainer makes room for the new message */
+		BLOCK
+	}
+
+	/** Capacity used by the no-argument constructor */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	private final LogMessage[] messages;
+	private final long[] stamps;
+	private final AtomicLongArray sequences;
+	private final int mask;
+	private final AtomicLong head;
+	private final AtomicLong tail;
+	private final AtomicLong dropCount;
+	private final OverflowPolicy policy;
+
+	/**
+	 * Creates a RingBufferLogger with the default capacity that drops the oldest
+	 * message when it is full.
+	 */
+	public RingBufferLogger(){
+		this(DEFAULT_CAPACITY, OverflowPolicy.DROP_OLDEST);
+	}
+
+	/**
+	 * Creates a RingBufferLogger.
+	 * @param capacity the minimum number of messages the ring can hold. It is rounded up
+	 *  to the next power of two, and to at least 2: the slot sequences of a one-slot ring
+	 *  cannot tell a full slot from an empty one.
+	 * @param policy what to do with a message that arrives while the ring is full
+	 */
+	public RingBufferLogger(int capacity, OverflowPolicy policy){
+		this(capacity, policy, false);
+	}
+
+	/**
+	 * Creates a RingBufferLogger that may keep a stamp with each message.
+	 * @param capacity the minimum number of messages the ring can hold. It is rounded up
+	 *  to the next power of two, and to at least 2.
+	 * @param policy what to do with a message that arrives while the ring is full
+	 * @param stamped true to keep the stamp passed to accept(LogMessage, long) with each
+	 *  message; false to ignore stamps and save a long per slot
+	 */
+	public RingBufferLogger(int capacity, OverflowPolicy policy, boolean stamped){
+		if(capacity < 1 || capacity > (1 << 30)){
+			throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+		}
+		if(policy == null){
+			throw new IllegalArgumentException("policy must not be null");
+		}
+		final int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+		messages = new LogMessage[size];
+		stamps = stamped ? new long[size] : null;
+		sequences = new AtomicLongArray(size);
+		for(int i = 0; i < size; i++){
+			sequences.set(i, i);
+		}
+		mask = size - 1;
+		head = new AtomicLong();
+		tail = new AtomicLong();
+		dropCount = new AtomicLong();
+		this.policy = policy;
+	}
+
+	@Override
+	public void accept(LogMessage message) {
+		accept(message, 0);
+	}
+
+	/**
+	 * Accepts a message together with a stamp, which drainTo(LogMessage[], long[], int,
+	 * int) hands back with it. The stamp is dropped unless the ring is stamped.
+	 * @param message the message to add
+	 * @param stamp the value kept with the message, for example the time it was accepted
+	 */
+	public void accept(LogMessage message, long stamp) {
+		while(!offer(message, stamp)){
+			switch(policy){
+				case DROP_OLDEST:
+					//Make room by discarding the oldest message, then try again
+					if(poll() != null){
+						dropCount.incrementAndGet();
+					}
+					break;
+				case DROP_NEWEST:
+					dropCount.incrementAndGet();
+					return;
+				case BLOCK:
+					LockSupport.parkNanos(1000L);
+					break;
+			}
+		}
+	}
+
+	@Override
+	public LogMessage getNextMessage() {
+		return poll();
+	}
+
+	@Override
+	public int drainTo(Consumer<? super LogMessage> consumer, int maxMessages) {
+		if(maxMessages < 0){
+			throw new IllegalArgumentException("maxMessages must not be negative");
+		}
+		return drain(consumer, null, null, 0, maxMessages);
+	}
+
+	@Override
+	public int drainTo(LogMessage[] target, int offset, int maxMessages) {
+		if(offset < 0 || maxMessages < 0 || maxMessages > target.length - offset){
+			throw new IndexOutOfBoundsException("offset " + offset + ", maxMessages " + maxMessages
+					+ ", length " + target.length);
+		}
+		return drain(null, target, null, offset, maxMessages);
+	}
+
+	/**
+	 * Removes up to maxMessages messages and stores them and their stamps in arrays.
+	 * @param target the array the messages are stored in, oldest first
+	 * @param targetStamps the array the stamps are stored in, at the same index as their
+	 *  message; 0 for each message if the ring is not stamped
+	 * @param offset the index of the first element of both arrays to fill
+	 * @param maxMessages the largest number of messages to remove
+	 * @return the number of messages removed
+	 */
+	public int drainTo(LogMessage[] target, long[] targetStamps, int offset, int maxMessages) {
+		if(offset < 0 || maxMessages < 0 || maxMessages > target.length - offset
+				|| maxMessages > targetStamps.length - offset){
+			throw new IndexOutOfBoundsException("offset " + offset + ", maxMessages " + maxMessages
+					+ ", length " + Math.min(target.length, targetStamps.length));
+		}
+		return drain(null, target, targetStamps, offset, maxMessages);
+	}
+
+	/**
+	 * Claims the run of published messages at the head of the ring, up to maxMessages,
+	 * and removes them. Exactly one of consumer and target is used.
+	 * @param consumer receives the messages, or null to store them in target
+	 * @param target the array to store the messages in
+	 * @param targetStamps the array to store the stamps in, or null
+	 * @param offset the first index of target to fill
+	 * @param maxMessages the largest number of messages to remove
+	 * @return the number of messages removed
+	 */
+	private int drain(Consumer<? super LogMessage> consumer, LogMessage[] target,
+			long[] targetStamps, int offset, int maxMessages){
+		final int limit = Math.min(maxMessages, messages.length);
+		long pos;
+		int count;
+		do{
+			pos = head.get();
+			count = 0;
+			while(count < limit && sequences.get((int) (pos + count) & mask) == pos + count + 1){
+				count++;
+			}
+			if(count == 0){
+				return 0;
+			}
+		} while(!head.compareAndSet(pos, pos + count));
+
+		int released = 0;
+		try{
+			while(released < count){
+				final int index = (int) (pos + released) & mask;
+				final LogMessage message = messages[index];
+				final long stamp = stamps == null ? 0 : stamps[index];
+				messages[index] = null;
+				sequences.lazySet(index, pos + released + mask + 1);
+				released++;
+				if(consumer != null){
+					consumer.accept(message);
+				} else{
+					target[offset + released - 1] = message;
+					if(targetStamps != null){
+						targetStamps[offset + released - 1] = stamp;
+					}
+				}
+			}
+		} finally{
+			//A consumer that throws loses the rest of the batch, but the slots must
+			//still be handed back or the producers would wait for them forever
+			for(int i = released; i < count; i++){
+				final int index = (int) (pos + i) & mask;
+				messages[index] = null;
+				sequences.lazySet(index, pos + i + mask + 1);
+				dropCount.incrementAndGet();
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Attempts to claim a slot at the tail of the ring and store the message in it.
+	 * @param message the message to store
+	 * @param stamp the stamp to keep with it, if the ring is stamped
+	 * @return false if the ring is full
+	 */
+	private boolean offer(LogMessage message, long stamp){
+		long pos = tail.get();
+		while(true){
+			final int index = (int) pos & mask;
+			final long difference = sequences.get(index) - pos;
+			if(difference == 0){
+				if(tail.compareAndSet(pos, pos + 1)){
+					messages[index] = message;
+					if(stamps != null){
+						stamps[index] = stamp;
+					}
+					//Publish the slot to the consumer
+					sequences.lazySet(index, pos + 1);
+					return true;
+				}
+				pos = tail.get();
+			} else if(difference < 0){
+				return false;
+			} else{
+				pos = tail.get();
+			}
+		}
+	}
+
+	/**
+	 * Attempts to claim the slot at the head of the ring and remove its message.
+	 * A CAS is used on the head even though there is normally one drainer, because
+	 * producers also remove messages under the DROP_OLDEST policy.
+	 * @return the oldest message, or null if the ring is empty
+	 */
+	private LogMessage poll(){
+		long pos = head.get();
+		while(true){
+			final int index = (int) pos & mask;
+			final long difference = sequences.get(index) - (pos + 1);
+			if(difference == 0){
+				if(head.compareAndSet(pos, pos + 1)){
+					final LogMessage message = messages[index];
+					messages[index] = null;
+					//Hand the slot back to the producers for the next lap
+					sequences.lazySet(index, pos + mask + 1);
+					return message;
+				}
+				pos = head.get();
+			} else if(difference < 0){
+				return null;
+			} else{
+				pos = head.get();
+			}
+		}
+	}
+
+	/**
+	 * Returns the approximate number of messages in the ring. The value may already
+	 * be stale when it is returned if other threads are logging.
+	 * @return the number of LogMessage objects waiting in the ring
+	 */
+	public int logSize(){
+		final long size = tail.get() - head.get();
+		return (int) Math.max(0, Math.min(size, messages.length));
+	}
+
+	/**
+	 * @return the number of messages the ring can hold
+	 */
+	public int getCapacity(){
+		return messages.length;
+	}
+
+	/**
+	 * @return the overflow policy of this logger
+	 */
+	public OverflowPolicy getOverflowPolicy(){
+		return policy;
+	}
+
+	/**
+	 * @return the number of messages that have been discarded because the ring was full
+	 */
+	public long getDropCount(){
+		return dropCount.get();
+	}
+}
@@ -0,0 +1,370 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * The ShardedLogger is a SimpleLogger that gives every logging thread its own bounded
+ * buffer, so lanes that share the logger never contend on one queue head. A shard has
+ * a single writer, which publishes a message with one ordered store and no CAS.
+ *
+ * Each message is stamped with System.nanoTime() when it is accepted. getNextMessage()
+ * and drainTo() merge the shards on read, always removing the oldest visible message,
+ * so messages leave in the order they were accepted. Messages from one thread always
+ * keep their order; a message that is stamped just before a drain but published just
+ * after it is removed by the next drain instead.
+ *
+ * A shard that is full discards the new message and counts it. The shard of a thread
+ * that has ended is removed once it has been drained. getShardDepths() shows how many
+ * messages each shard holds, and the last gate that wrote to it, so a hot lane is
+ * visible.
+ **/
+public class ShardedLogger implements SimpleLogger {
+
+	/** Shard capacity used by the no-argument constructor */
+	public static final int DEFAULT_SHARD_CAPACITY = 1024;
+
+	private static final Shard[] NO_SHARDS = new Shard[0];
+
+	private final int shardCapacity;
+	private final ThreadLocal<Shard> localShard;
+	private volatile Shard[] shards;
+	private long removedDropCount;
+
+	/**
+	 * Creates a ShardedLogger with the default shard capacity.
+	 */
+	public ShardedLogger(){
+		this(DEFAULT_SHARD_CAPACITY);
+	}
+
+	/**
+	 * Creates a ShardedLogger.
+	 * @param shardCapacity the minimum number of messages each thread's shard can hold.
+	 *  It is rounded up to the next power of two.
+	 */
+	public ShardedLogger(int shardCapacity){
+		if(shardCapacity < 1 || shardCapacity > (1 << 30)){
+			throw new IllegalArgumentException("shardCapacity must be between 1 and 2^30");
+		}
+		this.shardCapacity = shardCapacity == 1 ? 1 : Integer.highestOneBit(shardCapacity - 1) << 1;
+		localShard = ThreadLocal.withInitial(this::register);
+		shards = NO_SHARDS;
+	}
+
+	@Override
+	public void accept(LogMessage message) {
+		localShard.get().offer(message, System.nanoTime());
+	}
+
+	@Override
+	public synchronized LogMessage getNextMessage() {
+		final Shard[] current = shards;
+		Shard oldest = null;
+		long oldestStamp = 0;
+		for(Shard shard : current){
+			final long head = shard.head.get();
+			if(head != shard.tail.get()){
+				final long stamp = shard.stamps[(int) head & shard.mask];
+				if(oldest == null || stamp - oldestStamp < 0){
+					oldest = shard;
+					oldestStamp = stamp;
+				}
+			}
+		}
+		if(oldest == null){
+			removeEndedShards();
+			return null;
+		}
+		return oldest.poll();
+	}
+
+	@Override
+	public int drainTo(Consumer<? super LogMessage> consumer, int maxMessages) {
+		if(maxMessages < 0){
+			throw new IllegalArgumentException("maxMessages must not be negative");
+		}
+		return drain(consumer, null, 0, maxMessages);
+	}
+
+	@Override
+	public int drainTo(LogMessage[] target, int offset, int maxMessages) {
+		if(offset < 0 || maxMessages < 0 || maxMessages > target.length - offset){
+			throw new IndexOutOfBoundsException("offset " + offset + ", maxMessages " + maxMessages
+					+ ", length " + target.length);
+		}
+		return drain(null, target, offset, maxMessages);
+	}
+
+	/**
+	 * Merges the messages visible in every shard, oldest first. The tail of each shard is
+	 * read once and its head is written once, so a batch costs two ordered accesses per
+	 * shard rather than per message. Exactly one of consumer and target is used.
+	 * @param consumer receives the messages, or null to store them in target
+	 * @param target the array to store the messages in
+	 * @param offset the first index of target to fill
+	 * @param maxMessages the largest number of messages to remove
+	 * @return the number of messages removed
+	 */
+	private synchronized int drain(Consumer<? super LogMessage> consumer, LogMessage[] target,
+			int offset, int maxMessages){
+		final Shard[] current = shards;
+		final long[] heads = new long[current.length];
+		final long[] tails = new long[current.length];
+		for(int i = 0; i < current.length; i++){
+			heads[i] = current[i].head.get();
+			tails[i] = current[i].tail.get();
+		}
+		int count = 0;
+		try{
+			while(count < maxMessages){
+				int oldest = -1;
+				long oldestStamp = 0;
+				for(int i = 0; i < current.length; i++){
+					if(heads[i] != tails[i]){
+						final long stamp = current[i].stamps[(int) heads[i] & current[i].mask];
+						if(oldest < 0 || stamp - oldestStamp < 0){
+							oldest = i;
+							oldestStamp = stamp;
+						}
+					}
+				}
+				if(oldest < 0){
+					break;
+				}
+				final Shard shard = current[oldest];
+				final int index = (int) heads[oldest]++ & shard.mask;
+				final LogMessage message = shard.messages[index];
+				shard.messages[index] = null;
+				count++;
+				if(consumer != null){
+					consumer.accept(message);
+				} else{
+					target[offset + count - 1] = message;
+				}
+			}
+		} finally{
+			//Hand the slots back even if the consumer threw
+			for(int i = 0; i < current.length; i++){
+				current[i].head.lazySet(heads[i]);
+			}
+			removeEndedShards();
+		}
+		return count;
+	}
+
+	/**
+	 * Creates the shard of the calling thread and adds it to the shards that are merged.
+	 * @return the new shard
+	 */
+	private synchronized Shard register(){
+		final Shard shard = new Shard(Thread.currentThread(), shardCapacity);
+		final Shard[] current = shards;
+		final Shard[] grown = Arrays.copyOf(current, current.length + 1);
+		grown[current.length] = shard;
+		shards = grown;
+		return shard;
+	}
+
+	/**
+	 * Removes the shards of threads that have ended once they are empty. Such a shard
+	 * can never be written again.
+	 */
+	private void removeEndedShards(){
+		final Shard[] current = shards;
+		Shard[] remaining = null;
+		int kept = 0;
+		for(int i = 0; i < current.length; i++){
+			final Shard shard = current[i];
+			if(shard.owner.isAlive() || shard.head.get() != shard.tail.get()){
+				if(remaining != null){
+					remaining[kept] = shard;
+				}
+				kept++;
+			} else{
+				if(remaining == null){
+					remaining = Arrays.copyOf(current, current.length);
+				}
+				removedDropCount += shard.dropCount;
+			}
+		}
+		if(remaining != null){
+			shards = Arrays.copyOf(remaining, kept);
+		}
+	}
+
+	/**
+	 * Returns the approximate number of messages in every shard. The value may already
+	 * be stale when it is returned if other threads are logging.
+	 * @return the number of LogMessage objects waiting
+	 */
+	public int logSize(){
+		long size = 0;
+		for(Shard shard : shards){
+			size += shard.depth();
+		}
+		return (int) Math.min(size, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @return the number of messages each thread's shard can hold
+	 */
+	public int getShardCapacity(){
+		return shardCapacity;
+	}
+
+	/**
+	 * @return the number of shards, which is the number of threads that have logged and
+	 *  have either not ended or still have messages waiting
+	 */
+	public int getShardCount(){
+		return shards.length;
+	}
+
+	/**
+	 * @return the number of messages that have been discarded because a shard was full
+	 */
+	public synchronized long getDropCount(){
+		long dropped = removedDropCount;
+		for(Shard shard : shards){
+			dropped += shard.dropCount;
+		}
+		return dropped;
+	}
+
+	/**
+	 * Takes a snapshot of every shard, deepest first.
+	 * @return the depth and counters of each shard
+	 */
+	public List<ShardDepth> getShardDepths(){
+		final Shard[] current = shards;
+		final List<ShardDepth> depths = new ArrayList<ShardDepth>(current.length);
+		for(Shard shard : current){
+			depths.add(new ShardDepth(shard.owner.getName(), shard.lastGateId, shard.depth(),
+					shard.tail.get(), shard.dropCount));
+		}
+		Collections.sort(depths, (a, b) -> Integer.compare(b.getDepth(), a.getDepth()));
+		return depths;
+	}
+
+	/**
+	 * The buffer of one logging thread. Only the owner writes the tail, the stamps and
+	 * the drop counter; only the drainer, holding the logger's lock, writes the head.
+	 */
+	private static final class Shard{
+		final Thread owner;
+		final LogMessage[] messages;
+		final long[] stamps;
+		final int mask;
+		final AtomicLong tail;
+		final AtomicLong head;
+		//The owner's last reading of head, so it only reads the drainer's field when full
+		long cachedHead;
+		volatile long dropCount;
+		volatile int lastGateId;
+
+		Shard(Thread owner, int capacity){
+			this.owner = owner;
+			messages = new LogMessage[capacity];
+			stamps = new long[capacity];
+			mask = capacity - 1;
+			tail = new AtomicLong();
+			head = new AtomicLong();
+			lastGateId = TollGate.NO_GATE_ID;
+		}
+
+		void offer(LogMessage message, long stamp){
+			final long pos = tail.get();
+			if(pos - cachedHead == messages.length){
+				cachedHead = head.get();
+				if(pos - cachedHead == messages.length){
+					dropCount++;
+					return;
+				}
+			}
+			final int index = (int) pos & mask;
+			messages[index] = message;
+			stamps[index] = stamp;
+			lastGateId = message.getGateId();
+			//Publish the slot to the drainer
+			tail.lazySet(pos + 1);
+		}
+
+		LogMessage poll(){
+			final long pos = head.get();
+			final int index = (int) pos & mask;
+			final LogMessage message = messages[index];
+			messages[index] = null;
+			head.lazySet(pos + 1);
+			return message;
+		}
+
+		int depth(){
+			final long depth = tail.get() - head.get();
+			return (int) Math.max(0, Math.min(depth, messages.length));
+		}
+	}
+
+	/**
+	 * An immutable snapshot of one shard
+	 */
+	public static final class ShardDepth{
+		private final String threadName;
+		private final int lastGateId;
+		private final int depth;
+		private final long acceptedCount;
+		private final long dropCount;
+
+		ShardDepth(String threadName, int lastGateId, int depth, long acceptedCount, long dropCount){
+			this.threadName = threadName;
+			this.lastGateId = lastGateId;
+			this.depth = depth;
+			this.acceptedCount = acceptedCount;
+			this.dropCount = dropCount;
+		}
+
+		/**
+		 * @return the name of the thread that writes to the shard
+		 */
+		public String getThreadName(){
+			return threadName;
+		}
+
+		/**
+		 * @return the ID of the gate of the last message written, or TollGate.NO_GATE_ID
+		 */
+		public int getLastGateId(){
+			return lastGateId;
+		}
+
+		/**
+		 * @return the number of messages waiting in the shard
+		 */
+		public int getDepth(){
+			return depth;
+		}
+
+		/**
+		 * @return the number of messages the shard has stored since it was created
+		 */
+		public long getAcceptedCount(){
+			return acceptedCount;
+		}
+
+		/**
+		 * @return the number of messages the shard discarded because it was full
+		 */
+		public long getDropCount(){
+			return dropCount;
+		}
+	}
+}
@@ -12,6 +12,9 @@
 
 package tollbooth;
 
+import java.util.Collection;
+import java.util.function.Consumer;
+
 /**
  * The TollboothLogger implements a FIFO queue that only allows a message to be added
  * and removed from the queue. The implementation of the logger may vary depending upon
@@ -31,4 +34,58 @@ public interface SimpleLogger
 	 * @return the LogMessage object or null if there is no object in the queue
 	 */
 	LogMessage getNextMessage();
+
+	/**
+	 * Remove up to maxMessages messages from the message queue, oldest first, and hand
+	 * each one to the consumer. Implementations override this to remove a whole batch
+	 * for the cost of one synchronization instead of one per message.
+	 * @param consumer receives the messages in queue order
+	 * @param maxMessages the largest number of messages to remove
+	 * @return the number of messages removed
+	 */
+	default int drainTo(Consumer<? super LogMessage> consumer, int maxMessages)
+	{
+		if(maxMessages < 0){
+			throw new IllegalArgumentException("maxMessages must not be negative");
+		}
+		int count = 0;
+		LogMessage message;
+		while(count < maxMessages && (message = getNextMessage()) != null){
+			consumer.accept(message);
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Remove up to maxMessages messages from the message queue and add them to a collection.
+	 * @param target the collection the messages are added to, in queue order
+	 * @param maxMessages the largest number of messages to remove
+	 * @return the number of messages removed
+	 */
+	default int drainTo(Collection<? super LogMessage> target, int maxMessages)
+	{
+		return drainTo(target::add, maxMessages);
+	}
+
+	/**
+	 * Remove up to maxMessages messages from the message queue and store them in an array.
+	 * @param target the array the messages are stored in, in queue order
+	 * @param offset the index of the first element of target to fill
+	 * @param maxMessages the largest number of messages to remove
+	 * @return the number of messages removed, and so the number of elements filled
+	 */
+	default int drainTo(LogMessage[] target, int offset, int maxMessages)
+	{
+		if(offset < 0 || maxMessages < 0 || maxMessages > target.length - offset){
+			throw new IndexOutOfBoundsException("offset " + offset + ", maxMessages " + maxMessages
+					+ ", length " + target.length);
+		}
+		int count = 0;
+		LogMessage message;
+		while(count < maxMessages && (message = getNextMessage()) != null){
+			target[offset + count++] = message;
+		}
+		return count;
+	}
 }
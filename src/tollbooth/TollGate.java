@@ -12,6 +12,14 @@
 
 package tollbooth;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import tollbooth.LogCatalogue.Outcome;
 import tollbooth.gatecontroller.GateController;
 
 /**
@@ -20,25 +28,85 @@ import tollbooth.gatecontroller.GateController;
  */
 public class TollGate
 {
+	/** The ID of a gate that was not given one */
+	public static final int NO_GATE_ID = 0;
+	
+	private final int gateId;
+	private final LogCatalogue catalogue;
 	private final GateController controller;
 	private final SimpleLogger logger;
-	private int openCount;
-	private int closeCount;
-	private final int maxFailures;
-	private boolean unresponsiveMode;
-	private boolean resetNotResponding;
+	private final Executor executor;
+	private final GateCommandQueue commandQueue;
+	private final RetryPolicy retryPolicy;
+	private final LongAdder openCount;
+	private final LongAdder closeCount;
+	private final LongAdder resetCount;
+	private final LongAdder malfunctionCount;
+	private final LongAdder retryCount;
+	private volatile boolean unresponsiveMode;
+	private volatile boolean resetNotResponding;
+	private volatile GateMetrics metrics;
+	private volatile GateEventLog eventLog;
+	private volatile DesiredState desiredState;
 	
 	/**
 	 * Constructor that takes the actual gate controller and the logger.
+	 * Asynchronous commands run on the shared default executor.
 	 * @param controller the GateController object.
 	 * @param logger the SimpleLogger object.
 	 */
 	public TollGate(GateController controller, SimpleLogger logger) {
+		this(controller, logger, GateCommandQueue.defaultExecutor());
+	}
+	
+	/**
+	 * Constructor that takes the actual gate controller, the logger and the executor
+	 * that runs asynchronous commands.
+	 * @param controller the GateController object.
+	 * @param logger the SimpleLogger object.
+	 * @param executor the Executor that runs the commands submitted by the async methods.
+	 */
+	public TollGate(GateController controller, SimpleLogger logger, Executor executor) {
+		this(controller, logger, executor,
+				BackoffRetryPolicy.immediate(BackoffRetryPolicy.DEFAULT_MAX_ATTEMPTS));
+	}
+	
+	/**
+	 * Constructor that takes the actual gate controller, the logger, the executor
+	 * that runs asynchronous commands and the policy for retrying failed actions.
+	 * @param controller the GateController object.
+	 * @param logger the SimpleLogger object.
+	 * @param executor the Executor that runs the commands submitted by the async methods.
+	 * @param retryPolicy decides how often and how quickly failed actions are retried.
+	 */
+	public TollGate(GateController controller, SimpleLogger logger, Executor executor,
+			RetryPolicy retryPolicy) {
+		this(NO_GATE_ID, controller, logger, executor, retryPolicy);
+	}
+	
+	/**
+	 * Constructor that also gives the gate an ID, which is carried by every
+	 * LogMessage the gate produces.
+	 * @param gateId the ID of the gate.
+	 * @param controller the GateController object.
+	 * @param logger the SimpleLogger object.
+	 * @param executor the Executor that runs the commands submitted by the async methods.
+	 * @param retryPolicy decides how often and how quickly failed actions are retried.
+	 */
+	public TollGate(int gateId, GateController controller, SimpleLogger logger, Executor executor,
+			RetryPolicy retryPolicy) {
+		this.gateId = gateId;
+		catalogue = LogCatalogue.forGate(gateId);
 		this.controller = controller;
 		this.logger = logger;
-		openCount = 0;
-		closeCount = 0;
-		maxFailures = 3;
+		this.executor = executor;
+		commandQueue = new GateCommandQueue(executor);
+		this.retryPolicy = retryPolicy;
+		openCount = new LongAdder();
+		closeCount = new LongAdder();
+		resetCount = new LongAdder();
+		malfunctionCount = new LongAdder();
+		retryCount = new LongAdder();
 		unresponsiveMode = false;
 	}
 	
@@ -49,6 +117,13 @@ public class TollGate
 		OPEN, CLOSE, RESET
 	}
 	
+	/**
+	 * Specifies the states a gate can be asked to reach by reconciliation
+	 */
+	public enum DesiredState{
+		OPEN, CLOSED
+	}
+	
 	/**
 	 * Open the gate.
 	 * @throws TollboothException
@@ -83,6 +158,101 @@ public class TollGate
 		this.actionDispatch(controller, Action.RESET);
 	}
 	
+	/**
+	 * Queue an open of the gate and return without waiting for the controller.
+	 * Commands submitted through the async methods run one at a time, in the
+	 * order they were submitted. The waits between retries are scheduled, so no
+	 * thread is blocked while the gate backs off.
+	 * @return a future that completes when the gate has opened, or exceptionally
+	 *  with the TollboothException that open() would have thrown
+	 */
+	public CompletableFuture<Void> openAsync()
+	{
+		return commandQueue.submitAsync(() -> dispatchAsync(Action.OPEN));
+	}
+	
+	/**
+	 * Queue a close of the gate and return without waiting for the controller.
+	 * @return a future that completes when the gate has closed, or exceptionally
+	 *  with the TollboothException that close() would have thrown
+	 */
+	public CompletableFuture<Void> closeAsync()
+	{
+		return commandQueue.submitAsync(() -> dispatchAsync(Action.CLOSE));
+	}
+	
+	/**
+	 * Queue a reset of the gate and return without waiting for the controller.
+	 * @return a future that completes when the gate has been reset, or exceptionally
+	 *  with the TollboothException that reset() would have thrown
+	 */
+	public CompletableFuture<Void> resetAsync()
+	{
+		return commandQueue.submitAsync(() -> dispatchAsync(Action.RESET));
+	}
+	
+	/**
+	 * Sets the state the gate should be in. This only writes a volatile field; the
+	 * state is reached when the gate is next reconciled, for example by a
+	 * GateReconciler, so the caller never waits for the hardware.
+	 * @param state the desired state, or null to stop reconciling the gate
+	 */
+	public void setDesiredState(DesiredState state)
+	{
+		desiredState = state;
+	}
+	
+	/**
+	 * @return the state the gate should be in, or null if it is not reconciled
+	 */
+	public DesiredState getDesiredState()
+	{
+		return desiredState;
+	}
+	
+	/**
+	 * Queue a command that brings the gate to its desired state. The desired state is
+	 * read when the command runs, so the latest one wins. The command behaves like
+	 * openAsync() or closeAsync(), including their check of the controller, their
+	 * retries and unresponsive mode.
+	 * @return a future that completes when the gate is in the desired state, or at once
+	 *  if there is no desired state
+	 */
+	public CompletableFuture<Void> reconcileAsync()
+	{
+		return commandQueue.submitAsync(() -> {
+			final DesiredState target = desiredState;
+			if(target == null){
+				return CompletableFuture.completedFuture(null);
+			}
+			return dispatchAsync(target == DesiredState.OPEN ? Action.OPEN : Action.CLOSE);
+		});
+	}
+	
+	/**
+	 * @return the ID of the gate, or NO_GATE_ID
+	 */
+	public int getGateId()
+	{
+		return gateId;
+	}
+	
+	/**
+	 * @return the policy used to retry failed actions
+	 */
+	public RetryPolicy getRetryPolicy()
+	{
+		return retryPolicy;
+	}
+	
+	/**
+	 * @return the number of asynchronous commands that have not finished yet
+	 */
+	public int getPendingCommandCount()
+	{
+		return commandQueue.getPendingCount();
+	}
+	
 	/**
 	 * runs a method from the controller API based on the action passed to it
 	 * @param act an enum specifying which action to take
@@ -93,15 +263,16 @@ public class TollGate
 				case OPEN:
 					controller.open();
 					//Increment if no exception thrown
-					openCount++;
+					openCount.increment();
 					break;
 				case CLOSE:
 					controller.close();
 					//Increment if no exception thrown
-					closeCount++;
+					closeCount.increment();
 					break;
 				case RESET:
 					controller.reset();
+					resetCount.increment();
 					//Set unresponsive mode back to false
 					unresponsiveMode = false;
 					resetNotResponding = false;
@@ -110,57 +281,200 @@ public class TollGate
 	}
 	
 	/**
-	 * Attempts to run the specified action up to maxFailure times.
+	 * Runs a method from the controller API based on the action passed to it, and
+	 * reports a failure as a result instead of an exception.
+	 * @param act an enum specifying which action to take
+	 * @return true if the action succeeded
+	 */
+	private boolean tryControllerAction(Action act){
+		switch(act){
+			case OPEN:
+				if(!controller.tryOpen()){
+					return false;
+				}
+				openCount.increment();
+				return true;
+			case CLOSE:
+				if(!controller.tryClose()){
+					return false;
+				}
+				closeCount.increment();
+				return true;
+			case RESET:
+				if(!controller.tryReset()){
+					return false;
+				}
+				resetCount.increment();
+				unresponsiveMode = false;
+				resetNotResponding = false;
+				return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Attempts to run the specified action until it succeeds or the retry policy
+	 * runs out of attempts.
 	 * This method also produces log messages detailing the status 
 	 * of the actions and whether or not they executed successfully.
+	 * Messages come from the LogCatalogue, so no text is formatted here.
+	 * The caller is already waiting for the gate, so the backoff between
+	 * attempts parks the calling thread. The async methods schedule it instead.
 	 * @param controller the GateController object
 	 * @param act the action to perform on the controller
 	 * @throws TollboothException
 	 */
 	public void actionDispatch(GateController controller, Action act) throws TollboothException{
-		String logMessage;
-		String actionName = this.getActionName(act);
-		
-		//Attempt to close until success or until maxFailures attempts
-		for(int attempt = 1; attempt <= maxFailures; attempt++){
-			try{
-				//if in unresponsive mode, throw exception unless action is reset
-				if(unresponsiveMode && act != Action.RESET){
-					logMessage = String.format("%s: will not respond", actionName);
-					throw new TollboothException(logMessage);
+		checkResponsive(act);
+		for(int attempt = 1; !this.attempt(act, attempt); attempt++){
+			final long backoff = retryPolicy.getBackoffNanos(act, attempt);
+			if(backoff > 0){
+				LockSupport.parkNanos(backoff);
+			}
+		}
+	}
+	
+	/**
+	 * Throws and logs a TollboothException if the gate is in unresponsive mode,
+	 * unless the action is a reset.
+	 * @param act the action about to be attempted
+	 * @throws TollboothException
+	 */
+	private void checkResponsive(Action act) throws TollboothException{
+		if(unresponsiveMode && act != Action.RESET){
+			logger.accept(catalogue.messageWithException(act, Outcome.WILL_NOT_RESPOND));
+			throw LogCatalogue.getException(act, Outcome.WILL_NOT_RESPOND);
+		}
+	}
+	
+	/**
+	 * Makes one attempt at an action and logs its outcome. Controller failures are
+	 * reported by the try methods, so no exception is created for a malfunction.
+	 * @param act the action to perform on the controller
+	 * @param attempt the number of this attempt, starting at 1
+	 * @return true if the action is finished, either because it succeeded or because
+	 *  this was the last attempt; false if it should be attempted again
+	 * @throws TollboothException
+	 */
+	private boolean attempt(Action act, int attempt) throws TollboothException{
+		if(attempt > 1){
+			retryCount.increment();
+		}
+		final GateMetrics currentMetrics = metrics;
+		final boolean timed = currentMetrics != null && currentMetrics.sampleNext();
+		final long start = timed ? System.nanoTime() : 0;
+		//make a call to the gate controller API
+		final boolean succeeded = this.tryControllerAction(act);
+		if(currentMetrics != null){
+			if(timed){
+				currentMetrics.recordLatency(act, System.nanoTime() - start);
+			}
+			currentMetrics.recordAttempt(act, !succeeded);
+		}
+		if(succeeded){
+			//Log successful action taken
+			logOutcome(act, Outcome.SUCCESSFUL);
+			return true;
+		}
+		malfunctionCount.increment();
+		//If action is 'reset' and the last reset was unrecoverable, throw an exception
+		if(act == Action.RESET && resetNotResponding){
+			logOutcome(act, Outcome.WILL_NOT_RESPOND);
+			throw LogCatalogue.getException(act, Outcome.WILL_NOT_RESPOND);
+		}
+		//If this is the last try of an action, set unrecoverable mode
+		if(attempt >= retryPolicy.getMaxAttempts(act)){
+			logOutcome(act, Outcome.UNRECOVERABLE_MALFUNCTION);
+			unresponsiveMode = true;
+			if(currentMetrics != null){
+				currentMetrics.recordUnrecoverable(act);
+			}
+			//If this is the last attempt of reset, set 'resetNotResponding'
+			if(act == Action.RESET){
+				resetNotResponding = true;
+			}
+			return true;
+		}
+		//Otherwise just log another malfunction
+		logOutcome(act, Outcome.MALFUNCTION);
+		return false;
+	}
+	
+	/**
+	 * Logs the outcome of an attempt and records it in the event log, if there is one.
+	 * @param act the action that was attempted
+	 * @param outcome the outcome of the attempt
+	 */
+	private void logOutcome(Action act, Outcome outcome){
+		logger.accept(catalogue.message(act, outcome));
+		final GateEventLog events = eventLog;
+		if(events != null){
+			events.record(act, outcome);
+		}
+	}
+	
+	/**
+	 * Starts an action for one of the async methods. Behaves like open(), close()
+	 * or reset(), except that the waits between attempts are scheduled.
+	 * @param act the action to perform on the controller
+	 * @return a future that completes when the action is finished
+	 */
+	private CompletableFuture<Void> dispatchAsync(Action act){
+		final CompletableFuture<Void> result = new CompletableFuture<Void>();
+		try{
+			if((act == Action.OPEN && controller.isOpen())
+					|| (act == Action.CLOSE && !controller.isOpen())){
+				result.complete(null);
+				return result;
+			}
+			checkResponsive(act);
+			attemptAsync(act, 1, result);
+		} catch(Throwable e){
+			result.completeExceptionally(e);
+		}
+		return result;
+	}
+	
+	/**
+	 * Makes attempts at an action until it is finished or a backoff is needed, in
+	 * which case the next attempt is scheduled on the shared retry scheduler. Anything
+	 * the controller throws completes the result, since a retry runs with nobody else
+	 * to complete it and the gate's queue waits for the result.
+	 * @param act the action to perform on the controller
+	 * @param firstAttempt the number of the next attempt
+	 * @param result the future to complete when the action is finished
+	 */
+	private void attemptAsync(Action act, int firstAttempt, CompletableFuture<Void> result){
+		try{
+			for(int attempt = firstAttempt; ; attempt++){
+				if(this.attempt(act, attempt)){
+					result.complete(null);
+					return;
 				}
-				//make a call to the gate controller API
-				this.takeControllerAction(act);
-				//Log successful action taken
-				logMessage = String.format("%s: successful", actionName);
-				logger.accept(new LogMessage(logMessage));
-				return;
-			} catch(TollboothException e) {
-				//Throw the exception if in unresponsive mode and action is not reset
-				if(unresponsiveMode && act != Action.RESET){
-					logger.accept(new LogMessage(e.getMessage(), e));
-					throw e;
-				//If action is 'reset' and more than 3 malfunctioning resets have been called, throw an exception
-				} else if(act == Action.RESET && resetNotResponding){
-					logMessage = "reset: will not respond";
-					logger.accept(new LogMessage(logMessage));
-					throw new TollboothException(logMessage);
+				final long backoff = retryPolicy.getBackoffNanos(act, attempt);
+				if(backoff > 0){
+					final int nextAttempt = attempt + 1;
+					GateCommandQueue.defaultScheduler().schedule(
+							() -> resumeAsync(act, nextAttempt, result), backoff, TimeUnit.NANOSECONDS);
+					return;
 				}
-				//If this is the third try of an action, set unrecoverable mode
-				if(attempt == maxFailures){
-					logMessage = String.format("%s: unrecoverable malfunction", actionName);
-					logger.accept(new LogMessage(logMessage));
-					unresponsiveMode = true;
-					//If this is the third attempt of reset, set 'resetNotResponding'
-					if(act == Action.RESET){
-						resetNotResponding = true;
-					}
-				//Otherwise just log another malfunction
-				} else{
-					logMessage = String.format("%s: malfunction", actionName);
-					logger.accept(new LogMessage(logMessage));
-				}					
 			}
+		} catch(Throwable e){
+			result.completeExceptionally(e);
+		}
+	}
+	
+	/**
+	 * Hands a scheduled retry from the scheduler thread back to the gate's executor.
+	 * @param act the action to perform on the controller
+	 * @param nextAttempt the number of the next attempt
+	 * @param result the future to complete when the action is finished
+	 */
+	private void resumeAsync(Action act, int nextAttempt, CompletableFuture<Void> result){
+		try{
+			executor.execute(() -> attemptAsync(act, nextAttempt, result));
+		} catch(RejectedExecutionException e){
+			result.completeExceptionally(e);
 		}
 	}
 	
@@ -170,7 +484,7 @@ public class TollGate
 	 * @param act the action to perform
 	 * @return the name of the action
 	 */
-	public String getActionName(Action act){
+	public static String getActionName(Action act){
 		String actionName = "Unknown";
 		switch(act){
 			case OPEN:
@@ -203,18 +517,117 @@ public class TollGate
 	 * @return the number of times that the gate has been opened (that is, the
 	 *  open method has successfully been executed) since the object was created.
 	 */
-	public int getNumberOfOpens()
+	public long getNumberOfOpens()
 	{
-		return openCount;
+		return openCount.sum();
 	}
 	
 	/**
 	 * @return the number of times that the gate has been closed (that is, the
 	 *  close method has successfully been executed) since the object was created.
 	 */
-	public int getNumberOfCloses()
+	public long getNumberOfCloses()
+	{
+		return closeCount.sum();
+	}
+	
+	/**
+	 * @return the number of times that the gate has been reset successfully
+	 *  since the object was created.
+	 */
+	public long getNumberOfResets()
+	{
+		return resetCount.sum();
+	}
+	
+	/**
+	 * @return the number of controller actions that have failed since the
+	 *  object was created.
+	 */
+	public long getNumberOfMalfunctions()
+	{
+		return malfunctionCount.sum();
+	}
+	
+	/**
+	 * @return the number of times that an action has been attempted again after
+	 *  a malfunction since the object was created.
+	 */
+	public long getNumberOfRetries()
+	{
+		return retryCount.sum();
+	}
+	
+	/**
+	 * Starts recording the outcome of every controller call, and the latency of one
+	 * call in every GateMetrics.DEFAULT_SAMPLE_INTERVAL. Until this is called the only
+	 * cost on the hot path is a single volatile read.
+	 * @return the metrics of this gate
+	 */
+	public GateMetrics enableMetrics()
+	{
+		return enableMetrics(GateMetrics.DEFAULT_SAMPLE_INTERVAL);
+	}
+	
+	/**
+	 * Starts recording the outcome of every controller call and the latency of a sample
+	 * of them. If metrics are already enabled they are kept as they are.
+	 * @param sampleInterval time one call in every sampleInterval; 1 times every call
+	 * @return the metrics of this gate
+	 */
+	public synchronized GateMetrics enableMetrics(int sampleInterval)
+	{
+		if(metrics == null){
+			metrics = new GateMetrics(sampleInterval);
+		}
+		return metrics;
+	}
+	
+	/**
+	 * Stops recording metrics and discards the ones recorded so far.
+	 */
+	public synchronized void disableMetrics()
+	{
+		metrics = null;
+	}
+	
+	/**
+	 * @return a snapshot of the metrics of this gate, or null if metrics are not enabled
+	 */
+	public GateMetrics.Snapshot getMetricsSnapshot()
+	{
+		final GateMetrics current = metrics;
+		return current == null ? null : current.snapshot();
+	}
+	
+	/**
+	 * Starts recording every attempt in an event log, from which the state of the gate
+	 * at any earlier point can be rebuilt. Until this is called the only cost on the hot
+	 * path is a single volatile read.
+	 * @return the event log of this gate
+	 */
+	public synchronized GateEventLog enableEventLog()
+	{
+		if(eventLog == null){
+			eventLog = new GateEventLog();
+		}
+		return eventLog;
+	}
+	
+	/**
+	 * Stops recording events and discards the ones recorded so far.
+	 */
+	public synchronized void disableEventLog()
+	{
+		eventLog = null;
+	}
+	
+	/**
+	 * @return the event log of this gate, or null if it is not enabled
+	 */
+	public GateEventLog getEventLog()
 	{
-		return closeCount;
+		return eventLog;
 	}
 	
 	/**
@@ -0,0 +1,376 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import tollbooth.gatecontroller.GateController;
+
+/**
+ * The TollPlaza owns the TollGates of every lane in a plaza. Commands are routed to a
+ * lane by its ID and run asynchronously on a fixed pool of worker threads that all the
+ * lanes share. Each lane runs its own commands one at a time, so a wedged gate holds at
+ * most one worker while the remaining workers keep serving the other lanes.
+ **/
+public class TollPlaza {
+
+	private final ConcurrentHashMap<String, TollGate> lanes;
+	private final SimpleLogger logger;
+	private final ExecutorService workers;
+	private final AtomicInteger nextGateId;
+	private GateReconciler reconciler;
+
+	/**
+	 * Creates a plaza with no lanes.
+	 * @param logger the SimpleLogger shared by lanes that are not given their own. It
+	 *  must be safe to use from several threads, for example a RingBufferLogger.
+	 * @param workerThreads the number of worker threads that run gate commands
+	 */
+	public TollPlaza(SimpleLogger logger, int workerThreads){
+		if(workerThreads < 1){
+			throw new IllegalArgumentException("workerThreads must be at least 1");
+		}
+		this.logger = logger;
+		lanes = new ConcurrentHashMap<String, TollGate>();
+		workers = Executors.newFixedThreadPool(workerThreads, new WorkerThreadFactory());
+		nextGateId = new AtomicInteger();
+	}
+
+	/**
+	 * Adds a lane that logs to the plaza logger. Every lane's gate is given a numeric
+	 * gate ID, unique within the plaza, that its log messages carry.
+	 * @param laneId the ID used to route commands to the lane
+	 * @param controller the GateController of the lane
+	 * @return the TollGate created for the lane
+	 */
+	public TollGate addLane(String laneId, GateController controller){
+		return addLane(laneId, controller, logger);
+	}
+
+	/**
+	 * Adds a lane with its own logger.
+	 * @param laneId the ID used to route commands to the lane
+	 * @param controller the GateController of the lane
+	 * @param laneLogger the SimpleLogger of the lane
+	 * @return the TollGate created for the lane
+	 */
+	public TollGate addLane(String laneId, GateController controller, SimpleLogger laneLogger){
+		return addLane(laneId, controller, laneLogger,
+				BackoffRetryPolicy.immediate(BackoffRetryPolicy.DEFAULT_MAX_ATTEMPTS));
+	}
+
+	/**
+	 * Adds a lane with its own logger and retry policy.
+	 * @param laneId the ID used to route commands to the lane
+	 * @param controller the GateController of the lane
+	 * @param laneLogger the SimpleLogger of the lane
+	 * @param retryPolicy decides how often and how quickly the lane retries failed actions
+	 * @return the TollGate created for the lane
+	 */
+	public TollGate addLane(String laneId, GateController controller, SimpleLogger laneLogger,
+			RetryPolicy retryPolicy){
+		if(laneId == null){
+			throw new IllegalArgumentException("laneId must not be null");
+		}
+		if(lanes.containsKey(laneId)){
+			throw new IllegalArgumentException("Lane " + laneId + " already exists");
+		}
+		final TollGate gate = new TollGate(nextGateId.incrementAndGet(), controller, laneLogger,
+				workers, retryPolicy);
+		if(lanes.putIfAbsent(laneId, gate) != null){
+			throw new IllegalArgumentException("Lane " + laneId + " already exists");
+		}
+		return gate;
+	}
+
+	/**
+	 * Removes a lane from the plaza. Commands already queued for the lane still run.
+	 * @param laneId the ID of the lane
+	 * @return the TollGate of the lane, or null if there is no such lane
+	 */
+	public TollGate removeLane(String laneId){
+		return lanes.remove(laneId);
+	}
+
+	/**
+	 * @param laneId the ID of the lane
+	 * @return the TollGate of the lane, or null if there is no such lane
+	 */
+	public TollGate getLane(String laneId){
+		return lanes.get(laneId);
+	}
+
+	/**
+	 * @return the IDs of every lane in the plaza
+	 */
+	public Set<String> getLaneIds(){
+		return Collections.unmodifiableSet(lanes.keySet());
+	}
+
+	/**
+	 * @return the TollGates of every lane in the plaza
+	 */
+	public Collection<TollGate> getLanes(){
+		return Collections.unmodifiableCollection(lanes.values());
+	}
+
+	/**
+	 * @return the number of lanes in the plaza
+	 */
+	public int getLaneCount(){
+		return lanes.size();
+	}
+
+	/**
+	 * Queue an open of the gate in a lane.
+	 * @param laneId the ID of the lane
+	 * @return a future that completes when the gate has opened
+	 */
+	public CompletableFuture<Void> open(String laneId){
+		final TollGate gate = lanes.get(laneId);
+		return gate == null ? unknownLane(laneId) : gate.openAsync();
+	}
+
+	/**
+	 * Queue a close of the gate in a lane.
+	 * @param laneId the ID of the lane
+	 * @return a future that completes when the gate has closed
+	 */
+	public CompletableFuture<Void> close(String laneId){
+		final TollGate gate = lanes.get(laneId);
+		return gate == null ? unknownLane(laneId) : gate.closeAsync();
+	}
+
+	/**
+	 * Queue a reset of the gate in a lane.
+	 * @param laneId the ID of the lane
+	 * @return a future that completes when the gate has been reset
+	 */
+	public CompletableFuture<Void> reset(String laneId){
+		final TollGate gate = lanes.get(laneId);
+		return gate == null ? unknownLane(laneId) : gate.resetAsync();
+	}
+
+	/**
+	 * @param laneId the ID that did not match a lane
+	 * @return a future that has failed with a TollboothException
+	 */
+	private static CompletableFuture<Void> unknownLane(String laneId){
+		final CompletableFuture<Void> result = new CompletableFuture<Void>();
+		result.completeExceptionally(new TollboothException("Unknown lane " + laneId));
+		return result;
+	}
+
+	/**
+	 * @return the number of times any gate in the plaza has been opened
+	 */
+	public long getTotalOpens(){
+		long total = 0;
+		for(TollGate gate : lanes.values()){
+			total += gate.getNumberOfOpens();
+		}
+		return total;
+	}
+
+	/**
+	 * @return the number of times any gate in the plaza has been closed
+	 */
+	public long getTotalCloses(){
+		long total = 0;
+		for(TollGate gate : lanes.values()){
+			total += gate.getNumberOfCloses();
+		}
+		return total;
+	}
+
+	/**
+	 * @return the number of gates in the plaza that are in unresponsive mode
+	 */
+	public int getUnresponsiveGateCount(){
+		int count = 0;
+		for(TollGate gate : lanes.values()){
+			if(gate.getUnresponsiveMode()){
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Resets every gate that is in unresponsive mode, several at a time. No thread waits
+	 * for a reset: each one that finishes starts the next, so the whole batch takes
+	 * about as long as its slowest gates rather than the sum of all of them.
+	 * @param maxConcurrency the largest number of gates reset at the same time
+	 * @return a future that completes with the outcome for every gate once all of the
+	 *  resets have finished
+	 */
+	public CompletableFuture<BatchResetReport> resetUnresponsive(int maxConcurrency){
+		if(maxConcurrency < 1){
+			throw new IllegalArgumentException("maxConcurrency must be at least 1");
+		}
+		final List<String> laneIds = new ArrayList<String>();
+		final List<TollGate> gates = new ArrayList<TollGate>();
+		for(Map.Entry<String, TollGate> lane : lanes.entrySet()){
+			if(lane.getValue().getUnresponsiveMode()){
+				laneIds.add(lane.getKey());
+				gates.add(lane.getValue());
+			}
+		}
+		return new BatchReset(laneIds, gates, maxConcurrency).start();
+	}
+
+	/**
+	 * Starts reconciling every gate of the plaza with its desired state, replacing a
+	 * reconciler started earlier.
+	 * @param interval the time between passes over the gates
+	 * @param unit the unit of the interval
+	 * @return the running reconciler
+	 */
+	public synchronized GateReconciler startReconciler(long interval, TimeUnit unit){
+		if(reconciler != null){
+			reconciler.stop();
+		}
+		reconciler = new GateReconciler(this, interval, unit);
+		reconciler.start();
+		return reconciler;
+	}
+
+	/**
+	 * Stops accepting commands and waits for the queued ones to finish.
+	 * @param timeout the longest time to wait
+	 * @param unit the unit of the timeout
+	 * @return true if every queued command finished before the timeout
+	 * @throws InterruptedException
+	 */
+	public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException{
+		synchronized(this){
+			if(reconciler != null){
+				reconciler.stop();
+			}
+		}
+		workers.shutdown();
+		return workers.awaitTermination(timeout, unit);
+	}
+
+	/**
+	 * Runs one resetUnresponsive() batch. Up to maxConcurrency resets are started at
+	 * once, and the completion of each reset starts the next.
+	 */
+	private static final class BatchReset{
+		private final List<String> laneIds;
+		private final List<TollGate> gates;
+		private final int maxConcurrency;
+		private final AtomicInteger next;
+		private final AtomicInteger remaining;
+		private final Map<String, BatchResetReport.Result> results;
+		private final Map<String, Throwable> causes;
+		private final CompletableFuture<BatchResetReport> report;
+		private final long start;
+
+		BatchReset(List<String> laneIds, List<TollGate> gates, int maxConcurrency){
+			this.laneIds = laneIds;
+			this.gates = gates;
+			this.maxConcurrency = maxConcurrency;
+			next = new AtomicInteger();
+			remaining = new AtomicInteger(gates.size());
+			results = new ConcurrentHashMap<String, BatchResetReport.Result>();
+			causes = new ConcurrentHashMap<String, Throwable>();
+			report = new CompletableFuture<BatchResetReport>();
+			start = System.nanoTime();
+		}
+
+		CompletableFuture<BatchResetReport> start(){
+			if(gates.isEmpty()){
+				finish();
+			}
+			for(int i = 0; i < Math.min(maxConcurrency, gates.size()); i++){
+				launch();
+			}
+			return report;
+		}
+
+		/**
+		 * Starts the next reset. A reset that is already finished when it returns, for
+		 * example because the workers were shut down, is recorded in the loop rather
+		 * than by a nested call, so a large batch cannot overflow the stack.
+		 */
+		private void launch(){
+			while(true){
+				final int i = next.getAndIncrement();
+				if(i >= gates.size()){
+					return;
+				}
+				final CompletableFuture<Void> reset = gates.get(i).resetAsync();
+				if(!reset.isDone()){
+					reset.whenComplete((value, error) -> {
+						record(i, error);
+						launch();
+					});
+					return;
+				}
+				Throwable error = null;
+				try{
+					reset.join();
+				} catch(CompletionException e){
+					error = e.getCause();
+				}
+				record(i, error);
+			}
+		}
+
+		private void record(int i, Throwable error){
+			final String laneId = laneIds.get(i);
+			if(error != null){
+				results.put(laneId, BatchResetReport.Result.FAILED);
+				causes.put(laneId, error instanceof CompletionException ? error.getCause() : error);
+			} else if(gates.get(i).getUnresponsiveMode()){
+				results.put(laneId, BatchResetReport.Result.STILL_UNRESPONSIVE);
+			} else{
+				results.put(laneId, BatchResetReport.Result.RECOVERED);
+			}
+			if(remaining.decrementAndGet() == 0){
+				finish();
+			}
+		}
+
+		private void finish(){
+			report.complete(new BatchResetReport(new HashMap<String, BatchResetReport.Result>(results),
+					new HashMap<String, Throwable>(causes), System.nanoTime() - start));
+		}
+	}
+
+	/**
+	 * Names the worker threads and makes them daemons so a plaza that is never shut
+	 * down does not keep the JVM alive.
+	 */
+	private static final class WorkerThreadFactory implements ThreadFactory{
+		private static final AtomicInteger PLAZA_NUMBER = new AtomicInteger();
+		private final int plazaNumber = PLAZA_NUMBER.incrementAndGet();
+		private final AtomicInteger threadNumber = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable){
+			final Thread thread = new Thread(runnable,
+					"tollplaza-" + plazaNumber + "-worker-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -36,4 +36,28 @@ public class TollboothException extends Exception
 	{
 		super(msg, cause);
 	}
+	
+	/**
+	 * Exception that may skip capturing its stack trace. Suppression is disabled with
+	 * the stack trace, so a stackless instance can be shared between threads.
+	 * @param msg
+	 * @param cause
+	 * @param writableStackTrace false to skip capturing the stack trace
+	 */
+	protected TollboothException(String msg, Throwable cause, boolean writableStackTrace)
+	{
+		super(msg, cause, writableStackTrace, writableStackTrace);
+	}
+	
+	/**
+	 * Creates an exception without a stack trace. It is cheap to create and safe to
+	 * preallocate and throw repeatedly, which suits failures that are reported often,
+	 * such as a gate that will not respond.
+	 * @param msg
+	 * @return the stackless exception
+	 */
+	public static TollboothException stackless(String msg)
+	{
+		return new TollboothException(msg, null, false);
+	}
 }
@@ -7,6 +7,7 @@ package tollbooth;
 
 import java.util.LinkedList;
 import java.util.Queue;
+import java.util.function.Consumer;
 
 /**
  * The TollboothLogger is an implementation of the SimpleLogger interface. 
@@ -31,11 +32,19 @@ public class TollboothLogger implements SimpleLogger {
 
 	@Override
 	public LogMessage getNextMessage() {
-		if(logMessageQueue.isEmpty()){
-			return null;
-		} else{
-			return logMessageQueue.poll();
+		return logMessageQueue.poll();
+	}
+
+	@Override
+	public int drainTo(Consumer<? super LogMessage> consumer, int maxMessages) {
+		if(maxMessages < 0){
+			throw new IllegalArgumentException("maxMessages must not be negative");
+		}
+		final int count = Math.min(maxMessages, logMessageQueue.size());
+		for(int i = 0; i < count; i++){
+			consumer.accept(logMessageQueue.poll());
 		}
+		return count;
 	}
 	
 	/**
@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth.gatecontroller;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import tollbooth.TollboothException;
+
+/**
+ * The CachingGateController decorates another GateController and remembers the last
+ * state of the gate that the hardware confirmed, either by completing an open or
+ * close or by answering isOpen(). While that state is younger than the time-to-live,
+ * isOpen() is answered from memory instead of making a round-trip to the hardware.
+ * Any failure, and any reset, forgets the state so the next isOpen() asks the hardware.
+ **/
+public class CachingGateController implements GateController {
+
+	/**
+	 * The state of the gate as last confirmed by the hardware
+	 */
+	private static final class Confirmation{
+		final boolean open;
+		final long confirmedAt;
+
+		Confirmation(boolean open, long confirmedAt){
+			this.open = open;
+			this.confirmedAt = confirmedAt;
+		}
+	}
+
+	private final GateController controller;
+	private final long ttlNanos;
+	private volatile Confirmation confirmation;
+	private final LongAdder hardwareReads;
+	private final LongAdder savedReads;
+
+	/**
+	 * Creates a caching decorator.
+	 * @param controller the GateController that talks to the hardware
+	 * @param ttl how long a confirmed state may be used before it is read again. Zero
+	 *  disables the cache.
+	 * @param unit the unit of the time-to-live
+	 */
+	public CachingGateController(GateController controller, long ttl, TimeUnit unit){
+		if(ttl < 0){
+			throw new IllegalArgumentException("ttl must not be negative");
+		}
+		this.controller = controller;
+		ttlNanos = unit.toNanos(ttl);
+		confirmation = null;
+		hardwareReads = new LongAdder();
+		savedReads = new LongAdder();
+	}
+
+	/*
+	 * @see tollbooth.gatecontroller.GateController#open()
+	 */
+	@Override
+	public void open() throws TollboothException {
+		confirmation = null;
+		controller.open();
+		confirm(true);
+	}
+
+	/*
+	 * @see tollbooth.gatecontroller.GateController#close()
+	 */
+	@Override
+	public void close() throws TollboothException {
+		confirmation = null;
+		controller.close();
+		confirm(false);
+	}
+
+	/*
+	 * The state after a reset is up to the hardware, so it is read again afterwards.
+	 * @see tollbooth.gatecontroller.GateController#reset()
+	 */
+	@Override
+	public void reset() throws TollboothException {
+		confirmation = null;
+		controller.reset();
+	}
+
+	/*
+	 * @see tollbooth.gatecontroller.GateController#tryOpen()
+	 */
+	@Override
+	public boolean tryOpen() {
+		confirmation = null;
+		if(!controller.tryOpen()){
+			return false;
+		}
+		confirm(true);
+		return true;
+	}
+
+	/*
+	 * @see tollbooth.gatecontroller.GateController#tryClose()
+	 */
+	@Override
+	public boolean tryClose() {
+		confirmation = null;
+		if(!controller.tryClose()){
+			return false;
+		}
+		confirm(false);
+		return true;
+	}
+
+	/*
+	 * @see tollbooth.gatecontroller.GateController#tryReset()
+	 */
+	@Override
+	public boolean tryReset() {
+		confirmation = null;
+		return controller.tryReset();
+	}
+
+	/*
+	 * @see tollbooth.gatecontroller.GateController#isOpen()
+	 */
+	@Override
+	public boolean isOpen() throws TollboothException {
+		final Confirmation current = confirmation;
+		if(current != null && System.nanoTime() - current.confirmedAt < ttlNanos){
+			savedReads.increment();
+			return current.open;
+		}
+		hardwareReads.increment();
+		try{
+			final boolean open = controller.isOpen();
+			confirm(open);
+			return open;
+		} catch(TollboothException e){
+			confirmation = null;
+			throw e;
+		}
+	}
+
+	/**
+	 * Forgets the cached state, for example after the gate was moved by hand.
+	 */
+	public void invalidate(){
+		confirmation = null;
+	}
+
+	/**
+	 * @return the number of isOpen() calls that were passed to the hardware
+	 */
+	public long getHardwareReadCount(){
+		return hardwareReads.sum();
+	}
+
+	/**
+	 * @return the number of isOpen() calls that were answered from the cache
+	 */
+	public long getSavedReadCount(){
+		return savedReads.sum();
+	}
+
+	/**
+	 * Records a state that the hardware has just confirmed.
+	 * @param open true if the gate is open
+	 */
+	private void confirm(boolean open){
+		if(ttlNanos > 0){
+			confirmation = new Confirmation(open, System.nanoTime());
+		}
+	}
+}
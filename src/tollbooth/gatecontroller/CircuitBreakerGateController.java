@@ -0,0 +1,457 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth.gatecontroller;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import tollbooth.GateCommandQueue;
+import tollbooth.LogMessage;
+import tollbooth.SimpleLogger;
+import tollbooth.TollboothException;
+
+/**
+ * The CircuitBreakerGateController decorates another GateController and stops calling
+ * it once too many recent calls have failed.
+ *
+ * While CLOSED every call is passed on and its outcome is recorded in a sliding window
+ * of the most recent calls. When the window is full and the share of failures in it
+ * reaches the threshold, the breaker OPENs: calls fail immediately, with a preallocated
+ * stackless exception or a false result from the try methods, and the hardware is left
+ * alone. After the open duration the breaker turns HALF_OPEN and lets a single probe
+ * through, either the next call or an isOpen() check it makes itself. A successful
+ * probe CLOSEs the breaker and a failed one OPENs it again. Every transition is logged
+ * and reported to the StateListener.
+ **/
+public class CircuitBreakerGateController implements GateController {
+
+	/**
+	 * Specifies the states of the breaker
+	 */
+	public enum State{
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	/**
+	 * Receives the transitions of a breaker, one at a time and in order, on the thread
+	 * whose call caused them. It is called after the breaker has released its lock, but
+	 * that call waits for it, so it should not block; TollGate.resetAsync() is a
+	 * suitable thing to call.
+	 */
+	public interface StateListener{
+		/**
+		 * Called after the breaker changed state
+		 * @param from the previous state
+		 * @param to the new state
+		 */
+		void stateChanged(State from, State to);
+	}
+
+	private static final State[] STATES = State.values();
+	private static final LogMessage[][] TRANSITION_MESSAGES;
+	private static final int PASS = 0;
+	private static final int PROBE = 1;
+	private static final int REJECTED = 2;
+
+	static{
+		final State[] states = State.values();
+		TRANSITION_MESSAGES = new LogMessage[states.length][states.length];
+		for(State from : states){
+			for(State to : states){
+				TRANSITION_MESSAGES[from.ordinal()][to.ordinal()] = new LogMessage(
+						"circuit breaker: " + name(from) + " to " + name(to));
+			}
+		}
+	}
+
+	private final GateController controller;
+	private final SimpleLogger logger;
+	private final boolean[] window;
+	private final double failureRateThreshold;
+	private final long openNanos;
+	private final TollboothException rejected;
+	private final ArrayDeque<Integer> pendingTransitions;
+	private final Object publishLock;
+	private volatile State state;
+	private volatile long openUntil;
+	private volatile StateListener listener;
+	private int windowPosition;
+	private int windowCalls;
+	private int windowFailures;
+	private boolean probeInFlight;
+	private volatile boolean transitionsPending;
+
+	/**
+	 * Creates a circuit breaker.
+	 * @param controller the GateController that talks to the hardware
+	 * @param logger the SimpleLogger that state transitions are logged to, or null
+	 * @param windowSize the number of recent calls the failure rate is measured over
+	 * @param failureRateThreshold the share of failed calls, between 0 and 1, at which
+	 *  the breaker opens
+	 * @param openDuration how long the breaker stays open before it probes the hardware
+	 * @param unit the unit of the open duration
+	 */
+	public CircuitBreakerGateController(GateController controller, SimpleLogger logger,
+			int windowSize, double failureRateThreshold, long openDuration, TimeUnit unit){
+		if(windowSize < 1){
+			throw new IllegalArgumentException("windowSize must be at least 1");
+		}
+		if(failureRateThreshold <= 0 || failureRateThreshold > 1){
+			throw new IllegalArgumentException("failureRateThreshold must be in (0, 1]");
+		}
+		this.controller = controller;
+		this.logger = logger;
+		window = new boolean[windowSize];
+		this.failureRateThreshold = failureRateThreshold;
+		openNanos = unit.toNanos(openDuration);
+		rejected = TollboothException.stackless("Circuit breaker is open");
+		state = State.CLOSED;
+		pendingTransitions = new ArrayDeque<Integer>();
+		publishLock = new Object();
+	}
+
+	/*
+	 * @see tollbooth.gatecontroller.GateController#open()
+	 */
+	@Override
+	public void open() throws TollboothException {
+		final boolean probe = acquirePermission();
+		boolean succeeded = false;
+		try{
+			controller.open();
+			succeeded = true;
+		} finally{
+			record(probe, succeeded);
+		}
+	}
+
+	/*
+	 * @see tollbooth.gatecontroller.GateController#close()
+	 */
+	@Override
+	public void close() throws TollboothException {
+		final boolean probe = acquirePermission();
+		boolean succeeded = false;
+		try{
+			controller.close();
+			succeeded = true;
+		} finally{
+			record(probe, succeeded);
+		}
+	}
+
+	/*
+	 * @see tollbooth.gatecontroller.GateController#reset()
+	 */
+	@Override
+	public void reset() throws TollboothException {
+		final boolean probe = acquirePermission();
+		boolean succeeded = false;
+		try{
+			controller.reset();
+			succeeded = true;
+		} finally{
+			record(probe, succeeded);
+		}
+	}
+
+	/*
+	 * @see tollbooth.gatecontroller.GateController#isOpen()
+	 */
+	@Override
+	public boolean isOpen() throws TollboothException {
+		final boolean probe = acquirePermission();
+		boolean succeeded = false;
+		try{
+			final boolean open = controller.isOpen();
+			succeeded = true;
+			return open;
+		} finally{
+			record(probe, succeeded);
+		}
+	}
+
+	/*
+	 * @see tollbooth.gatecontroller.GateController#tryOpen()
+	 */
+	@Override
+	public boolean tryOpen() {
+		final int permit = permit();
+		if(permit == REJECTED){
+			return false;
+		}
+		boolean succeeded = false;
+		try{
+			succeeded = controller.tryOpen();
+			return succeeded;
+		} finally{
+			record(permit == PROBE, succeeded);
+		}
+	}
+
+	/*
+	 * @see tollbooth.gatecontroller.GateController#tryClose()
+	 */
+	@Override
+	public boolean tryClose() {
+		final int permit = permit();
+		if(permit == REJECTED){
+			return false;
+		}
+		boolean succeeded = false;
+		try{
+			succeeded = controller.tryClose();
+			return succeeded;
+		} finally{
+			record(permit == PROBE, succeeded);
+		}
+	}
+
+	/*
+	 * @see tollbooth.gatecontroller.GateController#tryReset()
+	 */
+	@Override
+	public boolean tryReset() {
+		final int permit = permit();
+		if(permit == REJECTED){
+			return false;
+		}
+		boolean succeeded = false;
+		try{
+			succeeded = controller.tryReset();
+			return succeeded;
+		} finally{
+			record(permit == PROBE, succeeded);
+		}
+	}
+
+	/**
+	 * @return the current state of the breaker
+	 */
+	public State getState(){
+		return state;
+	}
+
+	/**
+	 * @param listener receives every state transition, or null for none
+	 */
+	public void setStateListener(StateListener listener){
+		this.listener = listener;
+	}
+
+	/**
+	 * Decides whether a call may go to the hardware.
+	 * @return true if the call is the half-open probe
+	 * @throws TollboothException if the breaker is open
+	 */
+	private boolean acquirePermission() throws TollboothException {
+		final int permit = permit();
+		if(permit == REJECTED){
+			throw rejected;
+		}
+		return permit == PROBE;
+	}
+
+	/**
+	 * Decides whether a call may go to the hardware, without throwing. The common
+	 * cases, closed or open and still cooling down, are decided from volatile reads
+	 * without locking.
+	 * @return PASS, PROBE if the call is the half-open probe, or REJECTED
+	 */
+	private int permit(){
+		final State current = state;
+		if(current == State.CLOSED){
+			return PASS;
+		}
+		if(current == State.OPEN && System.nanoTime() - openUntil < 0){
+			return REJECTED;
+		}
+		final boolean probe = tryStartProbe();
+		publishTransitions();
+		return probe ? PROBE : REJECTED;
+	}
+
+	/**
+	 * Records the result of a call, so a call that threw anything still clears the
+	 * probe permit.
+	 * @param probe true if the call was the half-open probe
+	 * @param succeeded true if the call returned normally and did not fail
+	 */
+	private void record(boolean probe, boolean succeeded){
+		if(succeeded){
+			onSuccess(probe);
+		} else{
+			onFailure(probe);
+		}
+		publishTransitions();
+	}
+
+	/**
+	 * Moves an open breaker whose open duration has passed to half-open, and grants the
+	 * single probe permit.
+	 * @return true if the caller holds the probe permit
+	 */
+	private synchronized boolean tryStartProbe(){
+		if(state == State.CLOSED){
+			return false;
+		}
+		if(probeInFlight || (state == State.OPEN && System.nanoTime() - openUntil < 0)){
+			return false;
+		}
+		probeInFlight = true;
+		if(state == State.OPEN){
+			transition(State.HALF_OPEN);
+		}
+		return true;
+	}
+
+	private void onSuccess(boolean probe){
+		if(probe){
+			synchronized(this){
+				probeInFlight = false;
+				clearWindow();
+				transition(State.CLOSED);
+			}
+		} else{
+			recordWindowOutcome(false);
+		}
+	}
+
+	private void onFailure(boolean probe){
+		if(probe){
+			synchronized(this){
+				probeInFlight = false;
+				trip();
+			}
+		} else{
+			recordWindowOutcome(true);
+		}
+	}
+
+	/**
+	 * Adds the outcome of a call made while closed to the sliding window, and opens
+	 * the breaker if the failure rate has reached the threshold.
+	 * @param failed true if the call failed
+	 */
+	private synchronized void recordWindowOutcome(boolean failed){
+		if(state != State.CLOSED){
+			return;
+		}
+		if(windowCalls == window.length){
+			if(window[windowPosition]){
+				windowFailures--;
+			}
+		} else{
+			windowCalls++;
+		}
+		window[windowPosition] = failed;
+		if(failed){
+			windowFailures++;
+		}
+		windowPosition = (windowPosition + 1) % window.length;
+		if(windowCalls == window.length
+				&& windowFailures >= failureRateThreshold * window.length){
+			trip();
+		}
+	}
+
+	/**
+	 * Opens the breaker and schedules the automatic probe. Must hold the lock.
+	 */
+	private void trip(){
+		openUntil = System.nanoTime() + openNanos;
+		transition(State.OPEN);
+		try{
+			GateCommandQueue.defaultScheduler().schedule(this::scheduleProbe,
+					openNanos, TimeUnit.NANOSECONDS);
+		} catch(RejectedExecutionException e){
+			//Without a scheduler the breaker still half-opens on the next call
+		}
+	}
+
+	/**
+	 * Runs the automatic probe on an executor thread, so a hung controller cannot
+	 * hold up the shared scheduler.
+	 */
+	private void scheduleProbe(){
+		try{
+			GateCommandQueue.defaultExecutor().execute(this::probe);
+		} catch(RejectedExecutionException e){
+			//The breaker still half-opens on the next call
+		}
+	}
+
+	/**
+	 * Checks whether the hardware has recovered by asking whether the gate is open.
+	 */
+	private void probe(){
+		if(state != State.OPEN){
+			return;
+		}
+		try{
+			isOpen();
+		} catch(TollboothException | RuntimeException e){
+			//A failed probe has already opened the breaker again
+		}
+	}
+
+	private void clearWindow(){
+		windowPosition = 0;
+		windowCalls = 0;
+		windowFailures = 0;
+	}
+
+	/**
+	 * Changes the state and queues the transition for publishTransitions(). Must hold
+	 * the lock.
+	 * @param to the new state
+	 */
+	private void transition(State to){
+		final State from = state;
+		if(from == to){
+			return;
+		}
+		state = to;
+		pendingTransitions.add(from.ordinal() * STATES.length + to.ordinal());
+		transitionsPending = true;
+	}
+
+	/**
+	 * Logs and reports the queued transitions, in order, without holding the breaker
+	 * lock. Must not hold the lock.
+	 */
+	private void publishTransitions(){
+		if(!transitionsPending){
+			return;
+		}
+		synchronized(publishLock){
+			while(true){
+				final Integer next;
+				synchronized(this){
+					next = pendingTransitions.poll();
+					transitionsPending = !pendingTransitions.isEmpty();
+				}
+				if(next == null){
+					return;
+				}
+				final State from = STATES[next / STATES.length];
+				final State to = STATES[next % STATES.length];
+				if(logger != null){
+					logger.accept(TRANSITION_MESSAGES[from.ordinal()][to.ordinal()]);
+				}
+				final StateListener current = listener;
+				if(current != null){
+					current.stateChanged(from, to);
+				}
+			}
+		}
+	}
+
+	private static String name(State state){
+		return state.name().toLowerCase().replace('_', '-');
+	}
+}
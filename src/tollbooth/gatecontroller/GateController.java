@@ -16,6 +16,9 @@ import tollbooth.TollboothException;
 
 /**
  * This interface defines the behavior expected of any tollgate controller.
+ * The try methods report a failure as a result instead of an exception. TollGate uses
+ * them internally, so controllers that can fail without creating an exception should
+ * override them.
  * @version Feb 3, 2016
  */
 public interface GateController
@@ -44,4 +47,46 @@ public interface GateController
 	 * @throws TollboothException
 	 */
 	boolean isOpen() throws TollboothException;
+
+	/**
+	 * Open the gate without throwing on failure
+	 * @return true if the gate was opened, false if the controller failed
+	 */
+	default boolean tryOpen()
+	{
+		try{
+			open();
+			return true;
+		} catch(TollboothException e){
+			return false;
+		}
+	}
+	
+	/**
+	 * Close the gate without throwing on failure
+	 * @return true if the gate was closed, false if the controller failed
+	 */
+	default boolean tryClose()
+	{
+		try{
+			close();
+			return true;
+		} catch(TollboothException e){
+			return false;
+		}
+	}
+	
+	/**
+	 * Reset the gate without throwing on failure
+	 * @return true if the gate was reset, false if the controller failed
+	 */
+	default boolean tryReset()
+	{
+		try{
+			reset();
+			return true;
+		} catch(TollboothException e){
+			return false;
+		}
+	}
 }
@@ -0,0 +1,458 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth.gatecontroller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import tollbooth.TollboothException;
+import wpi.hw.xyzco.GateControllerException;
+
+/**
+ * The MultiplexingXYZCOAdapter drives XYZ Co. control units that each serve several
+ * barriers. getGate() returns a GateController for one barrier, so every barrier can
+ * have its own TollGate, while the commands of all the barriers on a unit run one at a
+ * time, in the order they were given, on a thread that belongs to that unit alone.
+ *
+ * Each unit has a window: the largest number of commands that may be running or
+ * waiting for it. A command given while the window is full fails at once, like any
+ * other hardware failure, instead of queueing behind a slow unit. pollOpen() reads the
+ * state of every barrier with one window slot per unit and waits for all the units
+ * together, so a poll takes as long as the slowest unit rather than the sum of them.
+ *
+ * Callers wait for at most the timeout, which counts the time a command spends waiting
+ * for its unit. A command whose caller has given up is dropped if it has not started,
+ * and left to finish if it has. The try methods report hardware failures, timeouts
+ * and a full window as false without creating an exception. A unit thread exits when
+ * it has been idle for a minute.
+ **/
+public class MultiplexingXYZCOAdapter {
+
+	/** The window used by the no-argument constructor */
+	public static final int DEFAULT_WINDOW = 16;
+	/** The timeout used by the constructors without one, in milliseconds */
+	public static final long DEFAULT_TIMEOUT_MILLIS = 5000;
+
+	private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+	private final int window;
+	private final long timeoutNanos;
+	private final List<Unit> units;
+	private final TollboothException windowFull;
+	private final TollboothException timedOut;
+
+	/**
+	 * Creates an adapter with the default window and timeout.
+	 */
+	public MultiplexingXYZCOAdapter(){
+		this(DEFAULT_WINDOW);
+	}
+
+	/**
+	 * Creates an adapter with the default timeout.
+	 * @param window the largest number of commands that may be running or waiting for
+	 *  one unit
+	 */
+	public MultiplexingXYZCOAdapter(int window){
+		this(window, DEFAULT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Creates an adapter.
+	 * @param window the largest number of commands that may be running or waiting for
+	 *  one unit
+	 * @param timeout the longest time a caller waits for a command
+	 * @param unit the unit of the timeout
+	 */
+	public MultiplexingXYZCOAdapter(int window, long timeout, TimeUnit unit){
+		if(window < 1){
+			throw new IllegalArgumentException("window must be at least 1");
+		}
+		if(timeout <= 0){
+			throw new IllegalArgumentException("timeout must be positive");
+		}
+		this.window = window;
+		timeoutNanos = unit.toNanos(timeout);
+		units = new ArrayList<Unit>();
+		windowFull = TollboothException.stackless("Control unit has too many commands waiting");
+		timedOut = TollboothException.stackless("Control unit call timed out");
+	}
+
+	/**
+	 * Adds a control unit.
+	 * @param unit the unit
+	 * @return the number of the unit, for getGate()
+	 */
+	public synchronized int addUnit(XYZCOControlUnit unit){
+		units.add(new Unit(unit));
+		return units.size() - 1;
+	}
+
+	/**
+	 * @param unit the number returned by addUnit()
+	 * @param barrier the number of a barrier on the unit
+	 * @return a GateController for the barrier
+	 */
+	public GateController getGate(int unit, int barrier){
+		final Unit target = unit(unit);
+		if(barrier < 0 || barrier >= target.hardware.getBarrierCount()){
+			throw new IllegalArgumentException("Unit " + unit + " has no barrier " + barrier);
+		}
+		return new Barrier(target, barrier);
+	}
+
+	/**
+	 * Reads the state of every barrier on every unit.
+	 * @return whether each barrier is open, indexed by unit and then barrier. A unit
+	 *  that failed, timed out or whose window was full has a null row.
+	 */
+	public boolean[][] pollOpen(){
+		final long deadline = System.nanoTime() + timeoutNanos;
+		final Unit[] snapshot;
+		synchronized(this){
+			snapshot = units.toArray(new Unit[units.size()]);
+		}
+		final List<Unit.Command<boolean[]>> polls = new ArrayList<Unit.Command<boolean[]>>(snapshot.length);
+		for(Unit unit : snapshot){
+			try{
+				polls.add(unit.submit(() -> {
+					final boolean[] open = new boolean[unit.hardware.getBarrierCount()];
+					for(int barrier = 0; barrier < open.length; barrier++){
+						open[barrier] = unit.hardware.isOpen(barrier);
+					}
+					return open;
+				}));
+			} catch(TollboothException e){
+				polls.add(null);
+			}
+		}
+		final boolean[][] open = new boolean[snapshot.length][];
+		for(int i = 0; i < open.length; i++){
+			if(polls.get(i) != null){
+				try{
+					open[i] = snapshot[i].await(polls.get(i), deadline, "Hardware threw exception on isOpen");
+				} catch(TollboothException e){
+					open[i] = null;
+				}
+			}
+		}
+		return open;
+	}
+
+	/**
+	 * @return the number of units added
+	 */
+	public synchronized int getUnitCount(){
+		return units.size();
+	}
+
+	/**
+	 * @param unit the number returned by addUnit()
+	 * @return the number of commands running or waiting for the unit
+	 */
+	public int getQueueDepth(int unit){
+		return unit(unit).depth.get();
+	}
+
+	/**
+	 * @return the number of commands running or waiting for each unit, in unit order
+	 */
+	public synchronized int[] getQueueDepths(){
+		final int[] depths = new int[units.size()];
+		for(int i = 0; i < depths.length; i++){
+			depths[i] = units.get(i).depth.get();
+		}
+		return depths;
+	}
+
+	/**
+	 * @param unit the number returned by addUnit()
+	 * @return the number of commands for the unit that failed because its window was full
+	 */
+	public long getRejectedCount(int unit){
+		return unit(unit).rejected.sum();
+	}
+
+	/**
+	 * @param unit the number returned by addUnit()
+	 * @return the number of commands for the unit whose caller stopped waiting
+	 */
+	public long getTimeoutCount(int unit){
+		return unit(unit).timeouts.sum();
+	}
+
+	/**
+	 * @return the largest number of commands that may be running or waiting for one unit
+	 */
+	public int getWindow(){
+		return window;
+	}
+
+	private synchronized Unit unit(int unit){
+		if(unit < 0 || unit >= units.size()){
+			throw new IllegalArgumentException("No unit " + unit);
+		}
+		return units.get(unit);
+	}
+
+	/**
+	 * A call to a control unit
+	 */
+	@FunctionalInterface
+	private interface UnitCall<T> {
+		T call(XYZCOControlUnit hardware) throws GateControllerException;
+	}
+
+	/**
+	 * A control unit, its thread and its window
+	 */
+	private final class Unit {
+		final XYZCOControlUnit hardware;
+		final ThreadPoolExecutor worker;
+		final AtomicInteger depth;
+		final LongAdder rejected;
+		final LongAdder timeouts;
+
+		Unit(XYZCOControlUnit hardware){
+			this.hardware = hardware;
+			final String name = "xyzco-unit-" + THREAD_NUMBER.incrementAndGet();
+			worker = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(), runnable -> {
+						final Thread thread = new Thread(runnable, name);
+						thread.setDaemon(true);
+						return thread;
+					});
+			worker.allowCoreThreadTimeOut(true);
+			depth = new AtomicInteger();
+			rejected = new LongAdder();
+			timeouts = new LongAdder();
+		}
+
+		/**
+		 * Queues a command if the window has room.
+		 * @throws TollboothException if the window is full
+		 */
+		<T> Command<T> submit(Callable<T> command) throws TollboothException {
+			if(depth.incrementAndGet() > window){
+				depth.decrementAndGet();
+				rejected.increment();
+				throw windowFull;
+			}
+			//The slot is freed before the result is published, so the caller sees it free
+			final Command<T> task = new Command<T>(() -> {
+				try{
+					return command.call();
+				} finally{
+					depth.decrementAndGet();
+				}
+			});
+			try{
+				worker.execute(task);
+			} catch(RejectedExecutionException e){
+				depth.decrementAndGet();
+				throw new TollboothException("Control unit thread is not available", e);
+			}
+			return task;
+		}
+
+		/**
+		 * Waits for a command until the deadline and turns its failure into a
+		 * TollboothException.
+		 */
+		<T> T await(Command<T> command, long deadline, String failure) throws TollboothException {
+			try{
+				return command.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+			} catch(TimeoutException e){
+				command.drop();
+				timeouts.increment();
+				throw timedOut;
+			} catch(InterruptedException e){
+				command.drop();
+				Thread.currentThread().interrupt();
+				throw new TollboothException("Interrupted while waiting for the control unit", e);
+			} catch(ExecutionException e){
+				final Throwable cause = e.getCause();
+				if(cause instanceof RuntimeException){
+					throw (RuntimeException) cause;
+				}
+				if(cause instanceof Error){
+					throw (Error) cause;
+				}
+				throw new TollboothException(failure, cause);
+			}
+		}
+
+		<T> T invoke(UnitCall<T> call, String failure) throws TollboothException {
+			final long deadline = System.nanoTime() + timeoutNanos;
+			return await(submit(() -> call.call(hardware)), deadline, failure);
+		}
+
+		/**
+		 * Runs a command and reports a hardware failure, a timeout or a full window as
+		 * false, without creating an exception for it.
+		 */
+		boolean tryInvoke(UnitCall<Boolean> call){
+			final long deadline = System.nanoTime() + timeoutNanos;
+			final Command<Boolean> task;
+			try{
+				task = submit(() -> {
+					try{
+						return call.call(hardware);
+					} catch(GateControllerException e){
+						return false;
+					}
+				});
+			} catch(TollboothException e){
+				return false;
+			}
+			try{
+				return task.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+			} catch(TimeoutException e){
+				task.drop();
+				timeouts.increment();
+				return false;
+			} catch(InterruptedException e){
+				task.drop();
+				Thread.currentThread().interrupt();
+				return false;
+			} catch(ExecutionException e){
+				//The command catches GateControllerException, so only unchecked throwables get here
+				final Throwable cause = e.getCause();
+				if(cause instanceof Error){
+					throw (Error) cause;
+				}
+				throw (RuntimeException) cause;
+			}
+		}
+
+		/**
+		 * A command that holds a window slot until it has run or been dropped before
+		 * it started
+		 */
+		final class Command<T> extends FutureTask<T> {
+			private final AtomicBoolean claimed = new AtomicBoolean();
+
+			Command(Callable<T> command){
+				super(command);
+			}
+
+			@Override
+			public void run(){
+				if(claimed.compareAndSet(false, true)){
+					super.run();
+				}
+			}
+
+			/**
+			 * Drops the command if it has not started; a running command is left to finish
+			 */
+			void drop(){
+				if(claimed.compareAndSet(false, true)){
+					cancel(false);
+					depth.decrementAndGet();
+				}
+			}
+		}
+	}
+
+	/**
+	 * The GateController for one barrier of a unit
+	 */
+	private static final class Barrier implements GateController {
+		private final Unit unit;
+		private final int barrier;
+
+		Barrier(Unit unit, int barrier){
+			this.unit = unit;
+			this.barrier = barrier;
+		}
+
+		/*
+		 * @see tollbooth.gatecontroller.GateController#open()
+		 */
+		@Override
+		public void open() throws TollboothException {
+			unit.invoke(hardware -> {
+				hardware.open(barrier);
+				return true;
+			}, "Hardware threw exception on open");
+		}
+
+		/*
+		 * @see tollbooth.gatecontroller.GateController#close()
+		 */
+		@Override
+		public void close() throws TollboothException {
+			unit.invoke(hardware -> {
+				hardware.close(barrier);
+				return true;
+			}, "Hardware threw exception on close");
+		}
+
+		/*
+		 * @see tollbooth.gatecontroller.GateController#reset()
+		 */
+		@Override
+		public void reset() throws TollboothException {
+			unit.invoke(hardware -> {
+				hardware.reset(barrier);
+				return true;
+			}, "Hardware threw exception on reset");
+		}
+
+		/*
+		 * @see tollbooth.gatecontroller.GateController#isOpen()
+		 */
+		@Override
+		public boolean isOpen() throws TollboothException {
+			return unit.invoke(hardware -> hardware.isOpen(barrier), "Hardware threw exception on isOpen");
+		}
+
+		/*
+		 * @see tollbooth.gatecontroller.GateController#tryOpen()
+		 */
+		@Override
+		public boolean tryOpen() {
+			return unit.tryInvoke(hardware -> {
+				hardware.open(barrier);
+				return true;
+			});
+		}
+
+		/*
+		 * @see tollbooth.gatecontroller.GateController#tryClose()
+		 */
+		@Override
+		public boolean tryClose() {
+			return unit.tryInvoke(hardware -> {
+				hardware.close(barrier);
+				return true;
+			});
+		}
+
+		/*
+		 * @see tollbooth.gatecontroller.GateController#tryReset()
+		 */
+		@Override
+		public boolean tryReset() {
+			return unit.tryInvoke(hardware -> {
+				hardware.reset(barrier);
+				return true;
+			});
+		}
+	}
+}
@@ -0,0 +1,226 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth.gatecontroller;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import tollbooth.TollboothException;
+
+/**
+ * The TimeoutGateController decorates another GateController and gives every call a
+ * deadline. Calls run on a hardware thread that belongs to this controller alone, and
+ * the caller waits for at most the timeout. A call that times out fails like any other
+ * hardware failure, so TollGate counts it as a malfunction and retries it.
+ *
+ * Calls that overlap queue on the hardware thread, and the time a call spends waiting
+ * there counts against its timeout; a call whose caller has given up while it waited
+ * is never run. A call that is still running past its deadline is hung. It is left to
+ * finish on its own thread and not interrupted, because the state the hardware is left
+ * in would be unknown. Until it returns, every new call fails immediately instead of
+ * queueing behind it, so a hung controller costs exactly one thread and its callers
+ * never block for longer than the timeout. The hardware thread exits when it has been
+ * idle for a minute.
+ **/
+public class TimeoutGateController implements GateController {
+
+	private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+	private final GateController controller;
+	private final long timeoutNanos;
+	private final ThreadPoolExecutor hardware;
+	private final AtomicBoolean busy;
+	private volatile long runningDeadline;
+	private final TollboothException timedOut;
+	private final TollboothException stillHung;
+	private final LongAdder timeouts;
+	private final LongAdder rejectedWhileHung;
+
+	/**
+	 * Creates a timeout decorator.
+	 * @param controller the GateController that talks to the hardware
+	 * @param timeout the longest time a caller waits for a call
+	 * @param unit the unit of the timeout
+	 */
+	public TimeoutGateController(GateController controller, long timeout, TimeUnit unit){
+		if(timeout <= 0){
+			throw new IllegalArgumentException("timeout must be positive");
+		}
+		this.controller = controller;
+		timeoutNanos = unit.toNanos(timeout);
+		final String name = "gate-hardware-" + THREAD_NUMBER.incrementAndGet();
+		hardware = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), runnable -> {
+					final Thread thread = new Thread(runnable, name);
+					thread.setDaemon(true);
+					return thread;
+				});
+		hardware.allowCoreThreadTimeOut(true);
+		busy = new AtomicBoolean();
+		timedOut = TollboothException.stackless("Hardware call timed out");
+		stillHung = TollboothException.stackless("Hardware has not returned from an earlier call");
+		timeouts = new LongAdder();
+		rejectedWhileHung = new LongAdder();
+	}
+
+	/*
+	 * @see tollbooth.gatecontroller.GateController#open()
+	 */
+	@Override
+	public void open() throws TollboothException {
+		invoke(() -> {
+			controller.open();
+			return true;
+		});
+	}
+
+	/*
+	 * @see tollbooth.gatecontroller.GateController#close()
+	 */
+	@Override
+	public void close() throws TollboothException {
+		invoke(() -> {
+			controller.close();
+			return true;
+		});
+	}
+
+	/*
+	 * @see tollbooth.gatecontroller.GateController#reset()
+	 */
+	@Override
+	public void reset() throws TollboothException {
+		invoke(() -> {
+			controller.reset();
+			return true;
+		});
+	}
+
+	/*
+	 * @see tollbooth.gatecontroller.GateController#isOpen()
+	 */
+	@Override
+	public boolean isOpen() throws TollboothException {
+		return invoke(controller::isOpen);
+	}
+
+	/*
+	 * @see tollbooth.gatecontroller.GateController#tryOpen()
+	 */
+	@Override
+	public boolean tryOpen() {
+		return tryInvoke(controller::tryOpen);
+	}
+
+	/*
+	 * @see tollbooth.gatecontroller.GateController#tryClose()
+	 */
+	@Override
+	public boolean tryClose() {
+		return tryInvoke(controller::tryClose);
+	}
+
+	/*
+	 * @see tollbooth.gatecontroller.GateController#tryReset()
+	 */
+	@Override
+	public boolean tryReset() {
+		return tryInvoke(controller::tryReset);
+	}
+
+	/**
+	 * @return the number of calls that timed out
+	 */
+	public long getTimeoutCount(){
+		return timeouts.sum();
+	}
+
+	/**
+	 * @return the number of calls that failed at once because the running call was past
+	 *  its deadline
+	 */
+	public long getRejectedWhileHungCount(){
+		return rejectedWhileHung.sum();
+	}
+
+	/**
+	 * @return true if a call is running on the hardware thread
+	 */
+	public boolean isBusy(){
+		return busy.get();
+	}
+
+	private boolean tryInvoke(Callable<Boolean> call){
+		try{
+			return invoke(call);
+		} catch(TollboothException e){
+			return false;
+		}
+	}
+
+	/**
+	 * Runs a call on the hardware thread and waits for it until the deadline.
+	 * @param call the call to the decorated controller
+	 * @return the result of the call
+	 * @throws TollboothException if the call failed, timed out, or could not start
+	 *  because the call running on the hardware thread is past its deadline
+	 */
+	private boolean invoke(Callable<Boolean> call) throws TollboothException {
+		final long start = System.nanoTime();
+		//runningDeadline is written before busy, so a busy call's deadline is never stale
+		if(busy.get() && start - runningDeadline > 0){
+			rejectedWhileHung.increment();
+			throw stillHung;
+		}
+		final long deadline = start + timeoutNanos;
+		final FutureTask<Boolean> task = new FutureTask<Boolean>(() -> {
+			runningDeadline = deadline;
+			busy.set(true);
+			try{
+				return call.call();
+			} finally{
+				busy.set(false);
+			}
+		});
+		try{
+			hardware.execute(task);
+		} catch(RejectedExecutionException e){
+			throw new TollboothException("Hardware thread is not available", e);
+		}
+		try{
+			return task.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+		} catch(TimeoutException e){
+			//A call still waiting for the hardware thread is dropped; a running one is left to finish
+			task.cancel(false);
+			timeouts.increment();
+			throw timedOut;
+		} catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new TollboothException("Interrupted while waiting for the hardware", e);
+		} catch(ExecutionException e){
+			final Throwable cause = e.getCause();
+			if(cause instanceof TollboothException){
+				throw (TollboothException) cause;
+			}
+			if(cause instanceof RuntimeException){
+				throw (RuntimeException) cause;
+			}
+			if(cause instanceof Error){
+				throw (Error) cause;
+			}
+			throw new TollboothException("Hardware call failed", cause);
+		}
+	}
+}
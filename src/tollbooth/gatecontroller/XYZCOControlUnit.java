@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth.gatecontroller;
+
+import wpi.hw.xyzco.GateController;
+import wpi.hw.xyzco.GateControllerException;
+
+/**
+ * An XYZCOControlUnit is one physical XYZ Co. control unit and the barriers wired to
+ * it, numbered from 0. A unit handles one call at a time; the
+ * MultiplexingXYZCOAdapter makes sure it is never called from two threads at once.
+ **/
+public interface XYZCOControlUnit
+{
+	/**
+	 * @return the number of barriers wired to the unit
+	 */
+	int getBarrierCount();
+
+	/**
+	 * Open a barrier
+	 * @param barrier the number of the barrier
+	 * @throws GateControllerException
+	 */
+	void open(int barrier) throws GateControllerException;
+
+	/**
+	 * Close a barrier
+	 * @param barrier the number of the barrier
+	 * @throws GateControllerException
+	 */
+	void close(int barrier) throws GateControllerException;
+
+	/**
+	 * Reset a barrier to the original state.
+	 * @param barrier the number of the barrier
+	 * @throws GateControllerException
+	 */
+	void reset(int barrier) throws GateControllerException;
+
+	/**
+	 * @param barrier the number of the barrier
+	 * @return true if the barrier is in the open state.
+	 * @throws GateControllerException
+	 */
+	boolean isOpen(int barrier) throws GateControllerException;
+
+	/**
+	 * Groups XYZ Co. gate controllers that share one control unit, as the XYZ Co.
+	 * library exposes them: one controller object per barrier.
+	 * @param barriers the controllers, in barrier order
+	 * @return the unit
+	 */
+	static XYZCOControlUnit of(GateController... barriers)
+	{
+		if(barriers.length == 0){
+			throw new IllegalArgumentException("A unit needs at least one barrier");
+		}
+		final GateController[] controllers = barriers.clone();
+		return new XYZCOControlUnit() {
+			@Override
+			public int getBarrierCount()
+			{
+				return controllers.length;
+			}
+
+			@Override
+			public void open(int barrier) throws GateControllerException
+			{
+				controllers[barrier].open();
+			}
+
+			@Override
+			public void close(int barrier) throws GateControllerException
+			{
+				controllers[barrier].close();
+			}
+
+			@Override
+			public void reset(int barrier) throws GateControllerException
+			{
+				controllers[barrier].reset();
+			}
+
+			@Override
+			public boolean isOpen(int barrier) throws GateControllerException
+			{
+				return controllers[barrier].isOpen();
+			}
+		};
+	}
+}
@@ -84,4 +84,47 @@ public class XYZCOGateControllerAdapter implements GateController
 		}
 	}
 
+	/*
+	 * Reports the hardware failure without wrapping it in a TollboothException.
+	 * @see tollbooth.gatecontroller.GateController#tryOpen()
+	 */
+	@Override
+	public boolean tryOpen()
+	{
+		try {
+			controller.open();
+			return true;
+		} catch (GateControllerException e) {
+			return false;
+		}
+	}
+
+	/*
+	 * @see tollbooth.gatecontroller.GateController#tryClose()
+	 */
+	@Override
+	public boolean tryClose()
+	{
+		try {
+			controller.close();
+			return true;
+		} catch (GateControllerException e) {
+			return false;
+		}
+	}
+
+	/*
+	 * @see tollbooth.gatecontroller.GateController#tryReset()
+	 */
+	@Override
+	public boolean tryReset()
+	{
+		try {
+			controller.reset();
+			return true;
+		} catch (GateControllerException e) {
+			return false;
+		}
+	}
+
 }
@@ -0,0 +1,352 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth.sink;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import tollbooth.LogMessage;
+import tollbooth.RingBufferLogger;
+import tollbooth.RingBufferLogger.OverflowPolicy;
+import tollbooth.SimpleLogger;
+
+/**
+ * The FanOutLogger is a SimpleLogger that ships every message to a set of LogSinks
+ * without doing any of the shipping on the gate's thread. accept() only stores the
+ * message in a bounded lock-free ring, so its cost is the same however many sinks
+ * there are and however slow they are.
+ *
+ * A dispatcher thread drains the ring in batches and copies each batch into the
+ * bounded queue of every sink. Each sink has its own thread that drains its queue in
+ * batches and writes them. A sink that falls behind fills only its own queue, which
+ * then discards that sink's newest messages and counts them; the other sinks and the
+ * gates are not slowed down. A batch that a sink fails to write is counted as a
+ * failure and skipped.
+ *
+ * accept() stamps each message with the time it was accepted. The stamp is kept in
+ * the slot beside the message in every ring, and every sink receives it with the
+ * message, however long the message waited in the queues.
+ *
+ * The newest messages are also kept in a MemorySink, which getNextMessage() and
+ * drainTo() read from. A message becomes readable there once it has been dispatched,
+ * not the moment accept() returns. close() delivers every message accepted before it
+ * and closes the sinks, waiting a bounded time for sinks that are stuck.
+ **/
+public class FanOutLogger implements SimpleLogger, Closeable {
+
+	/** The capacity of the ring used by the no-argument constructor */
+	public static final int DEFAULT_CAPACITY = 8192;
+	/** The largest batch handed to a sink by the no-argument constructor */
+	public static final int DEFAULT_BATCH_SIZE = 256;
+	/** The number of messages kept for getNextMessage() by the shorter constructors */
+	public static final int DEFAULT_RETAINED_CAPACITY = 1024;
+	/** How long close() waits for the sinks to finish */
+	public static final long DEFAULT_CLOSE_TIMEOUT_MILLIS = 5000;
+
+	private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final RingBufferLogger inbox;
+	private final int batchSize;
+	private final List<SinkWorker> workers;
+	private final MemorySink retained;
+	private final LongAdder rejectedCount;
+	private final Thread dispatcher;
+	private volatile boolean closed;
+
+	/**
+	 * Creates a fan-out logger with the default capacity and batch size.
+	 */
+	public FanOutLogger(){
+		this(DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Creates a fan-out logger that keeps the default number of messages for reading.
+	 * @param capacity the minimum number of messages the ring can hold before accept()
+	 *  discards new ones. It is rounded up to the next power of two.
+	 * @param batchSize the largest number of messages handed on at once
+	 */
+	public FanOutLogger(int capacity, int batchSize){
+		this(capacity, batchSize, DEFAULT_RETAINED_CAPACITY);
+	}
+
+	/**
+	 * Creates a fan-out logger and starts its dispatcher thread.
+	 * @param capacity the minimum number of messages the ring can hold before accept()
+	 *  discards new ones. It is rounded up to the next power of two.
+	 * @param batchSize the largest number of messages handed on at once
+	 * @param retainedCapacity the minimum number of the newest messages kept for
+	 *  getNextMessage(). It is rounded up to the next power of two.
+	 */
+	public FanOutLogger(int capacity, int batchSize, int retainedCapacity){
+		if(batchSize < 1){
+			throw new IllegalArgumentException("batchSize must be at least 1");
+		}
+		inbox = new RingBufferLogger(capacity, OverflowPolicy.DROP_NEWEST, true);
+		this.batchSize = batchSize;
+		workers = new CopyOnWriteArrayList<SinkWorker>();
+		retained = new MemorySink(retainedCapacity);
+		rejectedCount = new LongAdder();
+		//The queue is as large as the ring, so the MemorySink decides which messages to keep
+		addSink(retained, capacity);
+		dispatcher = new Thread(this::dispatch, "log-dispatcher");
+		dispatcher.setDaemon(true);
+		dispatcher.start();
+	}
+
+	/**
+	 * Adds a sink and starts its thread. The sink receives the messages dispatched from
+	 * then on.
+	 * @param sink the sink to write to
+	 * @param queueCapacity the minimum number of messages that may wait for the sink
+	 *  before its newest ones are discarded. It is rounded up to the next power of two.
+	 */
+	public synchronized void addSink(LogSink sink, int queueCapacity){
+		if(closed){
+			throw new IllegalStateException("The logger is closed");
+		}
+		final SinkWorker worker = new SinkWorker(sink, queueCapacity);
+		workers.add(worker);
+		worker.thread.start();
+	}
+
+	@Override
+	public void accept(LogMessage message) {
+		if(closed){
+			rejectedCount.increment();
+			return;
+		}
+		inbox.accept(message, System.currentTimeMillis());
+	}
+
+	/**
+	 * Removes the oldest of the retained messages. Messages that have been accepted but
+	 * not yet dispatched are not returned.
+	 * @return the LogMessage object or null if no dispatched message is retained
+	 */
+	@Override
+	public LogMessage getNextMessage() {
+		return retained.getNextMessage();
+	}
+
+	/*
+	 * @see tollbooth.SimpleLogger#drainTo(java.util.function.Consumer, int)
+	 */
+	@Override
+	public int drainTo(Consumer<? super LogMessage> consumer, int maxMessages) {
+		if(maxMessages < 0){
+			throw new IllegalArgumentException("maxMessages must not be negative");
+		}
+		return retained.drainTo(consumer, maxMessages);
+	}
+
+	/**
+	 * Closes the logger, waiting at most DEFAULT_CLOSE_TIMEOUT_MILLIS for the sinks.
+	 * @see #close(long, TimeUnit)
+	 */
+	@Override
+	public void close(){
+		close(DEFAULT_CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops accepting messages, delivers the ones already accepted, and closes every
+	 * sink. A message accepted by another thread while the logger is closing may be
+	 * discarded. A sink whose thread has not finished when the timeout runs out is
+	 * interrupted and left behind; its thread is a daemon and does not keep the JVM
+	 * running.
+	 * @param timeout the longest time to wait for the sinks
+	 * @param unit the unit of timeout
+	 * @return true if every sink finished and was closed in time
+	 */
+	public boolean close(long timeout, TimeUnit unit){
+		synchronized(this){
+			closed = true;
+		}
+		LockSupport.unpark(dispatcher);
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+		boolean finished;
+		try{
+			finished = join(dispatcher, deadline);
+			for(SinkWorker worker : workers){
+				if(!join(worker.thread, deadline)){
+					worker.thread.interrupt();
+					finished = false;
+				}
+			}
+		} catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			return false;
+		}
+		return finished;
+	}
+
+	private static boolean join(Thread thread, long deadline) throws InterruptedException {
+		final long remaining = deadline - System.nanoTime();
+		if(remaining > 0){
+			TimeUnit.NANOSECONDS.timedJoin(thread, remaining);
+		}
+		return !thread.isAlive();
+	}
+
+	/**
+	 * @return the number of messages discarded because the ring was full or the logger
+	 *  was closed
+	 */
+	public long getDropCount(){
+		return inbox.getDropCount() + rejectedCount.sum();
+	}
+
+	/**
+	 * @param sink a sink added to this logger
+	 * @return the number of messages the sink has written
+	 */
+	public long getWrittenCount(LogSink sink){
+		return worker(sink).writtenCount.sum();
+	}
+
+	/**
+	 * @param sink a sink added to this logger
+	 * @return the number of messages discarded because the sink's queue was full
+	 */
+	public long getDropCount(LogSink sink){
+		return worker(sink).queue.getDropCount();
+	}
+
+	/**
+	 * @param sink a sink added to this logger
+	 * @return the number of batches, flushes and closes of the sink that failed
+	 */
+	public long getFailureCount(LogSink sink){
+		return worker(sink).failureCount.sum();
+	}
+
+	/**
+	 * @param sink a sink added to this logger
+	 * @return the approximate number of messages waiting for the sink
+	 */
+	public int getQueueDepth(LogSink sink){
+		return worker(sink).queue.logSize();
+	}
+
+	private SinkWorker worker(LogSink sink){
+		for(SinkWorker worker : workers){
+			if(worker.sink == sink){
+				return worker;
+			}
+		}
+		throw new IllegalArgumentException("The sink was not added to this logger");
+	}
+
+	/**
+	 * The loop of the dispatcher thread. It reads the closed flag before draining, so
+	 * once it sees the ring empty after the logger was closed, every message accepted
+	 * before close() has been handed on.
+	 */
+	private void dispatch(){
+		final LogMessage[] batch = new LogMessage[batchSize];
+		final long[] timestamps = new long[batchSize];
+		while(true){
+			final boolean last = closed;
+			final int count = inbox.drainTo(batch, timestamps, 0, batchSize);
+			if(count == 0){
+				if(last){
+					break;
+				}
+				LockSupport.parkNanos(IDLE_PARK_NANOS);
+				continue;
+			}
+			for(SinkWorker worker : workers){
+				worker.offer(batch, timestamps, count);
+			}
+			Arrays.fill(batch, 0, count, null);
+		}
+		for(SinkWorker worker : workers){
+			worker.finish();
+		}
+	}
+
+	/**
+	 * The queue and thread of one sink
+	 */
+	private final class SinkWorker implements Runnable{
+		final LogSink sink;
+		final RingBufferLogger queue;
+		final Thread thread;
+		final LongAdder writtenCount;
+		final LongAdder failureCount;
+		volatile boolean finishing;
+
+		SinkWorker(LogSink sink, int queueCapacity){
+			this.sink = sink;
+			queue = new RingBufferLogger(queueCapacity, OverflowPolicy.DROP_NEWEST, true);
+			thread = new Thread(this, "log-sink-" + sink.getClass().getSimpleName());
+			thread.setDaemon(true);
+			writtenCount = new LongAdder();
+			failureCount = new LongAdder();
+		}
+
+		void offer(LogMessage[] batch, long[] timestamps, int count){
+			for(int i = 0; i < count; i++){
+				queue.accept(batch[i], timestamps[i]);
+			}
+			LockSupport.unpark(thread);
+		}
+
+		void finish(){
+			finishing = true;
+			LockSupport.unpark(thread);
+		}
+
+		@Override
+		public void run(){
+			final LogMessage[] batch = new LogMessage[batchSize];
+			final long[] timestamps = new long[batchSize];
+			while(true){
+				final boolean last = finishing;
+				final int count = queue.drainTo(batch, timestamps, 0, batchSize);
+				if(count == 0){
+					if(last){
+						break;
+					}
+					LockSupport.parkNanos(IDLE_PARK_NANOS);
+					continue;
+				}
+				try{
+					sink.write(batch, timestamps, count);
+					writtenCount.add(count);
+				} catch(IOException | RuntimeException e){
+					failureCount.increment();
+				}
+				Arrays.fill(batch, 0, count, null);
+				if(queue.logSize() == 0){
+					flush();
+				}
+			}
+			flush();
+			try{
+				sink.close();
+			} catch(IOException | RuntimeException e){
+				failureCount.increment();
+			}
+		}
+
+		private void flush(){
+			try{
+				sink.flush();
+			} catch(IOException | RuntimeException e){
+				failureCount.increment();
+			}
+		}
+	}
+}
@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth.sink;
+
+import java.time.Instant;
+
+import tollbooth.LogMessage;
+import tollbooth.TollGate;
+
+/**
+ * Formats messages as the single lines of text written by the text sinks.
+ **/
+final class LogLine {
+
+	private LogLine(){
+	}
+
+	/**
+	 * Formats a message, for example
+	 * "2016-02-18T10:15:30.120Z gate 3: open: malfunction (cause)".
+	 * @param timeMillis the time to print, in milliseconds since the epoch
+	 * @param message the message
+	 * @return the line, ending in a newline
+	 */
+	static String format(long timeMillis, LogMessage message){
+		final StringBuilder line = new StringBuilder(96);
+		line.append(Instant.ofEpochMilli(timeMillis));
+		if(message.getGateId() != TollGate.NO_GATE_ID){
+			line.append(" gate ").append(message.getGateId());
+		}
+		line.append(": ").append(message.getMessage());
+		if(message.hasCause()){
+			line.append(" (").append(message.getCause()).append(')');
+		}
+		return line.append('\n').toString();
+	}
+}
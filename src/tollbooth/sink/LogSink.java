@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth.sink;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import tollbooth.LogMessage;
+
+/**
+ * A LogSink is a destination that a FanOutLogger ships messages to. Each sink is
+ * written by its own thread, one batch at a time, so an implementation does not need
+ * to be thread safe and may block without slowing the gates or the other sinks.
+ **/
+public interface LogSink extends Closeable
+{
+	/**
+	 * Write a batch of messages.
+	 * @param batch the array holding the messages, oldest first
+	 * @param timestamps the time each message was accepted by the FanOutLogger, in
+	 *  milliseconds since the epoch, at the same index as the message
+	 * @param count the number of messages at the start of batch to write
+	 * @throws IOException if the batch could not be written. It is counted as a failure
+	 *  and the next batch is still offered to the sink.
+	 */
+	void write(LogMessage[] batch, long[] timestamps, int count) throws IOException;
+
+	/**
+	 * Push buffered messages to their destination. Called whenever the sink has caught
+	 * up with its queue.
+	 * @throws IOException if the messages could not be pushed
+	 */
+	default void flush() throws IOException
+	{
+	}
+
+	/**
+	 * Release the resources of the sink. Called once, after the last batch.
+	 * @throws IOException if the sink could not be closed cleanly
+	 */
+	@Override
+	default void close() throws IOException
+	{
+	}
+}
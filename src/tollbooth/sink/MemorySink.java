@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth.sink;
+
+import java.util.function.Consumer;
+
+import tollbooth.LogMessage;
+import tollbooth.RingBufferLogger;
+import tollbooth.RingBufferLogger.OverflowPolicy;
+
+/**
+ * The MemorySink keeps the most recent messages in a bounded ring, for example for a
+ * console that shows the latest activity of the plaza. When the ring is full the
+ * oldest message is discarded.
+ **/
+public class MemorySink implements LogSink {
+
+	private final RingBufferLogger ring;
+
+	/**
+	 * Creates a memory sink.
+	 * @param capacity the minimum number of messages kept. It is rounded up to the next
+	 *  power of two.
+	 */
+	public MemorySink(int capacity){
+		ring = new RingBufferLogger(capacity, OverflowPolicy.DROP_OLDEST);
+	}
+
+	@Override
+	public void write(LogMessage[] batch, long[] timestamps, int count) {
+		for(int i = 0; i < count; i++){
+			ring.accept(batch[i]);
+		}
+	}
+
+	/**
+	 * Remove and return the oldest message kept.
+	 * @return the LogMessage object or null if the sink is empty
+	 */
+	public LogMessage getNextMessage(){
+		return ring.getNextMessage();
+	}
+
+	/**
+	 * Remove up to maxMessages messages, oldest first, and hand each one to the consumer.
+	 * @param consumer receives the messages
+	 * @param maxMessages the largest number of messages to remove
+	 * @return the number of messages removed
+	 */
+	public int drainTo(Consumer<? super LogMessage> consumer, int maxMessages){
+		return ring.drainTo(consumer, maxMessages);
+	}
+
+	/**
+	 * @return the approximate number of messages kept
+	 */
+	public int size(){
+		return ring.logSize();
+	}
+
+	/**
+	 * @return the number of messages discarded to make room for newer ones
+	 */
+	public long getOverwrittenCount(){
+		return ring.getDropCount();
+	}
+}
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth.sink;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import tollbooth.LogMessage;
+
+/**
+ * The RollingFileSink writes messages as lines of text to a file in a directory. When
+ * the file would grow past the size limit it is rolled: name.log becomes name.1.log,
+ * name.1.log becomes name.2.log and so on, and the oldest file beyond the file limit
+ * is deleted. Each line carries the time the FanOutLogger accepted its message.
+ **/
+public class RollingFileSink implements LogSink {
+
+	private final Path directory;
+	private final String name;
+	private final long maxFileBytes;
+	private final int maxFiles;
+	private OutputStream out;
+	private long fileBytes;
+	private long rollCount;
+
+	/**
+	 * Creates a rolling file sink. An existing name.log is appended to.
+	 * @param directory the directory the files are written in
+	 * @param name the name of the files, without the .log extension
+	 * @param maxFileBytes the size a file may reach before it is rolled
+	 * @param maxFiles the number of files kept, including the one being written
+	 * @throws IOException if the directory or the file could not be opened
+	 */
+	public RollingFileSink(Path directory, String name, long maxFileBytes, int maxFiles)
+			throws IOException {
+		if(maxFileBytes < 1){
+			throw new IllegalArgumentException("maxFileBytes must be positive");
+		}
+		if(maxFiles < 1){
+			throw new IllegalArgumentException("maxFiles must be at least 1");
+		}
+		this.directory = directory;
+		this.name = name;
+		this.maxFileBytes = maxFileBytes;
+		this.maxFiles = maxFiles;
+		Files.createDirectories(directory);
+		open();
+	}
+
+	@Override
+	public void write(LogMessage[] batch, long[] timestamps, int count) throws IOException {
+		for(int i = 0; i < count; i++){
+			final byte[] line = LogLine.format(timestamps[i], batch[i]).getBytes(StandardCharsets.UTF_8);
+			if(fileBytes > 0 && fileBytes + line.length > maxFileBytes){
+				roll();
+			}
+			out.write(line);
+			fileBytes += line.length;
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+
+	/**
+	 * @param index 0 for the file being written, or the number of a rolled file
+	 * @return the path of the file
+	 */
+	public Path getFile(int index){
+		return directory.resolve(index == 0 ? name + ".log" : name + "." + index + ".log");
+	}
+
+	/**
+	 * @return the number of times the file has been rolled
+	 */
+	public long getRollCount(){
+		return rollCount;
+	}
+
+	private void open() throws IOException {
+		final Path file = getFile(0);
+		out = new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE,
+				StandardOpenOption.APPEND), 8192);
+		fileBytes = Files.size(file);
+	}
+
+	private void roll() throws IOException {
+		out.close();
+		Files.deleteIfExists(getFile(maxFiles - 1));
+		for(int i = maxFiles - 2; i >= 0; i--){
+			if(Files.exists(getFile(i))){
+				Files.move(getFile(i), getFile(i + 1), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		rollCount++;
+		open();
+	}
+}
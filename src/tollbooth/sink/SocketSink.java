@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth.sink;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import tollbooth.LogMessage;
+
+/**
+ * The SocketSink streams messages as lines of text over TCP, standing in for the link
+ * to a central log collector. It connects on the first batch; if the connection fails
+ * the batch fails and the next batch connects again.
+ **/
+public class SocketSink implements LogSink {
+
+	private final InetSocketAddress address;
+	private final int connectTimeoutMillis;
+	private Socket socket;
+	private OutputStream out;
+	private long connectCount;
+
+	/**
+	 * Creates a socket sink. Nothing is connected until the first batch.
+	 * @param address the address of the collector
+	 * @param connectTimeoutMillis the longest time to wait for a connection
+	 */
+	public SocketSink(InetSocketAddress address, int connectTimeoutMillis){
+		if(connectTimeoutMillis < 0){
+			throw new IllegalArgumentException("connectTimeoutMillis must not be negative");
+		}
+		this.address = address;
+		this.connectTimeoutMillis = connectTimeoutMillis;
+	}
+
+	@Override
+	public void write(LogMessage[] batch, long[] timestamps, int count) throws IOException {
+		try{
+			if(out == null){
+				connect();
+			}
+			for(int i = 0; i < count; i++){
+				out.write(LogLine.format(timestamps[i], batch[i]).getBytes(StandardCharsets.UTF_8));
+			}
+		} catch(IOException e){
+			disconnect();
+			throw e;
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if(out != null){
+			try{
+				out.flush();
+			} catch(IOException e){
+				disconnect();
+				throw e;
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if(out != null){
+			try{
+				out.flush();
+			} finally{
+				disconnect();
+			}
+		}
+	}
+
+	/**
+	 * @return the number of connections made to the collector
+	 */
+	public long getConnectCount(){
+		return connectCount;
+	}
+
+	private void connect() throws IOException {
+		final Socket connection = new Socket();
+		try{
+			connection.connect(address, connectTimeoutMillis);
+			connection.setTcpNoDelay(true);
+			out = new BufferedOutputStream(connection.getOutputStream(), 8192);
+		} catch(IOException e){
+			connection.close();
+			throw e;
+		}
+		socket = connection;
+		connectCount++;
+	}
+
+	private void disconnect(){
+		try{
+			if(socket != null){
+				socket.close();
+			}
+		} catch(IOException e){
+			//The connection is being dropped anyway
+		}
+		socket = null;
+		out = null;
+	}
+}
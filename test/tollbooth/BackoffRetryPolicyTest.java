@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import tollbooth.TollGate.Action;
+import tollbooth.gatecontroller.*;
+
+/**
+ * Test cases for the BackoffRetryPolicy class and its use by TollGate.
+ */
+public class BackoffRetryPolicyTest
+{
+	@Test
+	public void fixedPolicyWaitsTheSameEveryTime()
+	{
+		final RetryPolicy policy = BackoffRetryPolicy.fixed(3, 5, TimeUnit.MILLISECONDS);
+		assertEquals(5000000L, policy.getBackoffNanos(Action.OPEN, 1));
+		assertEquals(5000000L, policy.getBackoffNanos(Action.OPEN, 2));
+	}
+
+	@Test
+	public void exponentialPolicyDoublesUpToTheCap()
+	{
+		final RetryPolicy policy = BackoffRetryPolicy.exponential(10, 1, 6, TimeUnit.NANOSECONDS);
+		assertEquals(1, policy.getBackoffNanos(Action.OPEN, 1));
+		assertEquals(2, policy.getBackoffNanos(Action.OPEN, 2));
+		assertEquals(4, policy.getBackoffNanos(Action.OPEN, 3));
+		assertEquals(6, policy.getBackoffNanos(Action.OPEN, 4));
+		assertEquals(6, policy.getBackoffNanos(Action.OPEN, 100));
+	}
+
+	@Test
+	public void jitteredPolicyStaysWithinTheExponentialDelay()
+	{
+		final RetryPolicy policy = BackoffRetryPolicy.jittered(10, 100, 1000, TimeUnit.NANOSECONDS);
+		for(int i = 0; i < 1000; i++){
+			final long delay = policy.getBackoffNanos(Action.CLOSE, 3);
+			assertTrue(delay >= 0 && delay <= 400);
+		}
+	}
+
+	@Test
+	public void resetCanHaveMoreAttemptsThanOpen() throws TollboothException
+	{
+		final TestGateController controller = new TestGateController();
+		final TollboothLogger logger = new TollboothLogger();
+		final TollGate gate = new TollGate(controller, logger, GateCommandQueue.defaultExecutor(),
+				BackoffRetryPolicy.immediate(2).withMaxAttempts(Action.RESET, 5));
+		controller.scheduleXFailures(2);
+		gate.open();
+		assertTrue(gate.getUnresponsiveMode());
+		controller.scheduleXFailures(4);
+		gate.reset();
+		assertFalse(gate.getUnresponsiveMode());
+		assertEquals(2 + 5, logger.logSize());
+	}
+
+	@Test
+	public void jitterWorksWithTheLargestCap()
+	{
+		final RetryPolicy policy = BackoffRetryPolicy.jittered(100, 1, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		for(int i = 0; i < 100; i++){
+			assertTrue(policy.getBackoffNanos(Action.OPEN, 80) >= 0);
+		}
+	}
+
+	@Test
+	public void asyncBackoffDoesNotBlockTheCaller() throws Exception
+	{
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger attempts = new AtomicInteger();
+		final TestGateController controller = new TestGateController()
+		{
+			//The retry of the open waits until the test lets it through
+			@Override
+			public boolean tryOpen()
+			{
+				if(attempts.incrementAndGet() > 1){
+					try{
+						release.await();
+					}catch(InterruptedException e){
+						return false;
+					}
+				}
+				return super.tryOpen();
+			}
+		};
+		final TollGate gate = new TollGate(controller, new TollboothLogger(),
+				GateCommandQueue.defaultExecutor(),
+				BackoffRetryPolicy.fixed(3, 20, TimeUnit.MILLISECONDS));
+		controller.scheduleXFailures(1);
+		final CompletableFuture<Void> opened = gate.openAsync();
+		final CompletableFuture<Void> closed = gate.closeAsync();
+		//Both commands were handed back while the open is still waiting to be retried
+		assertFalse(opened.isDone());
+		assertFalse(closed.isDone());
+		release.countDown();
+		closed.get(5, TimeUnit.SECONDS);
+		assertTrue(opened.isDone());
+		assertEquals(1, gate.getNumberOfOpens());
+		assertEquals(1, gate.getNumberOfCloses());
+		assertEquals(1, gate.getNumberOfRetries());
+	}
+
+	@Test
+	public void uncheckedFailureOfAnAsyncRetryCompletesTheCommand() throws Exception
+	{
+		final AtomicInteger attempts = new AtomicInteger();
+		final TestGateController controller = new TestGateController()
+		{
+			@Override
+			public void open() throws TollboothException
+			{
+				if(attempts.incrementAndGet() == 2){
+					throw new IllegalStateException("controller crashed");
+				}
+				super.open();
+			}
+		};
+		final TollGate gate = new TollGate(controller, new TollboothLogger(),
+				GateCommandQueue.defaultExecutor(),
+				BackoffRetryPolicy.fixed(3, 5, TimeUnit.MILLISECONDS));
+		controller.scheduleXFailures(1);
+		final CompletableFuture<Void> opened = gate.openAsync();
+		final CompletableFuture<Void> reset = gate.resetAsync();
+		try{
+			opened.get(5, TimeUnit.SECONDS);
+			fail("expected the retry to fail");
+		}catch(ExecutionException e){
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		//The command queued behind it still runs
+		reset.get(5, TimeUnit.SECONDS);
+		assertEquals(2, attempts.get());
+		assertEquals(1, gate.getNumberOfResets());
+	}
+}
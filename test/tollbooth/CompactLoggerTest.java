@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import tollbooth.gatecontroller.*;
+
+/**
+ * Test cases for the CompactLogger class.
+ */
+public class CompactLoggerTest
+{
+	@Test
+	public void emptyLoggerReturnsNull()
+	{
+		final CompactLogger logger = new CompactLogger();
+		assertNull(logger.getNextMessage());
+		assertEquals(0, logger.logSize());
+	}
+
+	@Test
+	public void messagesAreReturnedInOrderAcrossGrowth()
+	{
+		final CompactLogger logger = new CompactLogger();
+		int next = 0;
+		//Wrap the ring before it grows so the copy has to unwrap it
+		for(int i = 0; i < 40; i++){
+			logger.accept(new LogMessage("message " + i));
+		}
+		for(; next < 30; next++){
+			assertEquals("message " + next, logger.getNextMessage().getMessage());
+		}
+		for(int i = 40; i < 200; i++){
+			logger.accept(new LogMessage("message " + i));
+		}
+		assertEquals(170, logger.logSize());
+		final List<LogMessage> drained = new ArrayList<LogMessage>();
+		assertEquals(170, logger.drainTo(drained, 500));
+		for(LogMessage message : drained){
+			assertEquals("message " + next++, message.getMessage());
+		}
+		assertNull(logger.getNextMessage());
+	}
+
+	@Test
+	public void takenMessagesReleaseTheirTextsAndCauses()
+	{
+		final CompactLogger logger = new CompactLogger();
+		for(int i = 0; i < 10; i++){
+			logger.accept(new LogMessage("message " + i % 3, new IllegalStateException("fault " + i % 2)));
+		}
+		assertEquals(3, logger.getCodec().getTextCount());
+		assertEquals(2, logger.getCodec().getCauseCount());
+		assertEquals("message 0", logger.getNextMessage().getMessage());
+		assertEquals(9, logger.drainTo(message -> {}, 10));
+		assertEquals(0, logger.getCodec().getTextCount());
+		assertEquals(0, logger.getCodec().getCauseCount());
+	}
+
+	@Test
+	public void gateMessagesKeepTheirCause() throws TollboothException
+	{
+		final TestGateController controller = new TestGateController();
+		final CompactLogger logger = new CompactLogger();
+		final TollGate gate = new TollGate(5, controller, logger, GateCommandQueue.defaultExecutor(),
+				BackoffRetryPolicy.immediate(1));
+		controller.scheduleXFailures(1);
+		gate.open();
+		final DecodedLogMessage unrecoverable = (DecodedLogMessage) logger.getNextMessage();
+		assertEquals(5, unrecoverable.getGateId());
+		assertEquals(TollGate.Action.OPEN, unrecoverable.getAction());
+		assertEquals(LogCatalogue.Outcome.UNRECOVERABLE_MALFUNCTION, unrecoverable.getOutcome());
+		assertFalse(unrecoverable.hasCause());
+		try{
+			gate.open();
+			fail("expected the unresponsive gate to refuse");
+		}catch(TollboothException e){
+			final DecodedLogMessage refusal = (DecodedLogMessage) logger.getNextMessage();
+			assertEquals(LogCatalogue.Outcome.WILL_NOT_RESPOND, refusal.getOutcome());
+			assertEquals(e.toString(), refusal.getCause().toString());
+			assertTrue(refusal.getTimestampNanos() >= unrecoverable.getTimestampNanos());
+		}
+	}
+}
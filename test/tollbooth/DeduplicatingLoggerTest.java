@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import tollbooth.LogCatalogue.Outcome;
+import tollbooth.TollGate.Action;
+import tollbooth.gatecontroller.*;
+
+/**
+ * Test cases for the DeduplicatingLogger class.
+ */
+public class DeduplicatingLoggerTest
+{
+	private static LogMessage malfunction(int gateId, Action action)
+	{
+		return new LogMessage(gateId, action, Outcome.MALFUNCTION, null);
+	}
+
+	@Test
+	public void repeatsInAWindowCollapseIntoOneSummary()
+	{
+		final TollboothLogger queue = new TollboothLogger();
+		final DeduplicatingLogger logger = new DeduplicatingLogger(queue, 1, TimeUnit.SECONDS);
+		for(int i = 0; i < 10; i++){
+			logger.accept(1000 + i * 10, malfunction(1, Action.OPEN));
+		}
+		assertEquals(1, queue.logSize());
+		assertEquals(9, logger.getSuppressedCount());
+		logger.closeExpiredWindows(1999);
+		assertEquals(1, queue.logSize());
+		logger.closeExpiredWindows(2000);
+		assertEquals(2, queue.logSize());
+		assertEquals(Outcome.MALFUNCTION, queue.getNextMessage().getOutcome());
+		final RepeatedLogMessage summary = (RepeatedLogMessage) queue.getNextMessage();
+		assertEquals(9, summary.getRepeatCount());
+		assertEquals(1010, summary.getFirstTimestamp());
+		assertEquals(1090, summary.getLastTimestamp());
+		assertEquals(1, summary.getGateId());
+		assertEquals(Action.OPEN, summary.getAction());
+		assertEquals("open: malfunction", summary.getRepeatedMessage());
+		assertEquals("open: malfunction (repeated 9 times)", summary.getMessage());
+		assertEquals(0, logger.getKeyCount());
+	}
+
+	@Test
+	public void nextMessageAfterTheWindowStartsANewOne()
+	{
+		final TollboothLogger queue = new TollboothLogger();
+		final DeduplicatingLogger logger = new DeduplicatingLogger(queue, 100, TimeUnit.MILLISECONDS);
+		logger.accept(0, malfunction(1, Action.CLOSE));
+		logger.accept(50, malfunction(1, Action.CLOSE));
+		logger.accept(150, malfunction(1, Action.CLOSE));
+		assertEquals(3, queue.logSize());
+		assertFalse(queue.getNextMessage() instanceof RepeatedLogMessage);
+		assertEquals(1, ((RepeatedLogMessage) queue.getNextMessage()).getRepeatCount());
+		assertFalse(queue.getNextMessage() instanceof RepeatedLogMessage);
+	}
+
+	@Test
+	public void gatesActionsAndTextsAreKeptApart()
+	{
+		final TollboothLogger queue = new TollboothLogger();
+		final DeduplicatingLogger logger = new DeduplicatingLogger(queue, 1, TimeUnit.SECONDS);
+		for(int i = 0; i < 3; i++){
+			logger.accept(i, malfunction(1, Action.OPEN));
+			logger.accept(i, malfunction(2, Action.OPEN));
+			logger.accept(i, malfunction(1, Action.CLOSE));
+			logger.accept(i, new LogMessage(1, Action.OPEN, Outcome.SUCCESSFUL, null));
+			logger.accept(i, new LogMessage("sensor fault"));
+			logger.accept(i, new LogMessage("loop fault"));
+		}
+		assertEquals(6, queue.logSize());
+		assertEquals(6, logger.getKeyCount());
+		logger.flush();
+		assertEquals(12, queue.logSize());
+		assertEquals(0, logger.getKeyCount());
+	}
+
+	@Test
+	public void sameTextFromTwoGatesIsKeptApart()
+	{
+		final TollboothLogger queue = new TollboothLogger();
+		final DeduplicatingLogger logger = new DeduplicatingLogger(queue, 1, TimeUnit.SECONDS);
+		for(int i = 0; i < 3; i++){
+			logger.accept(i, new LogMessage(1, null, null, null, "sensor fault"){});
+			logger.accept(i, new LogMessage(2, null, null, null, "sensor fault"){});
+		}
+		assertEquals(2, logger.getKeyCount());
+		logger.flush();
+		assertEquals(4, queue.logSize());
+		queue.getNextMessage();
+		queue.getNextMessage();
+		final RepeatedLogMessage first = (RepeatedLogMessage) queue.getNextMessage();
+		final RepeatedLogMessage second = (RepeatedLogMessage) queue.getNextMessage();
+		assertEquals(1, first.getGateId());
+		assertEquals(2, second.getGateId());
+		assertEquals(2, first.getRepeatCount());
+		assertEquals("sensor fault", second.getRepeatedMessage());
+	}
+
+	@Test
+	public void burstIsPassedOnBeforeCollapsing()
+	{
+		final TollboothLogger queue = new TollboothLogger();
+		final DeduplicatingLogger logger = new DeduplicatingLogger(queue, 1, TimeUnit.SECONDS, 3, 16);
+		for(int i = 0; i < 5; i++){
+			logger.accept(i, malfunction(1, Action.OPEN));
+		}
+		assertEquals(3, queue.logSize());
+		logger.flush();
+		final List<LogMessage> drained = new ArrayList<LogMessage>();
+		queue.drainTo(drained, 10);
+		assertEquals(4, drained.size());
+		assertEquals(2, ((RepeatedLogMessage) drained.get(3)).getRepeatCount());
+	}
+
+	@Test
+	public void keyTableStaysBounded()
+	{
+		final TollboothLogger queue = new TollboothLogger();
+		final DeduplicatingLogger logger = new DeduplicatingLogger(queue, 1, TimeUnit.HOURS, 1, 4);
+		for(int round = 0; round < 3; round++){
+			for(int gate = 0; gate < 100; gate++){
+				logger.accept(round, malfunction(gate, Action.RESET));
+			}
+		}
+		assertEquals(4, logger.getKeyCount());
+		//Every message is either passed on, collapsed, or counted in a summary
+		long represented = 0;
+		logger.flush();
+		LogMessage message;
+		while((message = queue.getNextMessage()) != null){
+			represented += message instanceof RepeatedLogMessage
+					? ((RepeatedLogMessage) message).getRepeatCount() : 1;
+		}
+		assertEquals(300, represented);
+		assertTrue(logger.getEvictionCount() > 0);
+	}
+
+	@Test
+	public void flappingGateLogsOneSummary() throws TollboothException
+	{
+		final TestGateController controller = new TestGateController();
+		final TollboothLogger queue = new TollboothLogger();
+		final DeduplicatingLogger logger = new DeduplicatingLogger(queue, 1, TimeUnit.HOURS);
+		final TollGate gate = new TollGate(controller, logger);
+		for(int i = 0; i < 50; i++){
+			controller.scheduleXFailures(1);
+			gate.open();
+			gate.close();
+		}
+		//One open malfunction, open success and close success, then their summaries
+		assertEquals(3, queue.logSize());
+		logger.flush();
+		assertEquals(6, queue.logSize());
+		assertEquals(147, logger.getSuppressedCount());
+	}
+}
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import tollbooth.gatecontroller.*;
+
+/**
+ * Test cases for the GateCommandCoalescer class.
+ */
+public class GateCommandCoalescerTest
+{
+	@Test
+	public void burstCollapsesToTheFinalState() throws Exception
+	{
+		final TestGateController controller = new TestGateController();
+		final TollboothLogger logger = new TollboothLogger();
+		final GateCommandCoalescer coalescer = new GateCommandCoalescer(
+				new TollGate(controller, logger), 100, TimeUnit.MILLISECONDS);
+		final CompletableFuture<Void> first = coalescer.open();
+		coalescer.close();
+		coalescer.open();
+		final CompletableFuture<Void> last = coalescer.close();
+		assertSame(first, last);
+		last.get(5, TimeUnit.SECONDS);
+		assertFalse(controller.isOpen());
+		assertEquals(0, coalescer.getGate().getNumberOfOpens());
+		assertEquals(0, coalescer.getGate().getNumberOfCloses());
+		assertEquals(4, coalescer.getRequestCount());
+		assertEquals(3, coalescer.getCoalescedCount());
+		assertEquals(0, logger.logSize());
+	}
+
+	@Test
+	public void onlyTheTransitionThatHappenedIsLogged() throws Exception
+	{
+		final TestGateController controller = new TestGateController();
+		final TollboothLogger logger = new TollboothLogger();
+		final GateCommandCoalescer coalescer = new GateCommandCoalescer(
+				new TollGate(controller, logger), 100, TimeUnit.MILLISECONDS);
+		coalescer.open();
+		coalescer.close();
+		coalescer.open().get(5, TimeUnit.SECONDS);
+		assertTrue(controller.isOpen());
+		assertEquals(1, coalescer.getGate().getNumberOfOpens());
+		assertEquals("open: successful", logger.getNextMessage().getMessage());
+		assertNull(logger.getNextMessage());
+
+		//A request after the window starts a new one
+		coalescer.close().get(5, TimeUnit.SECONDS);
+		assertEquals(1, coalescer.getGate().getNumberOfCloses());
+		assertEquals(2, coalescer.getCoalescedCount());
+	}
+
+	@Test
+	public void zeroWindowSendsEveryRequest() throws Exception
+	{
+		final TestGateController controller = new TestGateController();
+		final GateCommandCoalescer coalescer = new GateCommandCoalescer(
+				new TollGate(controller, new TollboothLogger()), 0, TimeUnit.MILLISECONDS);
+		coalescer.open();
+		coalescer.close();
+		coalescer.open().get(5, TimeUnit.SECONDS);
+		assertEquals(2, coalescer.getGate().getNumberOfOpens());
+		assertEquals(1, coalescer.getGate().getNumberOfCloses());
+		assertEquals(0, coalescer.getCoalescedCount());
+	}
+
+	@Test
+	public void failureReachesEveryRequestOfTheWindow() throws Exception
+	{
+		final TestGateController controller = new TestGateController();
+		final TollGate gate = new TollGate(controller, new TollboothLogger());
+		controller.scheduleXFailures(3);
+		gate.open();
+		final GateCommandCoalescer coalescer = new GateCommandCoalescer(gate, 10, TimeUnit.MILLISECONDS);
+		final CompletableFuture<Void> first = coalescer.close();
+		coalescer.open();
+		try{
+			first.get(5, TimeUnit.SECONDS);
+			fail("expected the unresponsive gate to refuse");
+		}catch(ExecutionException e){
+			assertEquals("open: will not respond", e.getCause().getMessage());
+		}
+	}
+}
@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import tollbooth.LogCatalogue.Outcome;
+import tollbooth.TollGate.Action;
+import tollbooth.gatecontroller.*;
+
+/**
+ * Test cases for the GateEventLog class.
+ */
+public class GateEventLogTest
+{
+	@Test
+	public void stateMatchesTheGate() throws TollboothException
+	{
+		final TestGateController controller = new TestGateController();
+		final TollGate gate = new TollGate(controller, new TollboothLogger());
+		final GateEventLog events = gate.enableEventLog();
+		gate.open();
+		controller.scheduleXFailures(1);
+		gate.close();
+		controller.scheduleXFailures(3);
+		gate.open();
+
+		GateEventLog.State state = events.currentState();
+		assertEquals(6, state.getEventCount());
+		assertFalse(state.isOpen());
+		assertTrue(state.isUnresponsive());
+		assertEquals(gate.getNumberOfOpens(), state.getNumberOfOpens());
+		assertEquals(gate.getNumberOfCloses(), state.getNumberOfCloses());
+		assertEquals(gate.getNumberOfMalfunctions(), state.getNumberOfMalfunctions());
+
+		gate.reset();
+		state = events.currentState();
+		assertFalse(state.isUnresponsive());
+		assertEquals(1, state.getNumberOfResets());
+		assertEquals(Action.RESET, events.getAction(6));
+		assertEquals(Outcome.SUCCESSFUL, events.getOutcome(6));
+	}
+
+	@Test
+	public void unrecoverableResetIsReplayed()
+	{
+		final GateEventLog events = new GateEventLog();
+		for(int i = 0; i < 2; i++){
+			events.record(Action.RESET, Outcome.MALFUNCTION);
+		}
+		events.record(Action.RESET, Outcome.UNRECOVERABLE_MALFUNCTION);
+		final GateEventLog.State state = events.currentState();
+		assertTrue(state.isUnresponsive());
+		assertTrue(state.isResetNotResponding());
+		assertEquals(3, state.getNumberOfMalfunctions());
+		assertFalse(events.stateAfter(2).isUnresponsive());
+	}
+
+	@Test
+	public void stateAfterAgreesWithIncrementalReplay()
+	{
+		final GateEventLog events = new GateEventLog(16);
+		final GateEventLog reference = new GateEventLog(Integer.MAX_VALUE);
+		final Action[] actions = Action.values();
+		final Outcome[] outcomes = Outcome.values();
+		final Random random = new Random(42);
+		final GateEventLog.State[] expected = new GateEventLog.State[1001];
+		expected[0] = reference.currentState();
+		for(int i = 1; i <= 1000; i++){
+			final Action act = actions[random.nextInt(actions.length)];
+			final Outcome outcome = outcomes[random.nextInt(outcomes.length)];
+			events.record(i, act, outcome);
+			reference.record(i, act, outcome);
+			expected[i] = reference.currentState();
+		}
+		for(int i = 0; i <= 1000; i++){
+			assertSameState(expected[i], events.stateAfter(i));
+		}
+	}
+
+	@Test
+	public void stateAtFindsTheLastEventAtOrBeforeTheTime()
+	{
+		final GateEventLog events = new GateEventLog(2);
+		events.record(100, Action.OPEN, Outcome.SUCCESSFUL);
+		events.record(200, Action.CLOSE, Outcome.SUCCESSFUL);
+		events.record(200, Action.OPEN, Outcome.SUCCESSFUL);
+		//Set back by the clock, recorded as 200
+		events.record(150, Action.CLOSE, Outcome.SUCCESSFUL);
+		assertEquals(0, events.stateAt(99).getEventCount());
+		assertTrue(events.stateAt(100).isOpen());
+		assertTrue(events.stateAt(199).isOpen());
+		assertEquals(4, events.stateAt(200).getEventCount());
+		assertFalse(events.stateAt(200).isOpen());
+		assertEquals(200, events.getTimestamp(3));
+	}
+
+	@Test
+	public void clearKeepsTheCurrentState()
+	{
+		final GateEventLog events = new GateEventLog(4);
+		for(int i = 0; i < 10; i++){
+			events.record(i, Action.OPEN, Outcome.SUCCESSFUL);
+		}
+		events.clear();
+		assertEquals(0, events.size());
+		assertTrue(events.stateAfter(0).isOpen());
+		events.record(20, Action.CLOSE, Outcome.SUCCESSFUL);
+		assertEquals(10, events.currentState().getNumberOfOpens());
+		assertEquals(1, events.currentState().getNumberOfCloses());
+		assertTrue(events.stateAt(19).isOpen());
+	}
+
+	private static void assertSameState(GateEventLog.State expected, GateEventLog.State actual)
+	{
+		assertEquals(expected.getEventCount(), actual.getEventCount());
+		assertEquals(expected.isOpen(), actual.isOpen());
+		assertEquals(expected.isUnresponsive(), actual.isUnresponsive());
+		assertEquals(expected.isResetNotResponding(), actual.isResetNotResponding());
+		assertEquals(expected.getNumberOfOpens(), actual.getNumberOfOpens());
+		assertEquals(expected.getNumberOfCloses(), actual.getNumberOfCloses());
+		assertEquals(expected.getNumberOfResets(), actual.getNumberOfResets());
+		assertEquals(expected.getNumberOfMalfunctions(), actual.getNumberOfMalfunctions());
+	}
+}
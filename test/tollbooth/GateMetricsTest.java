@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import tollbooth.TollGate.Action;
+import tollbooth.gatecontroller.*;
+
+/**
+ * Test cases for the GateMetrics and LatencyHistogram classes.
+ */
+public class GateMetricsTest
+{
+	@Test
+	public void bucketsCoverEveryValue()
+	{
+		long previousHigh = -1;
+		for(int index = 0; index <= LatencyHistogram.indexOf(LatencyHistogram.MAX_TRACKABLE_NANOS); index++){
+			final long high = LatencyHistogram.highestValueIn(index);
+			assertEquals(index, LatencyHistogram.indexOf(previousHigh + 1));
+			assertEquals(index, LatencyHistogram.indexOf(high));
+			previousHigh = high;
+		}
+		assertEquals(LatencyHistogram.MAX_TRACKABLE_NANOS, previousHigh);
+	}
+
+	@Test
+	public void percentilesAreWithinPrecision()
+	{
+		final LatencyHistogram histogram = new LatencyHistogram();
+		for(long value = 1; value <= 1000000; value++){
+			histogram.record(value * 1000);
+		}
+		final LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+		assertEquals(1000000, snapshot.getCount());
+		assertEquals(1000000000L, snapshot.getMax());
+		assertEquals(500000500.0, snapshot.getMean(), 1.0);
+		final long median = snapshot.getValueAtPercentile(50);
+		assertTrue(median >= 500000000L && median <= 500000000L * 107 / 100);
+		final long p99 = snapshot.getValueAtPercentile(99);
+		assertTrue(p99 >= 990000000L && p99 <= 1000000000L);
+	}
+
+	@Test
+	public void metricsAreOffUntilEnabled() throws TollboothException
+	{
+		final TollGate gate = new TollGate(new TestGateController(), new TollboothLogger());
+		gate.open();
+		assertNull(gate.getMetricsSnapshot());
+	}
+
+	@Test
+	public void gateRecordsAttemptsMalfunctionsAndUnrecoverables() throws TollboothException
+	{
+		final TestGateController controller = new TestGateController();
+		final TollGate gate = new TollGate(controller, new TollboothLogger());
+		gate.enableMetrics(1);
+		controller.scheduleXFailures(1);
+		gate.open();
+		gate.close();
+		controller.setIsOpen(true);
+		controller.scheduleXFailures(3);
+		gate.close();
+		final GateMetrics.Snapshot snapshot = gate.getMetricsSnapshot();
+		final GateMetrics.ActionSnapshot open = snapshot.get(Action.OPEN);
+		assertEquals(2, open.getAttempts());
+		assertEquals(1, open.getMalfunctions());
+		assertEquals(0, open.getUnrecoverableTransitions());
+		assertEquals(2, open.getLatency().getCount());
+		final GateMetrics.ActionSnapshot close = snapshot.get(Action.CLOSE);
+		assertEquals(4, close.getAttempts());
+		assertEquals(3, close.getMalfunctions());
+		assertEquals(1, close.getUnrecoverableTransitions());
+		assertEquals(0, snapshot.get(Action.RESET).getAttempts());
+	}
+
+	@Test
+	public void latencyIsSampledButEveryAttemptIsCounted() throws TollboothException
+	{
+		final TollGate gate = new TollGate(new TestGateController(), new TollboothLogger());
+		gate.enableMetrics(4);
+		for(int i = 0; i < 8; i++){
+			gate.open();
+			gate.close();
+		}
+		final GateMetrics.Snapshot snapshot = gate.getMetricsSnapshot();
+		assertEquals(8, snapshot.get(Action.OPEN).getAttempts());
+		assertEquals(8, snapshot.get(Action.CLOSE).getAttempts());
+		//The 1st, 5th, 9th and 13th of the 16 calls are timed
+		assertEquals(4, snapshot.get(Action.OPEN).getLatency().getCount());
+		assertEquals(0, snapshot.get(Action.CLOSE).getLatency().getCount());
+	}
+}
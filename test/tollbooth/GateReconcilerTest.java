@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import tollbooth.TollGate.DesiredState;
+import tollbooth.gatecontroller.*;
+
+/**
+ * Test cases for the GateReconciler class and desired-state reconciliation.
+ */
+public class GateReconcilerTest
+{
+	private final TollPlaza plaza = new TollPlaza(new RingBufferLogger(), 2);
+
+	@After
+	public void shutdownPlaza() throws InterruptedException
+	{
+		plaza.shutdown(5, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void passBringsGatesToTheirDesiredState() throws Exception
+	{
+		final TollGate first = plaza.addLane("lane-1", new TestGateController());
+		final TollGate second = plaza.addLane("lane-2", new TestGateController());
+		final TollGate idle = plaza.addLane("lane-3", new TestGateController());
+		first.setDesiredState(DesiredState.OPEN);
+		second.setDesiredState(DesiredState.CLOSED);
+		final GateReconciler reconciler = new GateReconciler(plaza, 1, TimeUnit.HOURS);
+		reconciler.reconcile();
+		awaitIdle(first, second);
+		assertEquals(1, first.getNumberOfOpens());
+		assertEquals(0, second.getNumberOfCloses());
+		assertEquals(2, reconciler.getCommandCount());
+
+		//Nothing changes when the gates already match
+		reconciler.reconcile();
+		awaitIdle(first, second);
+		assertEquals(1, first.getNumberOfOpens());
+		assertEquals(0, idle.getNumberOfOpens());
+
+		first.setDesiredState(DesiredState.CLOSED);
+		reconciler.reconcile();
+		awaitIdle(first, second);
+		assertEquals(1, first.getNumberOfCloses());
+	}
+
+	@Test
+	public void transientFailureIsAbsorbed() throws Exception
+	{
+		final TestGateController controller = new TestGateController();
+		final TollGate gate = plaza.addLane("lane-1", controller);
+		controller.scheduleXFailures(2);
+		gate.setDesiredState(DesiredState.OPEN);
+		new GateReconciler(plaza, 1, TimeUnit.HOURS).reconcile();
+		awaitIdle(gate);
+		assertEquals(1, gate.getNumberOfOpens());
+		assertEquals(2, gate.getNumberOfMalfunctions());
+		assertFalse(gate.getUnresponsiveMode());
+	}
+
+	@Test
+	public void unresponsiveGateIsSkipped() throws Exception
+	{
+		final TestGateController controller = new TestGateController();
+		final TollGate gate = plaza.addLane("lane-1", controller);
+		controller.scheduleXFailures(3);
+		gate.setDesiredState(DesiredState.OPEN);
+		final GateReconciler reconciler = new GateReconciler(plaza, 1, TimeUnit.HOURS);
+		reconciler.reconcile();
+		awaitIdle(gate);
+		assertTrue(gate.getUnresponsiveMode());
+		reconciler.reconcile();
+		assertEquals(1, reconciler.getCommandCount());
+		assertEquals(1, reconciler.getSkippedUnresponsiveCount());
+	}
+
+	@Test
+	public void plazaReconcilerRunsInTheBackground() throws Exception
+	{
+		final TollGate gate = plaza.addLane("lane-1", new TestGateController());
+		final GateReconciler reconciler = plaza.startReconciler(5, TimeUnit.MILLISECONDS);
+		gate.setDesiredState(DesiredState.OPEN);
+		final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while(gate.getNumberOfOpens() == 0 && System.nanoTime() < deadline){
+			Thread.sleep(5);
+		}
+		assertEquals(1, gate.getNumberOfOpens());
+		assertTrue(reconciler.getPassCount() > 0);
+	}
+
+	private static void awaitIdle(TollGate... gates) throws Exception
+	{
+		final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		for(TollGate gate : gates){
+			while(gate.getPendingCommandCount() > 0 && System.nanoTime() < deadline){
+				Thread.sleep(1);
+			}
+			assertEquals(0, gate.getPendingCommandCount());
+		}
+	}
+}
@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import tollbooth.LogCatalogue.Outcome;
+import tollbooth.TollGate.Action;
+import tollbooth.gatecontroller.*;
+
+/**
+ * Test cases for the IndexedLogStore and LogQuery classes.
+ */
+public class IndexedLogStoreTest
+{
+	private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+
+	/**
+	 * Fills a store with one message per gate, action and outcome every minute for an hour
+	 */
+	private static IndexedLogStore filledStore(SimpleLogger delegate)
+	{
+		final IndexedLogStore store = new IndexedLogStore(delegate, 1 << 20);
+		for(long minute = 0; minute < 60; minute++){
+			for(int gate = 1; gate <= 3; gate++){
+				for(Action action : Action.values()){
+					for(Outcome outcome : Outcome.values()){
+						store.accept(minute * MINUTE + gate, new LogMessage(gate, action, outcome, null));
+					}
+				}
+			}
+		}
+		return store;
+	}
+
+	@Test
+	public void queriesSelectByEveryCondition()
+	{
+		final IndexedLogStore store = filledStore(new TollboothLogger());
+		assertEquals(60 * 3 * 3 * 4, store.count(LogQuery.all()));
+		assertEquals(60 * 3 * 4, store.count(LogQuery.all().withGateId(2)));
+		assertEquals(60 * 4, store.count(LogQuery.all().withGateId(2).withAction(Action.RESET)));
+		assertEquals(60 * 3, store.count(LogQuery.all().withAction(Action.RESET)
+				.withOutcome(Outcome.WILL_NOT_RESPOND)));
+		assertEquals(0, store.count(LogQuery.all().withGateId(9)));
+
+		final List<DecodedLogMessage> found = store.query(LogQuery.all().withGateId(3)
+				.withAction(Action.RESET).withOutcome(Outcome.WILL_NOT_RESPOND)
+				.withTimeRange(10 * MINUTE, 20 * MINUTE));
+		assertEquals(10, found.size());
+		for(int i = 0; i < found.size(); i++){
+			final DecodedLogMessage message = found.get(i);
+			assertEquals(3, message.getGateId());
+			assertEquals("reset: will not respond", message.getMessage());
+			assertEquals((10 + i) * MINUTE + 3, message.getTimestampNanos() / 1_000_000L);
+		}
+	}
+
+	@Test
+	public void timeRangesCutThroughBuckets()
+	{
+		final IndexedLogStore store = filledStore(new TollboothLogger());
+		//Only gates 1 and 2 of minute 5 are at or after 5:00.001 and before 5:00.003
+		assertEquals(2 * 3 * 4, store.count(LogQuery.all().withTimeRange(5 * MINUTE + 1, 5 * MINUTE + 3)));
+		assertEquals(0, store.count(LogQuery.all().withTimeRange(5 * MINUTE + 4, 6 * MINUTE)));
+		assertEquals(0, store.count(LogQuery.all().withTimeRange(7 * MINUTE, 7 * MINUTE)));
+	}
+
+	@Test
+	public void queriesDoNotConsumeMessages()
+	{
+		final TollboothLogger queue = new TollboothLogger();
+		final IndexedLogStore store = filledStore(queue);
+		final int total = store.count(LogQuery.all());
+		assertEquals(total, queue.logSize());
+		while(store.getNextMessage() != null){
+			//drain the decorated logger
+		}
+		assertEquals(total, store.count(LogQuery.all()));
+		assertEquals(total, store.size());
+	}
+
+	@Test
+	public void oldBucketsAreEvictedToStayWithinBudget()
+	{
+		final IndexedLogStore sample = new IndexedLogStore(new TollboothLogger(), 1 << 20);
+		for(int i = 0; i < 100; i++){
+			sample.accept(i, new LogMessage(1, Action.OPEN, Outcome.MALFUNCTION, null));
+		}
+		final long budget = 10 * sample.getEstimatedBytes();
+		final IndexedLogStore store = new IndexedLogStore(new TollboothLogger(), 1, TimeUnit.MINUTES, budget);
+		for(long minute = 0; minute < 50; minute++){
+			for(int i = 0; i < 100; i++){
+				store.accept(minute * MINUTE + i, new LogMessage(1, Action.OPEN, Outcome.MALFUNCTION, null));
+			}
+			assertTrue(store.getEstimatedBytes() <= budget);
+		}
+		assertEquals(10, store.getBucketCount());
+		assertEquals(1000, store.size());
+		assertEquals(4000, store.getEvictedMessageCount());
+		assertEquals(0, store.count(LogQuery.all().withTimeRange(0, 40 * MINUTE)));
+		assertEquals(1000, store.count(LogQuery.all().withTimeRange(40 * MINUTE, 50 * MINUTE)));
+
+		//A late message for an evicted minute is passed on but not indexed
+		store.accept(MINUTE, new LogMessage(1, Action.OPEN, Outcome.MALFUNCTION, null));
+		assertEquals(1, store.getUnindexedCount());
+		assertEquals(10, store.getBucketCount());
+	}
+
+	@Test
+	public void bucketsAreChargedForTheirCapacityAndInternedEntries()
+	{
+		final IndexedLogStore store = new IndexedLogStore(new TollboothLogger(), 1 << 20);
+		store.accept(0, new LogMessage(1, Action.OPEN, Outcome.MALFUNCTION, null));
+		final long one = store.getEstimatedBytes();
+		assertTrue(one >= IndexedLogStore.BYTES_PER_BUCKET);
+		//Filling the initial arrays allocates nothing more for the messages themselves
+		for(int i = 1; i < 4; i++){
+			store.accept(i, new LogMessage(1, Action.OPEN, Outcome.MALFUNCTION, null));
+		}
+		assertEquals(one, store.getEstimatedBytes());
+		final long before = store.getEstimatedBytes();
+		store.accept(4, new LogMessage(1, null, null, null, "a sensor fault with a long description"){});
+		assertTrue(store.getEstimatedBytes() - before > 2 * "a sensor fault with a long description".length());
+	}
+
+	@Test
+	public void internedTextsAndCausesAreEvictedWithinBudget()
+	{
+		final long budget = 1 << 16;
+		final IndexedLogStore store = new IndexedLogStore(new TollboothLogger(), 1, TimeUnit.MINUTES, budget);
+		for(long minute = 0; minute < 20; minute++){
+			for(int i = 0; i < 50; i++){
+				final TollboothException cause = new TollboothException("failure " + minute + "/" + i,
+						new IllegalStateException("motor " + i));
+				store.accept(minute * MINUTE + i, new LogMessage(2, null, null, cause,
+						"sensor " + minute + "/" + i + " reported a fault on the entry loop"){});
+				assertTrue(store.getEstimatedBytes() <= budget);
+			}
+		}
+		assertTrue(store.getEvictedMessageCount() > 0);
+		assertEquals(0, store.getUnindexedCount());
+		assertEquals(1000, store.size() + store.getEvictedMessageCount());
+	}
+
+	@Test
+	public void freeFormMessagesAndCausesAreKept() throws TollboothException
+	{
+		final TestGateController controller = new TestGateController();
+		final IndexedLogStore store = new IndexedLogStore(new TollboothLogger(), 1 << 16);
+		final TollGate gate = new TollGate(6, controller, store, GateCommandQueue.defaultExecutor(),
+				BackoffRetryPolicy.immediate(1));
+		store.accept(new LogMessage("plaza opened"));
+		controller.scheduleXFailures(1);
+		gate.open();
+		try{
+			gate.open();
+			fail("expected the unresponsive gate to refuse");
+		}catch(TollboothException e){
+			final List<DecodedLogMessage> refusals = store.query(LogQuery.all().withGateId(6)
+					.withOutcome(Outcome.WILL_NOT_RESPOND).withinLast(1, TimeUnit.HOURS));
+			assertEquals(1, refusals.size());
+			assertEquals(e.toString(), refusals.get(0).getCause().toString());
+		}
+		final List<DecodedLogMessage> notes = store.query(LogQuery.all().withGateId(TollGate.NO_GATE_ID));
+		assertEquals(1, notes.size());
+		assertEquals("plaza opened", notes.get(0).getMessage());
+	}
+}
@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import tollbooth.LogCatalogue.Outcome;
+import tollbooth.TollGate.Action;
+
+/**
+ * Test cases for the JournalLogger class.
+ */
+public class JournalLoggerTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void messagesAreReturnedInOrder() throws IOException
+	{
+		final JournalLogger journal = new JournalLogger(folder.getRoot().toPath());
+		final TollboothException cause = new TollboothException("jammed");
+		journal.accept(new LogMessage(7, Action.OPEN, Outcome.MALFUNCTION, cause));
+		journal.accept(new LogMessage("free-form message"));
+		journal.accept(LogCatalogue.get(Action.CLOSE, Outcome.SUCCESSFUL));
+
+		final JournalEntry first = (JournalEntry) journal.getNextMessage();
+		assertEquals("open: malfunction", first.getMessage());
+		assertEquals(7, first.getGateId());
+		assertEquals(Action.OPEN, first.getAction());
+		assertEquals(Outcome.MALFUNCTION, first.getOutcome());
+		assertEquals(JournalEntry.digestOf(cause), first.getCauseDigest());
+		assertTrue(first.hadCause());
+		assertNull(first.getCause());
+
+		final JournalEntry second = (JournalEntry) journal.getNextMessage();
+		assertEquals("free-form message", second.getMessage());
+		assertNull(second.getAction());
+		assertFalse(second.hadCause());
+
+		assertEquals("close: successful", journal.getNextMessage().getMessage());
+		assertNull(journal.getNextMessage());
+		journal.close();
+	}
+
+	@Test
+	public void repeatCountsAndFreeFormGateIdsAreJournaled() throws IOException
+	{
+		final JournalLogger journal = new JournalLogger(folder.getRoot().toPath());
+		final RepeatedLogMessage repeated = new RepeatedLogMessage(
+				new LogMessage(4, Action.CLOSE, Outcome.WILL_NOT_RESPOND, null), 30, 1L, 2L);
+		journal.accept(repeated);
+		journal.accept(new LogMessage(6, null, null, null, "sensor fault"){});
+
+		final JournalEntry summary = (JournalEntry) journal.getNextMessage();
+		assertEquals(repeated.getMessage(), summary.getMessage());
+		assertEquals(4, summary.getGateId());
+		assertEquals(Action.CLOSE, summary.getAction());
+		final LogMessage freeForm = journal.getNextMessage();
+		assertEquals("sensor fault", freeForm.getMessage());
+		assertEquals(6, freeForm.getGateId());
+		journal.close();
+	}
+
+	@Test
+	public void smallerSegmentSizeDoesNotTruncateSegments() throws IOException
+	{
+		final Path directory = folder.getRoot().toPath();
+		final int size = 2 * JournalLogger.MIN_SEGMENT_SIZE;
+		JournalLogger journal = new JournalLogger(directory, size, 4);
+		journal.accept(new LogMessage("kept"));
+		journal.close();
+		try{
+			new JournalLogger(directory, JournalLogger.MIN_SEGMENT_SIZE, 4);
+			fail("expected the larger segment to be refused");
+		}catch(IOException e){
+			//expected
+		}
+		journal = new JournalLogger(directory, size, 4);
+		assertEquals("kept", journal.getNextMessage().getMessage());
+		journal.close();
+	}
+
+	@Test
+	public void unreadMessagesSurviveReopening() throws IOException
+	{
+		final Path directory = folder.getRoot().toPath();
+		JournalLogger journal = new JournalLogger(directory);
+		for(int i = 0; i < 5; i++){
+			journal.accept(new LogMessage("message " + i));
+		}
+		assertEquals("message 0", journal.getNextMessage().getMessage());
+		assertEquals("message 1", journal.getNextMessage().getMessage());
+		journal.close();
+
+		journal = new JournalLogger(directory);
+		assertEquals("message 2", journal.getNextMessage().getMessage());
+		journal.accept(new LogMessage("message 5"));
+		assertEquals("message 3", journal.getNextMessage().getMessage());
+		assertEquals("message 4", journal.getNextMessage().getMessage());
+		assertEquals("message 5", journal.getNextMessage().getMessage());
+		assertNull(journal.getNextMessage());
+		journal.close();
+	}
+
+	@Test
+	public void tornRecordIsDiscardedOnRecovery() throws IOException
+	{
+		final Path directory = folder.getRoot().toPath();
+		JournalLogger journal = new JournalLogger(directory, JournalLogger.MIN_SEGMENT_SIZE, 4);
+		journal.accept(new LogMessage("complete"));
+		journal.accept(new LogMessage("torn"));
+		journal.close();
+
+		//Corrupt the last character of the second record, as if the write was cut short
+		final int firstRecord = 8 + 20 + 2 * "complete".length();
+		final int lastChar = firstRecord + 8 + 20 + 2 * ("torn".length() - 1);
+		try(RandomAccessFile segment = new RandomAccessFile(
+				directory.resolve("journal-0000000000000000.seg").toFile(), "rw")){
+			segment.seek(lastChar);
+			segment.writeChar('x');
+		}
+
+		journal = new JournalLogger(directory, JournalLogger.MIN_SEGMENT_SIZE, 4);
+		assertEquals("complete", journal.getNextMessage().getMessage());
+		assertNull(journal.getNextMessage());
+		journal.accept(new LogMessage("after recovery"));
+		assertEquals("after recovery", journal.getNextMessage().getMessage());
+		journal.close();
+	}
+
+	@Test
+	public void segmentsRollAndAreDeletedOnceRead() throws IOException
+	{
+		final JournalLogger journal = new JournalLogger(folder.getRoot().toPath(),
+				JournalLogger.MIN_SEGMENT_SIZE, 100);
+		final int count = 10000;
+		for(int i = 0; i < count; i++){
+			journal.accept(new LogMessage(i, Action.RESET, Outcome.SUCCESSFUL, null));
+		}
+		assertTrue(journal.getSegmentCount() > 1);
+		for(int i = 0; i < count; i++){
+			assertEquals(i, journal.getNextMessage().getGateId());
+		}
+		assertNull(journal.getNextMessage());
+		assertEquals(1, journal.getSegmentCount());
+		assertEquals(0, journal.getDroppedSegmentCount());
+		journal.close();
+	}
+
+	@Test
+	public void oldestSegmentsAreDroppedWhenFull() throws IOException
+	{
+		final JournalLogger journal = new JournalLogger(folder.getRoot().toPath(),
+				JournalLogger.MIN_SEGMENT_SIZE, 2);
+		final int perSegment = (JournalLogger.MIN_SEGMENT_SIZE - 4) / 28;
+		for(int i = 0; i < 3 * perSegment; i++){
+			journal.accept(new LogMessage(i, Action.OPEN, Outcome.SUCCESSFUL, null));
+		}
+		assertEquals(2, journal.getSegmentCount());
+		assertEquals(1, journal.getDroppedSegmentCount());
+		assertEquals(perSegment, journal.getNextMessage().getGateId());
+		journal.close();
+	}
+
+	@Test
+	public void drainToMovesTheCursorPastTheBatch() throws IOException
+	{
+		final Path directory = folder.getRoot().toPath();
+		JournalLogger journal = new JournalLogger(directory);
+		for(int i = 0; i < 5; i++){
+			journal.accept(new LogMessage("message " + i));
+		}
+		final List<LogMessage> drained = new ArrayList<LogMessage>();
+		assertEquals(3, journal.drainTo(drained, 3));
+		assertEquals("message 2", drained.get(2).getMessage());
+		journal.close();
+
+		journal = new JournalLogger(directory);
+		final LogMessage[] batch = new LogMessage[10];
+		assertEquals(2, journal.drainTo(batch, 0, 10));
+		assertEquals("message 3", batch[0].getMessage());
+		assertEquals("message 4", batch[1].getMessage());
+		journal.close();
+	}
+}
@@ -0,0 +1,207 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import tollbooth.LogCatalogue.Outcome;
+import tollbooth.TollGate.Action;
+
+/**
+ * Test cases for the LogCodec and CauseFingerprint classes.
+ */
+public class LogCodecTest
+{
+	private final LogCodec codec = new LogCodec();
+
+	private DecodedLogMessage roundTrip(LogMessage message, long timestamp)
+	{
+		return codec.decode(timestamp, codec.encodeHeader(message), codec.encodeCause(message.getCause()));
+	}
+
+	@Test
+	public void catalogueMessagesRoundTrip()
+	{
+		for(Action action : Action.values()){
+			for(Outcome outcome : Outcome.values()){
+				final LogMessage message = new LogMessage(42, action, outcome, null);
+				final DecodedLogMessage decoded = roundTrip(message, 123456789L);
+				assertEquals(42, decoded.getGateId());
+				assertEquals(action, decoded.getAction());
+				assertEquals(outcome, decoded.getOutcome());
+				assertEquals(message.getMessage(), decoded.getMessage());
+				assertFalse(decoded.hasCause());
+				assertEquals(123456789L, decoded.getTimestampNanos());
+			}
+		}
+		assertEquals(0, codec.getTextCount());
+	}
+
+	@Test
+	public void freeFormMessagesRoundTrip()
+	{
+		final DecodedLogMessage decoded = roundTrip(new LogMessage("gate jammed"), 1);
+		assertEquals("gate jammed", decoded.getMessage());
+		assertNull(decoded.getAction());
+		assertNull(decoded.getOutcome());
+		assertEquals(TollGate.NO_GATE_ID, decoded.getGateId());
+		assertNull(roundTrip(new LogMessage(null), 1).getMessage());
+		roundTrip(new LogMessage("gate jammed"), 2);
+		assertEquals(1, codec.getTextCount());
+	}
+
+	@Test
+	public void freeFormGateIdsRoundTrip()
+	{
+		final DecodedLogMessage decoded = roundTrip(new LogMessage(7, null, null, null, "sensor fault"){}, 1);
+		assertEquals(7, decoded.getGateId());
+		assertEquals("sensor fault", decoded.getMessage());
+		assertNull(decoded.getAction());
+	}
+
+	@Test
+	public void repeatSummariesRoundTrip()
+	{
+		final LogMessage original = new LogMessage(9, Action.OPEN, Outcome.MALFUNCTION, null);
+		final RepeatedLogMessage repeated = new RepeatedLogMessage(original, 12, 100L, 900L);
+		final long header = codec.encodeHeader(repeated);
+		assertTrue(LogCodec.isSummary(header));
+		final DecodedLogMessage decoded = codec.decode(5, header, codec.encodeCause(null));
+		assertTrue(decoded.isRepeated());
+		assertEquals(9, decoded.getGateId());
+		assertEquals(Action.OPEN, decoded.getAction());
+		assertEquals(Outcome.MALFUNCTION, decoded.getOutcome());
+		assertEquals(12, decoded.getRepeatCount());
+		assertEquals(100L, decoded.getFirstTimestamp());
+		assertEquals(900L, decoded.getLastTimestamp());
+		assertEquals(repeated.getMessage(), decoded.getMessage());
+		assertEquals(original.getMessage(), decoded.getRepeatedMessage());
+		assertEquals(1, codec.getSummaryCount());
+		codec.release(header, 0);
+		assertEquals(0, codec.getSummaryCount());
+		assertFalse(LogCodec.isSummary(codec.encodeHeader(original)));
+	}
+
+	@Test
+	public void repeatedFreeFormMessagesRoundTrip()
+	{
+		final LogMessage original = new LogMessage(3, null, null, null, "sensor fault"){};
+		final RepeatedLogMessage repeated = new RepeatedLogMessage(original, 4, 10L, 40L);
+		final DecodedLogMessage decoded = roundTrip(repeated, 50);
+		assertEquals(3, decoded.getGateId());
+		assertEquals(4, decoded.getRepeatCount());
+		assertEquals(repeated.getMessage(), decoded.getMessage());
+		assertEquals("sensor fault", decoded.getRepeatedMessage());
+		//Encoding the decoded summary again keeps the count
+		assertEquals(4, roundTrip(decoded, 50).getRepeatCount());
+	}
+
+	@Test
+	public void negativeGateIdsRoundTrip()
+	{
+		final LogMessage message = new LogMessage(-7, Action.RESET, Outcome.WILL_NOT_RESPOND, null);
+		assertEquals(-7, roundTrip(message, 0).getGateId());
+	}
+
+	@Test
+	public void causeChainIsFingerprintedAndInterned()
+	{
+		final IllegalStateException hardware = new IllegalStateException("motor stalled");
+		final TollboothException cause = new TollboothException("open failed", hardware);
+		final DecodedLogMessage decoded =
+				roundTrip(new LogMessage(3, Action.OPEN, Outcome.MALFUNCTION, cause), 0);
+		final CauseFingerprint fingerprint = decoded.getCause();
+		assertEquals(cause.toString(), fingerprint.toString());
+		assertEquals(TollboothException.class.getName(), fingerprint.getClassName());
+		assertEquals(hardware.toString(), fingerprint.getCause().toString());
+		assertNull(fingerprint.getCause().getCause());
+		assertEquals(0, fingerprint.getStackTrace().length);
+		assertEquals(JournalEntry.digestOf(cause), JournalEntry.digestOf(fingerprint));
+
+		//A new exception with the same chain shares the interned fingerprint
+		final TollboothException again =
+				new TollboothException("open failed", new IllegalStateException("motor stalled"));
+		assertSame(fingerprint, roundTrip(new LogMessage(4, Action.OPEN, Outcome.MALFUNCTION, again), 0)
+				.getCause());
+		assertEquals(2, codec.getCauseCount());
+	}
+
+	@Test
+	public void releasedTextsAndCausesAreDropped()
+	{
+		final TollboothException cause =
+				new TollboothException("open failed", new IllegalStateException("motor stalled"));
+		final LogMessage message = new LogMessage("gate jammed", cause);
+		final long first = codec.encodeHeader(message);
+		final int firstCause = codec.encodeCause(cause);
+		final long second = codec.encodeHeader(message);
+		final int secondCause = codec.encodeCause(new TollboothException("open failed",
+				new IllegalStateException("motor stalled")));
+		assertEquals(firstCause, secondCause);
+		assertEquals(1, codec.getTextCount());
+		assertEquals(2, codec.getCauseCount());
+
+		codec.release(first, firstCause);
+		assertEquals("gate jammed", codec.decode(0, second, secondCause).getMessage());
+		assertEquals(1, codec.getTextCount());
+		assertEquals(2, codec.getCauseCount());
+		codec.release(second, secondCause);
+		assertEquals(0, codec.getTextCount());
+		assertEquals(0, codec.getCauseCount());
+
+		//The IDs are reused
+		assertEquals(first, codec.encodeHeader(new LogMessage("sensor fault")));
+		assertTrue(codec.encodeCause(new RuntimeException("x")) <= secondCause);
+	}
+
+	@Test
+	public void summariesReleaseTheirText()
+	{
+		final LogMessage original = new LogMessage(3, null, null, null, "sensor fault"){};
+		final long header = codec.encodeHeader(new RepeatedLogMessage(original, 4, 10L, 40L));
+		assertEquals(1, codec.getTextCount());
+		codec.release(header, 0);
+		assertEquals(0, codec.getTextCount());
+		assertEquals(0, codec.getSummaryCount());
+	}
+
+	@Test
+	public void causesEncodedBeforeAreFoundByIdentity()
+	{
+		final RuntimeException cause = new RuntimeException("x");
+		final int id = codec.encodeCause(cause);
+		assertEquals(id, codec.encodeCause(cause));
+		assertEquals(id, codec.encodeCause(codec.getCause(id)));
+		codec.release(0, id);
+		codec.release(0, id);
+		assertEquals(1, codec.getCauseCount());
+		codec.release(0, id);
+		assertEquals(0, codec.getCauseCount());
+		//A cause whose fingerprint was dropped is fingerprinted again
+		final int again = codec.encodeCause(cause);
+		assertEquals("java.lang.RuntimeException: x", codec.getCause(again).toString());
+		assertEquals(1, codec.getCauseCount());
+	}
+
+	@Test
+	public void decodedMessagesCanBeEncodedAgain()
+	{
+		final DecodedLogMessage decoded = roundTrip(new LogMessage("free", new RuntimeException("x")), 5);
+		final DecodedLogMessage twice = roundTrip(decoded, 5);
+		assertEquals("free", twice.getMessage());
+		assertSame(decoded.getCause(), twice.getCause());
+	}
+
+	@Test
+	public void timestampsFollowTheWallClock()
+	{
+		final long wall = System.currentTimeMillis();
+		final long now = LogCodec.now() / 1_000_000L;
+		assertTrue(Math.abs(now - wall) < 1000);
+	}
+}
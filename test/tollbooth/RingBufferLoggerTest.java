@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import tollbooth.RingBufferLogger.OverflowPolicy;
+import tollbooth.gatecontroller.*;
+
+/**
+ * Test cases for the RingBufferLogger class.
+ */
+public class RingBufferLoggerTest
+{
+	@Test
+	public void emptyLoggerReturnsNull()
+	{
+		final RingBufferLogger logger = new RingBufferLogger();
+		assertNull(logger.getNextMessage());
+		assertEquals(0, logger.logSize());
+	}
+
+	@Test
+	public void capacityIsRoundedToPowerOfTwo()
+	{
+		assertEquals(8, new RingBufferLogger(5, OverflowPolicy.BLOCK).getCapacity());
+		assertEquals(8, new RingBufferLogger(8, OverflowPolicy.BLOCK).getCapacity());
+		assertEquals(2, new RingBufferLogger(1, OverflowPolicy.BLOCK).getCapacity());
+	}
+
+	@Test
+	public void smallestRingKeepsUnreadMessages()
+	{
+		final RingBufferLogger logger = new RingBufferLogger(1, OverflowPolicy.DROP_NEWEST);
+		logger.accept(new LogMessage("first"));
+		logger.accept(new LogMessage("second"));
+		logger.accept(new LogMessage("third"));
+		assertEquals(1, logger.getDropCount());
+		assertEquals("first", logger.getNextMessage().getMessage());
+		assertEquals("second", logger.getNextMessage().getMessage());
+		assertNull(logger.getNextMessage());
+		logger.accept(new LogMessage("fourth"));
+		assertEquals("fourth", logger.getNextMessage().getMessage());
+	}
+
+	@Test
+	public void messagesAreReturnedInOrder()
+	{
+		final RingBufferLogger logger = new RingBufferLogger(4, OverflowPolicy.DROP_NEWEST);
+		for(int lap = 0; lap < 3; lap++){
+			for(int i = 0; i < 4; i++){
+				logger.accept(new LogMessage("message " + i));
+			}
+			assertEquals(4, logger.logSize());
+			for(int i = 0; i < 4; i++){
+				assertEquals("message " + i, logger.getNextMessage().getMessage());
+			}
+			assertNull(logger.getNextMessage());
+		}
+	}
+
+	@Test
+	public void dropNewestKeepsQueuedMessages()
+	{
+		final RingBufferLogger logger = new RingBufferLogger(2, OverflowPolicy.DROP_NEWEST);
+		logger.accept(new LogMessage("first"));
+		logger.accept(new LogMessage("second"));
+		logger.accept(new LogMessage("third"));
+		assertEquals(1, logger.getDropCount());
+		assertEquals("first", logger.getNextMessage().getMessage());
+		assertEquals("second", logger.getNextMessage().getMessage());
+		assertNull(logger.getNextMessage());
+	}
+
+	@Test
+	public void dropOldestKeepsNewestMessages()
+	{
+		final RingBufferLogger logger = new RingBufferLogger(2, OverflowPolicy.DROP_OLDEST);
+		logger.accept(new LogMessage("first"));
+		logger.accept(new LogMessage("second"));
+		logger.accept(new LogMessage("third"));
+		assertEquals(1, logger.getDropCount());
+		assertEquals("second", logger.getNextMessage().getMessage());
+		assertEquals("third", logger.getNextMessage().getMessage());
+		assertNull(logger.getNextMessage());
+	}
+
+	@Test
+	public void concurrentProducersLoseNothingWhenBlocking() throws InterruptedException
+	{
+		final RingBufferLogger logger = new RingBufferLogger(64, OverflowPolicy.BLOCK);
+		final int producers = 4;
+		final int perProducer = 10000;
+		final Thread[] threads = new Thread[producers];
+		for(int p = 0; p < producers; p++){
+			threads[p] = new Thread(() -> {
+				for(int i = 0; i < perProducer; i++){
+					logger.accept(new LogMessage("open: successful"));
+				}
+			});
+			threads[p].start();
+		}
+		int received = 0;
+		while(received < producers * perProducer){
+			if(logger.getNextMessage() != null){
+				received++;
+			}
+		}
+		for(Thread thread : threads){
+			thread.join();
+		}
+		assertNull(logger.getNextMessage());
+		assertEquals(0, logger.getDropCount());
+	}
+
+	@Test
+	public void tollGateLogsThroughRingBuffer() throws TollboothException
+	{
+		final TestGateController controller = new TestGateController();
+		final SimpleLogger logger = new RingBufferLogger();
+		final TollGate gate = new TollGate(controller, logger);
+		controller.scheduleXFailures(1);
+		gate.open();
+		assertEquals("open: malfunction", logger.getNextMessage().getMessage());
+		assertEquals("open: successful", logger.getNextMessage().getMessage());
+	}
+
+	@Test
+	public void drainToTakesABatchAcrossTheWrap()
+	{
+		final RingBufferLogger logger = new RingBufferLogger(8, OverflowPolicy.DROP_NEWEST);
+		for(int i = 0; i < 6; i++){
+			logger.accept(new LogMessage("first " + i));
+		}
+		final List<LogMessage> drained = new ArrayList<LogMessage>();
+		assertEquals(6, logger.drainTo(drained, 100));
+		for(int i = 0; i < 8; i++){
+			logger.accept(new LogMessage("second " + i));
+		}
+		final LogMessage[] batch = new LogMessage[5];
+		assertEquals(5, logger.drainTo(batch, 0, 5));
+		assertEquals("second 4", batch[4].getMessage());
+		assertEquals(3, logger.drainTo(drained::add, 5));
+		assertEquals("second 7", drained.get(8).getMessage());
+		assertNull(logger.getNextMessage());
+		assertEquals(0, logger.getDropCount());
+	}
+
+	@Test
+	public void stampsTravelWithTheirMessages()
+	{
+		final RingBufferLogger logger = new RingBufferLogger(4, OverflowPolicy.DROP_OLDEST, true);
+		for(int i = 0; i < 6; i++){
+			logger.accept(new LogMessage("message " + i), 100 + i);
+		}
+		final LogMessage[] batch = new LogMessage[4];
+		final long[] stamps = new long[4];
+		assertEquals(4, logger.drainTo(batch, stamps, 0, 4));
+		assertEquals("message 2", batch[0].getMessage());
+		assertArrayEquals(new long[] {102, 103, 104, 105}, stamps);
+		//An unstamped ring hands back 0
+		final RingBufferLogger unstamped = new RingBufferLogger(4, OverflowPolicy.DROP_OLDEST);
+		unstamped.accept(new LogMessage("message"), 7);
+		assertEquals(1, unstamped.drainTo(batch, stamps, 0, 4));
+		assertEquals(0, stamps[0]);
+	}
+
+	@Test
+	public void drainToKeepsUpWithConcurrentProducers() throws InterruptedException
+	{
+		final RingBufferLogger logger = new RingBufferLogger(64, OverflowPolicy.BLOCK);
+		final int producers = 4;
+		final int perProducer = 20000;
+		final Thread[] threads = new Thread[producers];
+		for(int p = 0; p < producers; p++){
+			final int producer = p;
+			threads[p] = new Thread(() -> {
+				for(int i = 0; i < perProducer; i++){
+					logger.accept(new LogMessage(producer, TollGate.Action.OPEN,
+							LogCatalogue.Outcome.SUCCESSFUL, null));
+				}
+			});
+			threads[p].start();
+		}
+		final int[] received = new int[producers];
+		int total = 0;
+		while(total < producers * perProducer){
+			total += logger.drainTo(message -> received[message.getGateId()]++, 32);
+		}
+		for(Thread thread : threads){
+			thread.join();
+		}
+		for(int p = 0; p < producers; p++){
+			assertEquals(perProducer, received[p]);
+		}
+		assertNull(logger.getNextMessage());
+	}
+}
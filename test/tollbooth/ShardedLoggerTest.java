@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import tollbooth.LogCatalogue.Outcome;
+import tollbooth.ShardedLogger.ShardDepth;
+import tollbooth.TollGate.Action;
+
+/**
+ * Test cases for the ShardedLogger class.
+ */
+public class ShardedLoggerTest
+{
+	@Test
+	public void emptyLoggerReturnsNull()
+	{
+		final ShardedLogger logger = new ShardedLogger();
+		assertNull(logger.getNextMessage());
+		assertEquals(0, logger.logSize());
+		assertEquals(0, logger.getShardCount());
+	}
+
+	@Test
+	public void messagesFromOneThreadAreReturnedInOrder()
+	{
+		final ShardedLogger logger = new ShardedLogger(4);
+		for(int lap = 0; lap < 3; lap++){
+			for(int i = 0; i < 4; i++){
+				logger.accept(new LogMessage("message " + i));
+			}
+			assertEquals(4, logger.logSize());
+			for(int i = 0; i < 4; i++){
+				assertEquals("message " + i, logger.getNextMessage().getMessage());
+			}
+			assertNull(logger.getNextMessage());
+		}
+		assertEquals(1, logger.getShardCount());
+	}
+
+	@Test
+	public void fullShardDropsNewMessages()
+	{
+		final ShardedLogger logger = new ShardedLogger(2);
+		logger.accept(new LogMessage("first"));
+		logger.accept(new LogMessage("second"));
+		logger.accept(new LogMessage("third"));
+		assertEquals(1, logger.getDropCount());
+		assertEquals("first", logger.getNextMessage().getMessage());
+		logger.accept(new LogMessage("fourth"));
+		assertEquals("second", logger.getNextMessage().getMessage());
+		assertEquals("fourth", logger.getNextMessage().getMessage());
+	}
+
+	@Test
+	public void shardsAreMergedInAcceptOrder() throws InterruptedException
+	{
+		final ShardedLogger logger = new ShardedLogger();
+		//Alternate between two threads so every message lands in a different shard from
+		//the one before it
+		for(int i = 0; i < 6; i++){
+			final LogMessage message = new LogMessage("message " + i);
+			if(i % 2 == 0){
+				logger.accept(message);
+			} else{
+				final Thread writer = new Thread(() -> logger.accept(message), "writer-" + i);
+				writer.start();
+				writer.join();
+			}
+		}
+		final List<LogMessage> drained = new ArrayList<LogMessage>();
+		assertEquals(6, logger.drainTo(drained, 10));
+		for(int i = 0; i < 6; i++){
+			assertEquals("message " + i, drained.get(i).getMessage());
+		}
+	}
+
+	@Test
+	public void concurrentWritersKeepTheirOwnOrder() throws InterruptedException
+	{
+		final ShardedLogger logger = new ShardedLogger(1024);
+		final int writers = 4;
+		final int perWriter = 500;
+		final Thread[] threads = new Thread[writers];
+		for(int w = 0; w < writers; w++){
+			final int gateId = w;
+			threads[w] = new Thread(() -> {
+				for(int i = 0; i < perWriter; i++){
+					logger.accept(new LogMessage(gateId, Action.OPEN, Outcome.SUCCESSFUL, null));
+				}
+			});
+			threads[w].start();
+		}
+		final List<LogMessage> drained = new ArrayList<LogMessage>();
+		while(drained.size() < writers * perWriter){
+			logger.drainTo(drained, 64);
+		}
+		for(Thread thread : threads){
+			thread.join();
+		}
+		final int[] counts = new int[writers];
+		for(LogMessage message : drained){
+			counts[message.getGateId()]++;
+		}
+		for(int count : counts){
+			assertEquals(perWriter, count);
+		}
+		assertEquals(0, logger.getDropCount());
+		//Every writer has ended and been drained, so its shard is gone
+		assertNull(logger.getNextMessage());
+		assertEquals(0, logger.getShardCount());
+	}
+
+	@Test
+	public void shardDepthsShowTheBusiestThreadFirst() throws InterruptedException
+	{
+		final ShardedLogger logger = new ShardedLogger();
+		logger.accept(new LogMessage(1, Action.OPEN, Outcome.SUCCESSFUL, null));
+		final Thread hot = new Thread(() -> {
+			for(int i = 0; i < 5; i++){
+				logger.accept(new LogMessage(7, Action.CLOSE, Outcome.MALFUNCTION, null));
+			}
+		}, "hot-lane");
+		hot.start();
+		hot.join();
+		final List<ShardDepth> depths = logger.getShardDepths();
+		assertEquals(2, depths.size());
+		assertEquals("hot-lane", depths.get(0).getThreadName());
+		assertEquals(5, depths.get(0).getDepth());
+		assertEquals(7, depths.get(0).getLastGateId());
+		assertEquals(1, depths.get(1).getDepth());
+		assertEquals(1, depths.get(1).getLastGateId());
+		assertEquals(6, logger.logSize());
+	}
+}
@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import tollbooth.gatecontroller.*;
+
+/**
+ * Test cases for the TollPlaza class.
+ */
+public class TollPlazaTest
+{
+	private final TollPlaza plaza = new TollPlaza(new RingBufferLogger(), 4);
+
+	@After
+	public void shutdownPlaza() throws InterruptedException
+	{
+		plaza.shutdown(5, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void commandsAreRoutedByLaneId() throws Exception
+	{
+		final TestGateController first = new TestGateController();
+		final TestGateController second = new TestGateController();
+		plaza.addLane("lane-1", first);
+		plaza.addLane("lane-2", second);
+		plaza.open("lane-2").get(5, TimeUnit.SECONDS);
+		assertFalse(first.isOpen());
+		assertTrue(second.isOpen());
+		assertEquals(2, plaza.getLaneCount());
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void duplicateLaneIsRejected()
+	{
+		plaza.addLane("lane-1", new TestGateController());
+		plaza.addLane("lane-1", new TestGateController());
+	}
+
+	@Test
+	public void unknownLaneFails() throws Exception
+	{
+		try{
+			plaza.open("missing").get(5, TimeUnit.SECONDS);
+			fail("expected an unknown lane to fail");
+		}catch(ExecutionException e){
+			assertTrue(e.getCause() instanceof TollboothException);
+		}
+	}
+
+	@Test
+	public void statisticsAreAggregatedAcrossLanes() throws Exception
+	{
+		final TestGateController broken = new TestGateController();
+		for(int i = 0; i < 10; i++){
+			plaza.addLane("lane-" + i, new TestGateController());
+		}
+		plaza.addLane("broken", broken);
+		broken.scheduleXFailures(3);
+		for(int i = 0; i < 10; i++){
+			plaza.open("lane-" + i);
+			plaza.close("lane-" + i);
+		}
+		plaza.open("broken").get(5, TimeUnit.SECONDS);
+		for(int i = 0; i < 10; i++){
+			plaza.open("lane-" + i).get(5, TimeUnit.SECONDS);
+		}
+		assertEquals(20, plaza.getTotalOpens());
+		assertEquals(10, plaza.getTotalCloses());
+		assertEquals(1, plaza.getUnresponsiveGateCount());
+	}
+
+	@Test
+	public void wedgedGateDoesNotBlockOtherLanes() throws Exception
+	{
+		final CountDownLatch release = new CountDownLatch(1);
+		plaza.addLane("wedged", new TestGateController() {
+			@Override
+			public void open() throws TollboothException
+			{
+				try{
+					release.await();
+				}catch(InterruptedException e){
+					Thread.currentThread().interrupt();
+				}
+				super.open();
+			}
+		});
+		plaza.addLane("healthy", new TestGateController());
+		plaza.open("wedged");
+		plaza.open("healthy").get(5, TimeUnit.SECONDS);
+		assertEquals(1, plaza.getLane("healthy").getNumberOfOpens());
+		release.countDown();
+	}
+
+	@Test
+	public void resetUnresponsiveReportsEveryGate() throws Exception
+	{
+		final TestGateController recovers = new TestGateController();
+		final TestGateController staysDown = new TestGateController();
+		final TestGateController refuses = new TestGateController();
+		plaza.addLane("recovers", recovers);
+		plaza.addLane("stays-down", staysDown);
+		plaza.addLane("refuses", refuses);
+		plaza.addLane("healthy", new TestGateController());
+		for(TestGateController controller : new TestGateController[]{recovers, staysDown, refuses}){
+			controller.scheduleXFailures(3);
+		}
+		plaza.open("recovers").get(5, TimeUnit.SECONDS);
+		plaza.open("stays-down").get(5, TimeUnit.SECONDS);
+		plaza.open("refuses").get(5, TimeUnit.SECONDS);
+		//An unrecoverable reset makes the next failed reset refuse
+		refuses.scheduleXFailures(3);
+		plaza.reset("refuses").get(5, TimeUnit.SECONDS);
+		refuses.scheduleXFailures(1);
+		staysDown.scheduleXFailures(3);
+
+		final BatchResetReport report = plaza.resetUnresponsive(2).get(5, TimeUnit.SECONDS);
+		assertEquals(3, report.getLaneIds().size());
+		assertEquals(BatchResetReport.Result.RECOVERED, report.getResult("recovers"));
+		assertEquals(BatchResetReport.Result.STILL_UNRESPONSIVE, report.getResult("stays-down"));
+		assertEquals(BatchResetReport.Result.FAILED, report.getResult("refuses"));
+		assertEquals("reset: will not respond", report.getCause("refuses").getMessage());
+		assertNull(report.getResult("healthy"));
+		assertEquals(1, report.getCount(BatchResetReport.Result.RECOVERED));
+		assertEquals(2, plaza.getUnresponsiveGateCount());
+	}
+
+	@Test
+	public void resetUnresponsiveBoundsConcurrency() throws Exception
+	{
+		final AtomicInteger active = new AtomicInteger();
+		final AtomicInteger mostActive = new AtomicInteger();
+		for(int i = 0; i < 8; i++){
+			final TestGateController controller = new TestGateController() {
+				@Override
+				public boolean tryReset()
+				{
+					mostActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+					try{
+						Thread.sleep(20);
+					}catch(InterruptedException e){
+						Thread.currentThread().interrupt();
+					}
+					active.decrementAndGet();
+					return super.tryReset();
+				}
+			};
+			plaza.addLane("lane-" + i, controller);
+			controller.scheduleXFailures(3);
+			plaza.open("lane-" + i).get(5, TimeUnit.SECONDS);
+		}
+		assertEquals(8, plaza.getUnresponsiveGateCount());
+		final BatchResetReport report = plaza.resetUnresponsive(2).get(5, TimeUnit.SECONDS);
+		assertEquals(8, report.getCount(BatchResetReport.Result.RECOVERED));
+		assertEquals(0, plaza.getUnresponsiveGateCount());
+		assertTrue(mostActive.get() <= 2);
+	}
+
+	@Test
+	public void resetUnresponsiveWithNothingToReset() throws Exception
+	{
+		plaza.addLane("healthy", new TestGateController());
+		final CompletableFuture<BatchResetReport> report = plaza.resetUnresponsive(4);
+		assertTrue(report.isDone());
+		assertTrue(report.get().getLaneIds().isEmpty());
+	}
+}
@@ -14,6 +14,11 @@ package tollbooth;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -417,4 +422,149 @@ public class TollboothTest
 		LogMessage msg = logger.getNextMessage();
 		assertEquals(false, msg.hasCause());
 	}
+	
+	@Test
+	public void repeatedMalfunctionsShareOneLogMessage() throws TollboothException{
+		final TestGateController controller = new TestGateController();
+		final SimpleLogger logger = new TollboothLogger();
+		final TollGate gate = new TollGate(controller, logger);
+		controller.scheduleXFailures(2);
+		gate.open();
+		final LogMessage first = logger.getNextMessage();
+		assertSame(first, logger.getNextMessage());
+		assertSame(LogCatalogue.get(TollGate.Action.OPEN, LogCatalogue.Outcome.MALFUNCTION), first);
+		assertEquals(TollGate.Action.OPEN, first.getAction());
+		assertEquals(LogCatalogue.Outcome.MALFUNCTION, first.getOutcome());
+	}
+	
+	@Test
+	public void catalogueTextMatchesLegacyMessages(){
+		assertEquals("close: unrecoverable malfunction",
+				LogCatalogue.getText(TollGate.Action.CLOSE, LogCatalogue.Outcome.UNRECOVERABLE_MALFUNCTION));
+		assertEquals("reset: will not respond",
+				new LogMessage(TollGate.Action.RESET, LogCatalogue.Outcome.WILL_NOT_RESPOND, null).getMessage());
+		assertNull(new LogMessage("free-form").getAction());
+	}
+	
+	@Test
+	public void asyncCommandsRunInOrder() throws Exception{
+		final TestGateController controller = new TestGateController();
+		final SimpleLogger logger = new TollboothLogger();
+		final TollGate gate = new TollGate(controller, logger);
+		gate.openAsync();
+		gate.closeAsync();
+		gate.openAsync().get(5, TimeUnit.SECONDS);
+		assertEquals(0, gate.getPendingCommandCount());
+		assertEquals(2, gate.getNumberOfOpens());
+		assertEquals(1, gate.getNumberOfCloses());
+		assertTrue(gate.isOpen());
+	}
+	
+	@Test
+	public void asyncOpenReportsWillNotRespond() throws Exception{
+		final TestGateController controller = new TestGateController();
+		final SimpleLogger logger = new TollboothLogger();
+		final TollGate gate = new TollGate(controller, logger);
+		controller.scheduleXFailures(4);
+		gate.openAsync();
+		try{
+			gate.openAsync().get(5, TimeUnit.SECONDS);
+			fail("expected the second open to fail");
+		}catch(ExecutionException e){
+			assertTrue(e.getCause() instanceof TollboothException);
+			assertEquals("open: will not respond", e.getCause().getMessage());
+		}
+		gate.resetAsync().get(5, TimeUnit.SECONDS);
+		assertEquals(false, gate.getUnresponsiveMode());
+	}
+	
+	@Test
+	public void malfunctionsRetriesAndResetsAreCounted() throws TollboothException{
+		final TestGateController controller = new TestGateController();
+		final SimpleLogger logger = new TollboothLogger();
+		final TollGate gate = new TollGate(controller, logger);
+		controller.scheduleXFailures(2);
+		gate.open();
+		gate.reset();
+		assertEquals(1, gate.getNumberOfOpens());
+		assertEquals(1, gate.getNumberOfResets());
+		assertEquals(2, gate.getNumberOfMalfunctions());
+		assertEquals(2, gate.getNumberOfRetries());
+	}
+	
+	@Test
+	public void countersAreAccurateUnderConcurrentDispatch() throws InterruptedException{
+		final TestGateController controller = new TestGateController();
+		final TollGate gate = new TollGate(controller, new RingBufferLogger());
+		final Thread[] threads = new Thread[4];
+		for(int t = 0; t < threads.length; t++){
+			threads[t] = new Thread(() -> {
+				for(int i = 0; i < 5000; i++){
+					try{
+						gate.actionDispatch(controller, TollGate.Action.OPEN);
+					}catch(TollboothException e){
+						fail(e.getMessage());
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for(Thread thread : threads){
+			thread.join();
+		}
+		assertEquals(20000, gate.getNumberOfOpens());
+	}
+
+	@Test
+	public void drainToRemovesUpToTheLimitInOrder() throws TollboothException
+	{
+		final TollboothLogger logger = new TollboothLogger();
+		final TollGate gate = new TollGate(new TestGateController(), logger);
+		gate.open();
+		gate.close();
+		gate.open();
+		final List<LogMessage> drained = new ArrayList<LogMessage>();
+		assertEquals(2, logger.drainTo(drained, 2));
+		assertEquals("open: successful", drained.get(0).getMessage());
+		assertEquals("close: successful", drained.get(1).getMessage());
+		final LogMessage[] batch = new LogMessage[4];
+		assertEquals(1, logger.drainTo(batch, 1, 3));
+		assertEquals("open: successful", batch[1].getMessage());
+		assertEquals(0, logger.drainTo(drained, 10));
+		assertEquals(0, logger.logSize());
+	}
+
+	@Test
+	public void willNotRespondIsPreallocatedAndStackless() throws TollboothException
+	{
+		final TestGateController controller = new TestGateController();
+		final TollboothLogger logger = new TollboothLogger();
+		final TollGate gate = new TollGate(controller, logger);
+		controller.scheduleXFailures(3);
+		gate.open();
+		TollboothException first = null;
+		for(int i = 0; i < 2; i++){
+			try{
+				gate.open();
+				fail("expected the gate to refuse");
+			}catch(TollboothException e){
+				if(first == null){
+					first = e;
+				}
+				assertSame(first, e);
+				assertEquals(0, e.getStackTrace().length);
+			}
+		}
+		assertEquals("open: will not respond", first.getMessage());
+	}
+
+	@Test
+	public void stacklessExceptionHasNoStackTrace()
+	{
+		final TollboothException e = TollboothException.stackless("stackless");
+		assertEquals(0, e.getStackTrace().length);
+		assertTrue(new TollboothException("full").getStackTrace().length > 0);
+		e.addSuppressed(new RuntimeException());
+		assertEquals(0, e.getSuppressed().length);
+	}
 }
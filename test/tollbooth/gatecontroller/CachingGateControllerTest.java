@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth.gatecontroller;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import tollbooth.*;
+
+/**
+ * Test cases for the CachingGateController class.
+ */
+public class CachingGateControllerTest
+{
+	/**
+	 * Counts the isOpen() calls that reach the hardware
+	 */
+	private static class CountingGateController extends TestGateController
+	{
+		int isOpenCalls;
+
+		@Override
+		public boolean isOpen() throws TollboothException
+		{
+			isOpenCalls++;
+			return super.isOpen();
+		}
+	}
+
+	@Test
+	public void gateOpenCloseCycleSkipsHardwareReads() throws TollboothException
+	{
+		final CountingGateController hardware = new CountingGateController();
+		final CachingGateController controller =
+				new CachingGateController(hardware, 1, TimeUnit.HOURS);
+		final TollGate gate = new TollGate(controller, new TollboothLogger());
+		for(int i = 0; i < 10; i++){
+			gate.open();
+			assertTrue(gate.isOpen());
+			gate.close();
+		}
+		assertEquals(1, hardware.isOpenCalls);
+		assertEquals(1, controller.getHardwareReadCount());
+		assertEquals(29, controller.getSavedReadCount());
+		assertEquals(10, gate.getNumberOfOpens());
+	}
+
+	@Test
+	public void failureForcesHardwareRead() throws TollboothException
+	{
+		final CountingGateController hardware = new CountingGateController();
+		final CachingGateController controller =
+				new CachingGateController(hardware, 1, TimeUnit.HOURS);
+		controller.open();
+		hardware.scheduleXFailures(1);
+		try{
+			controller.close();
+			fail("expected the close to fail");
+		}catch(TollboothException e){
+			assertTrue(controller.isOpen());
+			assertEquals(1, hardware.isOpenCalls);
+		}
+	}
+
+	@Test
+	public void resetForcesHardwareRead() throws TollboothException
+	{
+		final CountingGateController hardware = new CountingGateController();
+		final CachingGateController controller =
+				new CachingGateController(hardware, 1, TimeUnit.HOURS);
+		controller.open();
+		controller.reset();
+		assertFalse(controller.isOpen());
+		assertEquals(1, hardware.isOpenCalls);
+	}
+
+	@Test
+	public void zeroTtlAlwaysReadsHardware() throws TollboothException
+	{
+		final CountingGateController hardware = new CountingGateController();
+		final CachingGateController controller =
+				new CachingGateController(hardware, 0, TimeUnit.SECONDS);
+		controller.open();
+		controller.isOpen();
+		controller.isOpen();
+		assertEquals(2, hardware.isOpenCalls);
+		assertEquals(0, controller.getSavedReadCount());
+	}
+}
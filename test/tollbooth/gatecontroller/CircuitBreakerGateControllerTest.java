@@ -0,0 +1,204 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth.gatecontroller;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import tollbooth.*;
+import tollbooth.gatecontroller.CircuitBreakerGateController.State;
+
+/**
+ * Test cases for the CircuitBreakerGateController class.
+ */
+public class CircuitBreakerGateControllerTest
+{
+	@Test
+	public void breakerOpensWhenFailureRateReachesThreshold() throws TollboothException
+	{
+		final TestGateController hardware = new TestGateController();
+		final TollboothLogger logger = new TollboothLogger();
+		final CircuitBreakerGateController breaker =
+				new CircuitBreakerGateController(hardware, logger, 4, 0.5, 1, TimeUnit.HOURS);
+		breaker.open();
+		breaker.close();
+		hardware.scheduleXFailures(1);
+		failOpen(breaker);
+		assertEquals(State.CLOSED, breaker.getState());
+		hardware.scheduleXFailures(1);
+		failOpen(breaker);
+		assertEquals(State.OPEN, breaker.getState());
+		assertEquals("circuit breaker: closed to open", logger.getNextMessage().getMessage());
+	}
+
+	@Test
+	public void openBreakerFailsFastWithoutCallingHardware() throws TollboothException
+	{
+		final TestGateController hardware = new TestGateController();
+		final CircuitBreakerGateController breaker =
+				new CircuitBreakerGateController(hardware, null, 1, 1.0, 1, TimeUnit.HOURS);
+		hardware.scheduleXFailures(1);
+		failOpen(breaker);
+		hardware.scheduleXFailures(1);
+		TollboothException first = null;
+		for(int i = 0; i < 3; i++){
+			try{
+				breaker.open();
+				fail("expected the breaker to reject the call");
+			}catch(TollboothException e){
+				if(first == null){
+					first = e;
+				}
+				assertSame(first, e);
+			}
+		}
+		//The scheduled failure was never consumed by the hardware
+		failOpen(hardware);
+	}
+
+	@Test
+	public void tryMethodsReportFailuresWithoutThrowing() throws TollboothException
+	{
+		final TestGateController hardware = new TestGateController();
+		final CircuitBreakerGateController breaker =
+				new CircuitBreakerGateController(hardware, null, 2, 1.0, 1, TimeUnit.HOURS);
+		assertTrue(breaker.tryOpen());
+		assertTrue(hardware.isOpen());
+		hardware.scheduleXFailures(2);
+		assertFalse(breaker.tryClose());
+		assertEquals(State.CLOSED, breaker.getState());
+		assertFalse(breaker.tryReset());
+		assertEquals(State.OPEN, breaker.getState());
+		//Rejected without reaching the hardware
+		assertFalse(breaker.tryClose());
+		assertTrue(hardware.isOpen());
+	}
+
+	@Test
+	public void breakerRecoversOnItsOwn() throws Exception
+	{
+		final TestGateController hardware = new TestGateController();
+		final TollboothLogger logger = new TollboothLogger();
+		final CircuitBreakerGateController breaker =
+				new CircuitBreakerGateController(hardware, logger, 1, 1.0, 20, TimeUnit.MILLISECONDS);
+		final CountDownLatch closed = new CountDownLatch(1);
+		breaker.setStateListener((from, to) -> {
+			if(to == State.CLOSED){
+				closed.countDown();
+			}
+		});
+		hardware.scheduleXFailures(1);
+		failOpen(breaker);
+		assertTrue(closed.await(5, TimeUnit.SECONDS));
+		assertEquals(State.CLOSED, breaker.getState());
+		assertEquals("circuit breaker: closed to open", logger.getNextMessage().getMessage());
+		assertEquals("circuit breaker: open to half-open", logger.getNextMessage().getMessage());
+		assertEquals("circuit breaker: half-open to closed", logger.getNextMessage().getMessage());
+	}
+
+	@Test
+	public void laneComesBackWithoutManualReset() throws Exception
+	{
+		final TestGateController hardware = new TestGateController();
+		final CircuitBreakerGateController breaker =
+				new CircuitBreakerGateController(hardware, null, 3, 1.0, 20, TimeUnit.MILLISECONDS);
+		final TollGate gate = new TollGate(breaker, new RingBufferLogger());
+		final CountDownLatch recovered = new CountDownLatch(1);
+		breaker.setStateListener((from, to) -> {
+			if(to == State.CLOSED){
+				gate.resetAsync().thenRun(recovered::countDown);
+			}
+		});
+		hardware.scheduleXFailures(3);
+		gate.open();
+		assertTrue(gate.getUnresponsiveMode());
+		assertTrue(recovered.await(5, TimeUnit.SECONDS));
+		assertFalse(gate.getUnresponsiveMode());
+		gate.open();
+		assertTrue(gate.isOpen());
+	}
+
+	@Test
+	public void runtimeExceptionsCountAsFailures() throws Exception
+	{
+		final AtomicBoolean broken = new AtomicBoolean(true);
+		final TestGateController hardware = new TestGateController()
+		{
+			@Override
+			public void open() throws TollboothException
+			{
+				if(broken.get()){
+					throw new IllegalStateException("driver fault");
+				}
+				super.open();
+			}
+
+			@Override
+			public boolean isOpen() throws TollboothException
+			{
+				if(broken.get()){
+					throw new IllegalStateException("driver fault");
+				}
+				return super.isOpen();
+			}
+		};
+		final CircuitBreakerGateController breaker =
+				new CircuitBreakerGateController(hardware, null, 1, 1.0, 20, TimeUnit.MILLISECONDS);
+		final CountDownLatch reopened = new CountDownLatch(1);
+		final CountDownLatch closed = new CountDownLatch(1);
+		breaker.setStateListener((from, to) -> {
+			if(from == State.HALF_OPEN && to == State.OPEN){
+				reopened.countDown();
+			}
+			if(to == State.CLOSED){
+				closed.countDown();
+			}
+		});
+		try{
+			breaker.open();
+			fail("expected the driver fault");
+		}catch(IllegalStateException e){
+			assertEquals(State.OPEN, breaker.getState());
+		}
+		//The automatic probe hits the fault too, and must not leave the breaker half-open
+		assertTrue(reopened.await(5, TimeUnit.SECONDS));
+		broken.set(false);
+		assertTrue(closed.await(5, TimeUnit.SECONDS));
+		breaker.open();
+		assertTrue(hardware.isOpen());
+	}
+
+	@Test
+	public void transitionsArePublishedWithoutTheBreakerLock()
+	{
+		final TestGateController hardware = new TestGateController();
+		final TollboothLogger logger = new TollboothLogger();
+		final CircuitBreakerGateController breaker =
+				new CircuitBreakerGateController(hardware, logger, 1, 1.0, 1, TimeUnit.HOURS);
+		final AtomicBoolean heldLock = new AtomicBoolean();
+		breaker.setStateListener((from, to) -> heldLock.set(Thread.holdsLock(breaker)));
+		hardware.scheduleXFailures(1);
+		failOpen(breaker);
+		assertEquals(State.OPEN, breaker.getState());
+		assertFalse(heldLock.get());
+		assertEquals("circuit breaker: closed to open", logger.getNextMessage().getMessage());
+	}
+
+	private static void failOpen(GateController controller)
+	{
+		try{
+			controller.open();
+			fail("expected the open to fail");
+		}catch(TollboothException e){
+			//expected
+		}
+	}
+}
@@ -0,0 +1,190 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth.gatecontroller;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import tollbooth.*;
+import wpi.hw.xyzco.GateControllerException;
+
+/**
+ * Test cases for the MultiplexingXYZCOAdapter class.
+ */
+public class MultiplexingXYZCOAdapterTest
+{
+	@Test
+	public void commandsReachTheirBarrier() throws TollboothException, GateControllerException
+	{
+		final MultiplexingXYZCOAdapter adapter = new MultiplexingXYZCOAdapter();
+		final SimulatedControlUnit first = new SimulatedControlUnit(3, 0);
+		final SimulatedControlUnit second = new SimulatedControlUnit(2, 0);
+		assertEquals(0, adapter.addUnit(first));
+		assertEquals(1, adapter.addUnit(second));
+		adapter.getGate(0, 2).open();
+		adapter.getGate(1, 0).open();
+		assertTrue(adapter.getGate(0, 2).isOpen());
+		assertFalse(adapter.getGate(0, 1).isOpen());
+		assertTrue(first.isOpen(2));
+		assertTrue(second.isOpen(0));
+		assertFalse(second.isOpen(1));
+		adapter.getGate(0, 2).close();
+		assertFalse(first.isOpen(2));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void unknownBarrierIsRejected()
+	{
+		final MultiplexingXYZCOAdapter adapter = new MultiplexingXYZCOAdapter();
+		adapter.addUnit(new SimulatedControlUnit(2, 0));
+		adapter.getGate(0, 2);
+	}
+
+	@Test
+	public void callsToOneUnitAreSerialized() throws InterruptedException
+	{
+		final MultiplexingXYZCOAdapter adapter = new MultiplexingXYZCOAdapter(64);
+		final SimulatedControlUnit unit = new SimulatedControlUnit(4, 1);
+		adapter.addUnit(unit);
+		final List<Thread> threads = new ArrayList<Thread>();
+		final List<TollGate> gates = new ArrayList<TollGate>();
+		final AtomicInteger failures = new AtomicInteger();
+		for(int barrier = 0; barrier < 4; barrier++){
+			final TollGate gate = new TollGate(barrier + 1, adapter.getGate(0, barrier), new TollboothLogger(),
+					GateCommandQueue.defaultExecutor(), BackoffRetryPolicy.immediate(1));
+			gates.add(gate);
+			threads.add(new Thread(() -> {
+				for(int i = 0; i < 5; i++){
+					try{
+						gate.open();
+						gate.close();
+					}catch(TollboothException e){
+						failures.incrementAndGet();
+					}
+				}
+			}));
+		}
+		for(Thread thread : threads){
+			thread.start();
+		}
+		for(Thread thread : threads){
+			thread.join();
+		}
+		assertEquals(0, failures.get());
+		assertEquals(1, unit.getMaxRunning());
+		assertEquals(0, adapter.getQueueDepth(0));
+		for(TollGate gate : gates){
+			assertEquals(5, gate.getNumberOfOpens());
+		}
+	}
+
+	@Test
+	public void fullWindowFailsAtOnce() throws InterruptedException, TollboothException
+	{
+		final MultiplexingXYZCOAdapter adapter = new MultiplexingXYZCOAdapter(2);
+		final SimulatedControlUnit busy = new SimulatedControlUnit(3, 0);
+		adapter.addUnit(busy);
+		adapter.addUnit(new SimulatedControlUnit(1, 0));
+		busy.hold();
+		final List<Thread> waiting = new ArrayList<Thread>();
+		for(int barrier = 0; barrier < 2; barrier++){
+			final GateController gate = adapter.getGate(0, barrier);
+			final Thread thread = new Thread(gate::tryOpen);
+			thread.start();
+			waiting.add(thread);
+		}
+		while(adapter.getQueueDepth(0) < 2){
+			Thread.sleep(1);
+		}
+		assertFalse(adapter.getGate(0, 2).tryOpen());
+		assertEquals(1, adapter.getRejectedCount(0));
+		assertArrayEquals(new int[] {2, 0}, adapter.getQueueDepths());
+		//Other units are not held up
+		adapter.getGate(1, 0).open();
+		assertNull(adapter.pollOpen()[0]);
+		busy.release();
+		for(Thread thread : waiting){
+			thread.join();
+		}
+		assertArrayEquals(new int[] {0, 0}, adapter.getQueueDepths());
+		assertArrayEquals(new boolean[] {true, true, false}, adapter.pollOpen()[0]);
+	}
+
+	@Test
+	public void statusPollsRunOnEveryUnitAtOnce()
+	{
+		final MultiplexingXYZCOAdapter adapter = new MultiplexingXYZCOAdapter();
+		final List<SimulatedControlUnit> units = new ArrayList<SimulatedControlUnit>();
+		for(int i = 0; i < 4; i++){
+			units.add(new SimulatedControlUnit(2, 40));
+			adapter.addUnit(units.get(i));
+		}
+		final long start = System.nanoTime();
+		final boolean[][] open = adapter.pollOpen();
+		final long elapsedMillis = (System.nanoTime() - start) / 1_000_000L;
+		//One unit after another would take 4 units * 2 barriers * 40ms
+		assertTrue("poll took " + elapsedMillis + "ms", elapsedMillis < 240);
+		assertEquals(4, open.length);
+		for(boolean[] unit : open){
+			assertArrayEquals(new boolean[] {false, false}, unit);
+		}
+	}
+
+	@Test
+	public void hungUnitTimesOutAndDropsQueuedCommands() throws Exception
+	{
+		final MultiplexingXYZCOAdapter adapter = new MultiplexingXYZCOAdapter(4, 50, TimeUnit.MILLISECONDS);
+		final SimulatedControlUnit unit = new SimulatedControlUnit(2, 0);
+		adapter.addUnit(unit);
+		unit.hold();
+		assertFalse(adapter.getGate(0, 0).tryOpen());
+		assertFalse(adapter.getGate(0, 1).tryOpen());
+		try{
+			adapter.getGate(0, 1).close();
+			fail("expected the close to time out");
+		}catch(TollboothException e){
+			assertEquals("Control unit call timed out", e.getMessage());
+		}
+		assertEquals(3, adapter.getTimeoutCount(0));
+		//Only the hung open still holds a slot
+		assertEquals(1, adapter.getQueueDepth(0));
+		unit.release();
+		for(int i = 0; i < 100 && adapter.getQueueDepth(0) > 0; i++){
+			Thread.sleep(10);
+		}
+		assertEquals(0, adapter.getQueueDepth(0));
+		assertArrayEquals(new boolean[] {true, false}, adapter.pollOpen()[0]);
+	}
+
+	@Test
+	public void hardwareFailuresAreTollboothExceptions() throws TollboothException
+	{
+		final MultiplexingXYZCOAdapter adapter = new MultiplexingXYZCOAdapter();
+		final SimulatedControlUnit unit = new SimulatedControlUnit(1, 0);
+		adapter.addUnit(unit);
+		final GateController gate = adapter.getGate(0, 0);
+		unit.scheduleXFailures(2);
+		try{
+			gate.open();
+			fail("expected the unit to fail");
+		}catch(TollboothException e){
+			assertEquals("Hardware threw exception on open", e.getMessage());
+			assertTrue(e.getCause() instanceof GateControllerException);
+		}
+		assertFalse(gate.tryOpen());
+		assertTrue(gate.tryOpen());
+		assertTrue(gate.isOpen());
+		unit.scheduleXFailures(1);
+		assertNull(adapter.pollOpen()[0]);
+		assertArrayEquals(new boolean[] {true}, adapter.pollOpen()[0]);
+	}
+}
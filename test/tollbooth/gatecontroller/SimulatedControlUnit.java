@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth.gatecontroller;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import wpi.hw.xyzco.GateControllerException;
+
+/**
+ * A simulated XYZ Co. control unit. Every call takes a fixed time, can be held until
+ * it is released, and records how many calls were ever running at once.
+ */
+public class SimulatedControlUnit implements XYZCOControlUnit
+{
+	private final boolean[] open;
+	private final long latencyMillis;
+	private final AtomicInteger running = new AtomicInteger();
+	private final AtomicInteger maxRunning = new AtomicInteger();
+	private volatile CountDownLatch hold = new CountDownLatch(0);
+	private volatile int scheduledFailureCount;
+
+	/**
+	 * Constructor for the simulated control unit.
+	 * @param barriers the number of barriers wired to the unit
+	 * @param latencyMillis how long every call takes
+	 */
+	public SimulatedControlUnit(int barriers, long latencyMillis)
+	{
+		open = new boolean[barriers];
+		this.latencyMillis = latencyMillis;
+	}
+
+	@Override
+	public int getBarrierCount()
+	{
+		return open.length;
+	}
+
+	@Override
+	public void open(int barrier) throws GateControllerException
+	{
+		call("open");
+		open[barrier] = true;
+	}
+
+	@Override
+	public void close(int barrier) throws GateControllerException
+	{
+		call("close");
+		open[barrier] = false;
+	}
+
+	@Override
+	public void reset(int barrier) throws GateControllerException
+	{
+		call("reset");
+		open[barrier] = false;
+	}
+
+	@Override
+	public boolean isOpen(int barrier) throws GateControllerException
+	{
+		call("isOpen");
+		return open[barrier];
+	}
+
+	/**
+	 * Holds every call until release() is called
+	 */
+	public void hold()
+	{
+		hold = new CountDownLatch(1);
+	}
+
+	/**
+	 * Lets held calls continue
+	 */
+	public void release()
+	{
+		hold.countDown();
+	}
+
+	/**
+	 * @param x the number of calls that will fail
+	 */
+	public void scheduleXFailures(int x)
+	{
+		scheduledFailureCount = x;
+	}
+
+	/**
+	 * @return the largest number of calls that were running at once
+	 */
+	public int getMaxRunning()
+	{
+		return maxRunning.get();
+	}
+
+	private void call(String name) throws GateControllerException
+	{
+		final int now = running.incrementAndGet();
+		maxRunning.accumulateAndGet(now, Math::max);
+		try{
+			hold.await();
+			Thread.sleep(latencyMillis);
+		}catch(InterruptedException e){
+			throw new GateControllerException("Interrupted in " + name, e);
+		}finally{
+			running.decrementAndGet();
+		}
+		if(scheduledFailureCount > 0){
+			scheduledFailureCount--;
+			throw new GateControllerException("Failure to " + name);
+		}
+	}
+}
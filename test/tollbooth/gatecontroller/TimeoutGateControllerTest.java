@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth.gatecontroller;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import tollbooth.*;
+
+/**
+ * Test cases for the TimeoutGateController class.
+ */
+public class TimeoutGateControllerTest
+{
+	/**
+	 * Hangs in open() and tryOpen() until it is released
+	 */
+	private static class HangingGateController extends TestGateController
+	{
+		final CountDownLatch release = new CountDownLatch(1);
+
+		@Override
+		public void open() throws TollboothException
+		{
+			try{
+				release.await();
+			}catch(InterruptedException e){
+				throw new TollboothException("Interrupted", e);
+			}
+			super.open();
+		}
+
+		@Override
+		public boolean tryOpen()
+		{
+			try{
+				release.await();
+			}catch(InterruptedException e){
+				return false;
+			}
+			return super.tryOpen();
+		}
+	}
+
+	private final HangingGateController hardware = new HangingGateController();
+
+	@After
+	public void releaseHardware()
+	{
+		hardware.release.countDown();
+	}
+
+	@Test
+	public void fastCallsPassThrough() throws TollboothException
+	{
+		final TimeoutGateController controller =
+				new TimeoutGateController(new TestGateController(), 1, TimeUnit.SECONDS);
+		controller.open();
+		assertTrue(controller.isOpen());
+		controller.close();
+		assertFalse(controller.isOpen());
+		assertEquals(0, controller.getTimeoutCount());
+	}
+
+	@Test
+	public void failuresArePassedOn()
+	{
+		final TestGateController failing = new TestGateController();
+		failing.scheduleXFailures(1);
+		final TimeoutGateController controller =
+				new TimeoutGateController(failing, 1, TimeUnit.SECONDS);
+		try{
+			controller.open();
+			fail("expected the open to fail");
+		}catch(TollboothException e){
+			assertEquals("Failure to open", e.getMessage());
+		}
+		assertTrue(controller.tryOpen());
+	}
+
+	@Test
+	public void overlappingCallsQueueWithinTheirTimeout() throws Exception
+	{
+		final TestGateController slow = new TestGateController()
+		{
+			@Override
+			public boolean tryOpen()
+			{
+				try{
+					Thread.sleep(20);
+				}catch(InterruptedException e){
+					return false;
+				}
+				return super.tryOpen();
+			}
+		};
+		final TimeoutGateController controller = new TimeoutGateController(slow, 1, TimeUnit.SECONDS);
+		final AtomicInteger failures = new AtomicInteger();
+		final Thread[] lanes = new Thread[3];
+		for(int i = 0; i < lanes.length; i++){
+			lanes[i] = new Thread(() -> {
+				if(!controller.tryOpen()){
+					failures.incrementAndGet();
+				}
+			});
+			lanes[i].start();
+		}
+		for(Thread lane : lanes){
+			lane.join();
+		}
+		assertEquals(0, failures.get());
+		assertEquals(0, controller.getRejectedWhileHungCount());
+		assertEquals(0, controller.getTimeoutCount());
+		assertTrue(controller.isOpen());
+	}
+
+	@Test
+	public void hungCallTimesOutAndLaterCallsFailFast() throws TollboothException
+	{
+		final TimeoutGateController controller =
+				new TimeoutGateController(hardware, 50, TimeUnit.MILLISECONDS);
+		try{
+			controller.open();
+			fail("expected the open to time out");
+		}catch(TollboothException e){
+			assertEquals(1, controller.getTimeoutCount());
+		}
+		assertTrue(controller.isBusy());
+		final long start = System.nanoTime();
+		assertFalse(controller.tryClose());
+		assertFalse(controller.tryReset());
+		assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(50));
+		assertEquals(2, controller.getRejectedWhileHungCount());
+	}
+
+	@Test
+	public void controllerRecoversWhenHungCallReturns() throws Exception
+	{
+		final TimeoutGateController controller =
+				new TimeoutGateController(hardware, 50, TimeUnit.MILLISECONDS);
+		assertFalse(controller.tryOpen());
+		hardware.release.countDown();
+		for(int i = 0; i < 100 && controller.isBusy(); i++){
+			Thread.sleep(10);
+		}
+		assertFalse(controller.isBusy());
+		assertTrue(controller.isOpen());
+		assertTrue(controller.tryClose());
+	}
+
+	@Test
+	public void timeoutsCountAsMalfunctions() throws TollboothException
+	{
+		final TimeoutGateController controller =
+				new TimeoutGateController(hardware, 50, TimeUnit.MILLISECONDS);
+		final TollGate gate = new TollGate(controller, new TollboothLogger());
+		final long start = System.nanoTime();
+		gate.open();
+		//One attempt waits out the timeout, the retries fail at once
+		assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+		assertTrue(gate.getUnresponsiveMode());
+		assertEquals(3, gate.getNumberOfMalfunctions());
+		assertEquals(1, controller.getTimeoutCount());
+	}
+}
@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth.sink;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import tollbooth.*;
+import tollbooth.gatecontroller.TestGateController;
+
+/**
+ * Test cases for the FanOutLogger class and its sinks.
+ */
+public class FanOutLoggerTest
+{
+	/**
+	 * Records the timestamps it is given, then blocks every write until it is released
+	 */
+	private static class StalledSink implements LogSink
+	{
+		final CountDownLatch entered = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch closed = new CountDownLatch(1);
+		final List<Long> timestamps = new CopyOnWriteArrayList<Long>();
+
+		@Override
+		public void write(LogMessage[] batch, long[] timestamps, int count) throws IOException
+		{
+			for(int i = 0; i < count; i++){
+				this.timestamps.add(timestamps[i]);
+			}
+			entered.countDown();
+			try{
+				release.await();
+			}catch(InterruptedException e){
+				throw new IOException(e);
+			}
+		}
+
+		@Override
+		public void close()
+		{
+			closed.countDown();
+		}
+	}
+
+	/**
+	 * Counts down a latch for every message it writes
+	 */
+	private static class CountingSink implements LogSink
+	{
+		final CountDownLatch written;
+
+		CountingSink(int expected)
+		{
+			written = new CountDownLatch(expected);
+		}
+
+		@Override
+		public void write(LogMessage[] batch, long[] timestamps, int count)
+		{
+			for(int i = 0; i < count; i++){
+				written.countDown();
+			}
+		}
+	}
+
+	/**
+	 * Fails every write
+	 */
+	private static class FailingSink implements LogSink
+	{
+		@Override
+		public void write(LogMessage[] batch, long[] timestamps, int count) throws IOException
+		{
+			throw new IOException("collector is down");
+		}
+	}
+
+	@Test
+	public void everySinkReceivesEveryMessage()
+	{
+		final FanOutLogger logger = new FanOutLogger(64, 8);
+		final MemorySink first = new MemorySink(64);
+		final MemorySink second = new MemorySink(64);
+		logger.addSink(first, 64);
+		logger.addSink(second, 64);
+		for(int i = 0; i < 20; i++){
+			logger.accept(new LogMessage("message " + i));
+		}
+		assertTrue(logger.close(5, TimeUnit.SECONDS));
+		for(MemorySink sink : new MemorySink[]{first, second}){
+			assertEquals(20, logger.getWrittenCount(sink));
+			for(int i = 0; i < 20; i++){
+				assertEquals("message " + i, sink.getNextMessage().getMessage());
+			}
+			assertNull(sink.getNextMessage());
+		}
+	}
+
+	@Test
+	public void dispatchedMessagesCanBeRead()
+	{
+		final FanOutLogger logger = new FanOutLogger(64, 8, 16);
+		for(int i = 0; i < 20; i++){
+			logger.accept(new LogMessage("message " + i));
+		}
+		logger.close();
+		//Only the newest 16 are retained
+		assertEquals("message 4", logger.getNextMessage().getMessage());
+		final List<LogMessage> rest = new ArrayList<LogMessage>();
+		assertEquals(15, logger.drainTo(rest, 100));
+		assertEquals("message 19", rest.get(14).getMessage());
+		assertNull(logger.getNextMessage());
+	}
+
+	@Test
+	public void stalledSinkDoesNotHoldBackTheOthers() throws Exception
+	{
+		final FanOutLogger logger = new FanOutLogger(1024, 16);
+		final StalledSink stalled = new StalledSink();
+		final CountingSink console = new CountingSink(400);
+		logger.addSink(stalled, 32);
+		logger.addSink(console, 1024);
+		final TollGate gate = new TollGate(new TestGateController(), logger);
+		for(int i = 0; i < 200; i++){
+			gate.open();
+			gate.close();
+		}
+		//Every message reaches the console while the stalled sink is still blocked
+		assertTrue(console.written.await(5, TimeUnit.SECONDS));
+		assertEquals(0, logger.getDropCount());
+		stalled.release.countDown();
+		assertTrue(logger.close(5, TimeUnit.SECONDS));
+		assertEquals(400, logger.getWrittenCount(console));
+		assertTrue(logger.getDropCount(stalled) > 0);
+	}
+
+	@Test
+	public void sinksReceiveTheTimeOfAcceptance() throws Exception
+	{
+		final FanOutLogger logger = new FanOutLogger(64, 8);
+		final StalledSink stalled = new StalledSink();
+		logger.addSink(stalled, 64);
+		final long beforeFirst = System.currentTimeMillis();
+		logger.accept(new LogMessage("first"));
+		final long afterFirst = System.currentTimeMillis();
+		assertTrue(stalled.entered.await(5, TimeUnit.SECONDS));
+		final long beforeSecond = System.currentTimeMillis();
+		logger.accept(new LogMessage("second"));
+		final long afterSecond = System.currentTimeMillis();
+		//Let the clock move on, so a time taken when the second message is written
+		//would be later than the time it was accepted
+		while(System.currentTimeMillis() <= afterSecond){
+			Thread.yield();
+		}
+		stalled.release.countDown();
+		assertTrue(logger.close(5, TimeUnit.SECONDS));
+		assertEquals(2, stalled.timestamps.size());
+		final long first = stalled.timestamps.get(0);
+		final long second = stalled.timestamps.get(1);
+		assertTrue(first >= beforeFirst && first <= afterFirst);
+		assertTrue(second >= beforeSecond && second <= afterSecond);
+	}
+
+	@Test
+	public void closeGivesUpOnAStuckSink() throws Exception
+	{
+		final FanOutLogger logger = new FanOutLogger(64, 8);
+		final StalledSink stuck = new StalledSink();
+		logger.addSink(stuck, 64);
+		logger.accept(new LogMessage("stuck"));
+		assertTrue(stuck.entered.await(5, TimeUnit.SECONDS));
+		assertFalse(logger.close(10, TimeUnit.MILLISECONDS));
+		//The stuck sink is interrupted, its write fails, and it is still closed
+		assertTrue(stuck.closed.await(5, TimeUnit.SECONDS));
+		assertEquals(1, logger.getFailureCount(stuck));
+	}
+
+	@Test
+	public void failedBatchesAreCounted()
+	{
+		final FanOutLogger logger = new FanOutLogger(64, 4);
+		final FailingSink failing = new FailingSink();
+		final MemorySink console = new MemorySink(64);
+		logger.addSink(failing, 64);
+		logger.addSink(console, 64);
+		for(int i = 0; i < 10; i++){
+			logger.accept(new LogMessage("message " + i));
+		}
+		logger.close();
+		assertTrue(logger.getFailureCount(failing) >= 3);
+		assertEquals(0, logger.getWrittenCount(failing));
+		assertEquals(10, console.size());
+	}
+
+	@Test
+	public void closedLoggerDropsMessages()
+	{
+		final FanOutLogger logger = new FanOutLogger();
+		final MemorySink console = new MemorySink(16);
+		logger.addSink(console, 16);
+		logger.close();
+		logger.accept(new LogMessage("too late"));
+		assertEquals(1, logger.getDropCount());
+		assertEquals(0, console.size());
+		try{
+			logger.addSink(new MemorySink(16), 16);
+			fail("expected the closed logger to refuse the sink");
+		}catch(IllegalStateException e){
+			//expected
+		}
+	}
+
+	@Test
+	public void memorySinkKeepsTheLatestMessages()
+	{
+		final MemorySink console = new MemorySink(4);
+		final LogMessage[] batch = new LogMessage[6];
+		for(int i = 0; i < batch.length; i++){
+			batch[i] = new LogMessage("message " + i);
+		}
+		console.write(batch, new long[batch.length], batch.length);
+		assertEquals(4, console.size());
+		assertEquals(2, console.getOverwrittenCount());
+		assertEquals("message 2", console.getNextMessage().getMessage());
+	}
+}
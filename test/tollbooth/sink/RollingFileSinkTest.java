@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth.sink;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import tollbooth.LogCatalogue.Outcome;
+import tollbooth.LogMessage;
+import tollbooth.TollGate.Action;
+
+/**
+ * Test cases for the RollingFileSink class.
+ */
+public class RollingFileSinkTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void linesNameTheGateAndMessage() throws IOException
+	{
+		final Path directory = folder.getRoot().toPath();
+		final RollingFileSink sink = new RollingFileSink(directory, "lane", 1 << 20, 3);
+		sink.write(new LogMessage[]{
+				new LogMessage(4, Action.OPEN, Outcome.MALFUNCTION, new IllegalStateException("stuck")),
+				new LogMessage("free-form")}, new long[]{0, 1}, 2);
+		sink.close();
+		final List<String> lines = Files.readAllLines(sink.getFile(0), StandardCharsets.UTF_8);
+		assertEquals(2, lines.size());
+		assertTrue(lines.get(0).endsWith(" gate 4: " + new LogMessage(Action.OPEN,
+				Outcome.MALFUNCTION, null).getMessage() + " (java.lang.IllegalStateException: stuck)"));
+		assertTrue(lines.get(0).startsWith("1970-01-01T00:00:00Z gate 4: "));
+		assertTrue(lines.get(1).endsWith("Z: free-form"));
+	}
+
+	@Test
+	public void fileRollsAndKeepsTheFileLimit() throws IOException
+	{
+		final Path directory = folder.getRoot().toPath();
+		final RollingFileSink sink = new RollingFileSink(directory, "lane", 100, 3);
+		final LogMessage[] batch = new LogMessage[20];
+		for(int i = 0; i < batch.length; i++){
+			batch[i] = new LogMessage("message " + i);
+		}
+		sink.write(batch, new long[batch.length], batch.length);
+		sink.close();
+		assertTrue(sink.getRollCount() >= 3);
+		assertTrue(Files.exists(sink.getFile(0)));
+		assertTrue(Files.exists(sink.getFile(1)));
+		assertTrue(Files.exists(sink.getFile(2)));
+		assertFalse(Files.exists(sink.getFile(3)));
+		for(int i = 0; i < 3; i++){
+			assertTrue(Files.size(sink.getFile(i)) <= 100);
+		}
+		final List<String> newest = Files.readAllLines(sink.getFile(0), StandardCharsets.UTF_8);
+		assertTrue(newest.get(newest.size() - 1).endsWith("message 19"));
+	}
+}
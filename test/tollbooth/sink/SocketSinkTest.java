@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * This file was developed by Alec Benson
+ * for CS4233: Object-Oriented Analysis & Design Project 1.
+ *******************************************************************************/
+
+package tollbooth.sink;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import tollbooth.LogMessage;
+
+/**
+ * Test cases for the SocketSink class.
+ */
+public class SocketSinkTest
+{
+	@Test
+	public void linesArriveAtTheCollector() throws IOException
+	{
+		try(ServerSocket collector = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())){
+			final SocketSink sink = new SocketSink(
+					new InetSocketAddress(InetAddress.getLoopbackAddress(), collector.getLocalPort()), 1000);
+			sink.write(new LogMessage[]{new LogMessage("first"), new LogMessage("second")}, new long[2], 2);
+			sink.flush();
+			try(Socket connection = collector.accept();
+					BufferedReader in = new BufferedReader(new InputStreamReader(
+							connection.getInputStream(), StandardCharsets.UTF_8))){
+				assertTrue(in.readLine().endsWith(": first"));
+				assertTrue(in.readLine().endsWith(": second"));
+				sink.close();
+				assertNull(in.readLine());
+			}
+			assertEquals(1, sink.getConnectCount());
+		}
+	}
+
+	@Test
+	public void failedConnectionIsRetriedOnTheNextBatch() throws IOException
+	{
+		final int port;
+		try(ServerSocket unused = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())){
+			port = unused.getLocalPort();
+		}
+		final InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+		final SocketSink sink = new SocketSink(address, 1000);
+		try{
+			sink.write(new LogMessage[]{new LogMessage("lost")}, new long[1], 1);
+			fail("expected the connection to be refused");
+		}catch(IOException e){
+			assertEquals(0, sink.getConnectCount());
+		}
+		try(ServerSocket collector = new ServerSocket()){
+			collector.bind(address);
+			sink.write(new LogMessage[]{new LogMessage("delivered")}, new long[1], 1);
+			sink.close();
+			try(Socket connection = collector.accept();
+					BufferedReader in = new BufferedReader(new InputStreamReader(
+							connection.getInputStream(), StandardCharsets.UTF_8))){
+				assertTrue(in.readLine().endsWith(": delivered"));
+			}
+			assertEquals(1, sink.getConnectCount());
+		}
+	}
+}